@@ -0,0 +1,201 @@
+import benchmark.CalendarFixture;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * SchedulerFixture class - The default-package side of the benchmark fixture.
+ * The calendar is preloaded with restoreAll() on days before today, so every slot in the booking window
+ * is still free for the measured S, C, and R commands. Appointments are spread over every provider and
+ * timeslot of each day, and patients are reused so each has about four appointments.
+ *
+ * @ Rithi and Shaili
+ */
+public class SchedulerFixture implements CalendarFixture {
+
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+    private static final int APPOINTMENTS_PER_DAY = PROVIDERS.length * TIMESLOTS.length;
+    private static final int APPOINTMENTS_PER_PATIENT = 4;
+    private static final int MIN_PATIENTS = 16;  // More than the providers per slot, so no patient is double-booked
+    private static final int LANES = PROVIDERS.length * (TIMESLOTS.length - 1);  // Timeslot 1 is scheduleAndCancel()'s
+    private static final int PIPELINE_CAPACITY = 1024;
+    private static final long SHUFFLE_SEED = 42;
+
+    private final PrintStream out = new PrintStream(OutputStream.nullOutputStream());
+    private Scheduler scheduler;
+    private CommandPipeline pipeline;  // Runs the commands if not null
+    private Profile knownPatient;
+    private String schedule;
+    private String cancel;
+    private String[] laneSchedule;
+    private String[] laneCancel;
+    private String[] reschedule;
+    private int nextReschedule;
+    private Appointment[] shuffled;  // The preloaded calendar in a fixed random order, for sort()
+
+    @Override
+    public void load(int appointments, String store) {
+        switch (store) {
+            case "offHeap":
+                try {
+                    scheduler = Scheduler.offHeap(null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                break;
+            case "sharded":
+                scheduler = Scheduler.sharded(false);
+                break;
+            default:
+                scheduler = new Scheduler();
+                break;
+        }
+        int patients = Math.max(MIN_PATIENTS, appointments / APPOINTMENTS_PER_PATIENT);
+        Profile[] profiles = new Profile[patients];
+        for (int i = 0; i < patients; i++) {
+            profiles[i] = new Profile("First" + i, "Last" + (i % 1000), new Date(1950 + i % 50, 1 + i % 12, 1 + i % 28));
+        }
+        int firstDay = Date.today().toEpochDay() - 1 - appointments / APPOINTMENTS_PER_DAY;
+        Appointment[] calendar = new Appointment[appointments];
+        for (int i = 0; i < appointments; i++) {
+            int slotOfDay = i % APPOINTMENTS_PER_DAY;
+            calendar[i] = new Appointment(new Date(firstDay + i / APPOINTMENTS_PER_DAY),
+                    TIMESLOTS[slotOfDay % TIMESLOTS.length],
+                    profiles[(i / TIMESLOTS.length) % patients],
+                    PROVIDERS[slotOfDay / TIMESLOTS.length]);
+        }
+        if (scheduler.restoreAll(calendar, appointments) != appointments) {
+            throw new IllegalStateException("Fixture calendar has conflicting appointments");
+        }
+        knownPatient = profiles[patients / 2];
+        shuffled = calendar.clone();
+        Random random = new Random(SHUFFLE_SEED);
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Appointment swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+
+        // Two weekdays in the booking window: one for S/C and one holding the appointment moved by R
+        Date first = nextWeekday(Date.today());
+        Date second = nextWeekday(first);
+        schedule = "S," + first.getMonth() + "/" + first.getDay() + "/" + first.getYear() + ",1,Bench,Patient,1/1/1990,PATEL";
+        cancel = "C," + first.getMonth() + "/" + first.getDay() + "/" + first.getYear() + ",1,Bench,Patient,1/1/1990,PATEL";
+        laneSchedule = new String[LANES];
+        laneCancel = new String[LANES];
+        for (int lane = 0; lane < LANES; lane++) {
+            // Lanes cycle through the providers, then the timeslots, so no two share a slot or a patient
+            String booking = first.getMonth() + "/" + first.getDay() + "/" + first.getYear() + ","
+                    + (2 + lane / PROVIDERS.length % (TIMESLOTS.length - 1)) + ",Lane" + lane + ",Patient,1/1/1990,"
+                    + PROVIDERS[lane % PROVIDERS.length];
+            laneSchedule[lane] = "S," + booking;
+            laneCancel[lane] = "C," + booking;
+        }
+        String date = second.getMonth() + "/" + second.getDay() + "/" + second.getYear();
+        scheduler.execute("S," + date + ",1,Bench,Patient,1/1/1990,KAUR", out);
+        reschedule = new String[] { "R," + date + ",1,Bench,Patient,1/1/1990,2", "R," + date + ",2,Bench,Patient,1/1/1990,1" };
+    }
+
+    /**
+     * Finds the first weekday after a date.
+     *
+     * @param date the date to start from.
+     * @return the next weekday.
+     */
+    private static Date nextWeekday(Date date) {
+        Date next = new Date(date.toEpochDay() + 1);
+        while (next.isWeekend(next)) {
+            next = new Date(next.toEpochDay() + 1);
+        }
+        return next;
+    }
+
+    @Override
+    public void scheduleAndCancel() {
+        scheduler.execute(schedule, out);
+        scheduler.execute(cancel, out);
+    }
+
+    @Override
+    public void scheduleAndCancel(int lane) {
+        execute(laneSchedule[lane % LANES]);
+        execute(laneCancel[lane % LANES]);
+    }
+
+    @Override
+    public void usePipeline() {
+        pipeline = new CommandPipeline(scheduler, PIPELINE_CAPACITY);
+    }
+
+    @Override
+    public void close() {
+        if (pipeline != null) {
+            pipeline.close();
+            pipeline = null;
+        }
+    }
+
+    /**
+     * Runs a command through the pipeline if there is one, or on the scheduler directly.
+     *
+     * @param line the command line.
+     */
+    private void execute(String line) {
+        if (pipeline != null) {
+            pipeline.execute(line, out);
+        } else {
+            scheduler.execute(line, out);
+        }
+    }
+
+    @Override
+    public void reschedule() {
+        scheduler.execute(reschedule[nextReschedule], out);
+        nextReschedule ^= 1;
+    }
+
+    @Override
+    public Object lookupPatient() {
+        return scheduler.getMedicalRecord().findPatient(knownPatient);
+    }
+
+    @Override
+    public Object sort(String order, boolean counting) {
+        Comparator<Appointment> comparator = order.equals("PP") ? AppointmentIndex.BY_PATIENT
+                : order.equals("PL") ? AppointmentIndex.BY_LOCATION : AppointmentIndex.BY_APPOINTMENT;
+        Appointment[] copy = shuffled.clone();
+        if (counting) {
+            AppointmentSorter.sort(copy, copy.length, comparator);
+        } else {
+            Arrays.sort(copy, comparator);
+        }
+        return copy;
+    }
+
+    @Override
+    public void printByAppointment() {
+        scheduler.execute("PA", out);
+    }
+
+    @Override
+    public void printByPatient() {
+        scheduler.execute("PP", out);
+    }
+
+    @Override
+    public void printByLocation() {
+        scheduler.execute("PL", out);
+    }
+
+    @Override
+    public void printBillingStatements() {
+        scheduler.execute("PS", out);
+    }
+}
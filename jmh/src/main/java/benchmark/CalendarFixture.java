@@ -0,0 +1,121 @@
+package benchmark;
+
+/**
+ * A scheduler preloaded with a calendar of a given size, with one method per operation being measured.
+ * The scheduler classes live in the default package, which code in a named package cannot refer to,
+ * and JMH does not allow benchmarks in the default package. The default-package class SchedulerFixture
+ * implements this interface, and the benchmarks load it by name once per trial and call it through here.
+ */
+public interface CalendarFixture {
+
+    /**
+     * Loads the default-package implementation.
+     *
+     * @param appointments the number of appointments to preload.
+     * @return the fixture.
+     */
+    static CalendarFixture create(int appointments) {
+        return create(appointments, false);
+    }
+
+    /**
+     * Loads the default-package implementation, with the calendar in one store or in one store per location.
+     *
+     * @param appointments the number of appointments to preload.
+     * @param sharded true to split the calendar into a ShardedAppointmentStore.
+     * @return the fixture.
+     */
+    static CalendarFixture create(int appointments, boolean sharded) {
+        return create(appointments, sharded ? "sharded" : "list");
+    }
+
+    /**
+     * Loads the default-package implementation, with the calendar in a given kind of store.
+     *
+     * @param appointments the number of appointments to preload.
+     * @param store "list" for one List, "offHeap" for one OffHeapAppointmentStore in direct memory, or
+     *              "sharded" for a ShardedAppointmentStore of Lists.
+     * @return the fixture.
+     */
+    static CalendarFixture create(int appointments, String store) {
+        try {
+            CalendarFixture fixture = (CalendarFixture) Class.forName("SchedulerFixture").getDeclaredConstructor().newInstance();
+            fixture.load(appointments, store);
+            return fixture;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("SchedulerFixture is not on the class path", e);
+        }
+    }
+
+    /**
+     * Preloads the calendar.
+     *
+     * @param appointments the number of appointments to preload.
+     * @param store "list", "offHeap", or "sharded", for the kind of store the calendar is kept in.
+     */
+    void load(int appointments, String store);
+
+    /**
+     * Books an appointment with an S command, then cancels it with a C command, leaving the calendar unchanged.
+     */
+    void scheduleAndCancel();
+
+    /**
+     * Books and cancels an appointment as scheduleAndCancel() does, for one of several threads running at
+     * once. Each lane books a different provider and patient, so the threads never conflict.
+     *
+     * @param lane the calling thread's lane, from 0.
+     */
+    void scheduleAndCancel(int lane);
+
+    /**
+     * Sends every later command through a single-writer CommandPipeline instead of calling the scheduler.
+     */
+    void usePipeline();
+
+    /**
+     * Stops the pipeline started by usePipeline(), if any.
+     */
+    void close();
+
+    /**
+     * Moves a booked appointment between two timeslots with an R command, alternating on each call.
+     */
+    void reschedule();
+
+    /**
+     * Looks up a preloaded patient in the medical record.
+     *
+     * @return the patient, so the lookup cannot be optimized away.
+     */
+    Object lookupPatient();
+
+    /**
+     * Sorts a copy of the preloaded calendar, in shuffled order, as a bulk rebuild of an index does.
+     *
+     * @param order "PA", "PP", or "PL", for the order of that report.
+     * @param counting true to sort with the AppointmentSorter, false with Arrays.sort().
+     * @return the sorted copy, so the sort cannot be optimized away.
+     */
+    Object sort(String order, boolean counting);
+
+    /**
+     * Runs the PA command.
+     */
+    void printByAppointment();
+
+    /**
+     * Runs the PP command.
+     */
+    void printByPatient();
+
+    /**
+     * Runs the PL command.
+     */
+    void printByLocation();
+
+    /**
+     * Runs the PS command.
+     */
+    void printBillingStatements();
+}
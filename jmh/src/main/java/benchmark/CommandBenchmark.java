@@ -0,0 +1,53 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-command cost of S, C, R, and patient lookup against calendars of increasing size.
+ * A flat line across sizes means the operation does not scale with the calendar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    private CalendarFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = CalendarFixture.create(appointments);
+    }
+
+    @Benchmark
+    public void scheduleAndCancel() {
+        fixture.scheduleAndCancel();
+    }
+
+    @Benchmark
+    public void reschedule() {
+        fixture.reschedule();
+    }
+
+    @Benchmark
+    public Object lookupPatient() {
+        return fixture.lookupPatient();
+    }
+}
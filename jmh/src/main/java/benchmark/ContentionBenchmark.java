@@ -0,0 +1,76 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of S and C commands from several threads at once, either calling the lock-striped scheduler
+ * directly or handing every command to the single writer of a CommandPipeline, with the calendar in one store
+ * or split into one store per location. Lanes cycle through the providers, so the threads' commands spread
+ * over the location shards.
+ * Run with -t to change the number of threads; the pipeline needs a spare core for its writer to pay off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ContentionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean pipelined;
+
+    @Param({"false", "true"})
+    public boolean sharded;
+
+    private CalendarFixture fixture;
+    private final AtomicInteger lanes = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        fixture = CalendarFixture.create(10000, sharded);
+        if (pipelined) {
+            fixture.usePipeline();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /**
+     * The lane of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Lane {
+
+        int lane;
+
+        @Setup
+        public void setUp(ContentionBenchmark benchmark) {
+            lane = benchmark.lanes.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    public void scheduleAndCancel(Lane lane) {
+        fixture.scheduleAndCancel(lane.lane);
+    }
+}
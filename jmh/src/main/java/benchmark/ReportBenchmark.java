@@ -0,0 +1,62 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the PA, PP, PL, and PS reports against calendars of increasing size.
+ * Output goes to a discarding stream, so the numbers cover ordering and formatting but not I/O. A sharded
+ * calendar adds the cost of merging the location shards' runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    @Param({"false", "true"})
+    public boolean sharded;
+
+    private CalendarFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = CalendarFixture.create(appointments, sharded);
+    }
+
+    @Benchmark
+    public void printByAppointment() {
+        fixture.printByAppointment();
+    }
+
+    @Benchmark
+    public void printByPatient() {
+        fixture.printByPatient();
+    }
+
+    @Benchmark
+    public void printByLocation() {
+        fixture.printByLocation();
+    }
+
+    @Benchmark
+    public void printBillingStatements() {
+        fixture.printBillingStatements();
+    }
+}
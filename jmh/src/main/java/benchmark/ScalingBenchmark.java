@@ -0,0 +1,88 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of S and C commands against the lock-striped scheduler at 1, 2, 4, and 8 threads, with the
+ * calendar in a List, in direct memory, or split into one List per location. Every thread books a different
+ * provider and patient, so the commands never conflict and any loss of scaling is time spent waiting on shared
+ * state. Compare each run's total with the one-thread run of the same calendar, on a machine with at least as
+ * many cores as threads; on fewer cores the threads only take turns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @Param({"list", "offHeap", "sharded"})
+    public String store;
+
+    private CalendarFixture fixture;
+    private final AtomicInteger lanes = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        fixture = CalendarFixture.create(10000, store);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /**
+     * The lane of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Lane {
+
+        int lane;
+
+        @Setup
+        public void setUp(ScalingBenchmark benchmark) {
+            lane = benchmark.lanes.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void threads1(Lane lane) {
+        fixture.scheduleAndCancel(lane.lane);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void threads2(Lane lane) {
+        fixture.scheduleAndCancel(lane.lane);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void threads4(Lane lane) {
+        fixture.scheduleAndCancel(lane.lane);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void threads8(Lane lane) {
+        fixture.scheduleAndCancel(lane.lane);
+    }
+}
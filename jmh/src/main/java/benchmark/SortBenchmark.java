@@ -0,0 +1,49 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sorting a whole calendar into the order of a report, as a bulk index rebuild does, with the
+ * counting passes of the AppointmentSorter or with comparisons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SortBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int appointments;
+
+    @Param({"PA", "PP", "PL"})
+    public String order;
+
+    @Param({"false", "true"})
+    public boolean counting;
+
+    private CalendarFixture fixture;
+
+    @Setup
+    public void setUp() {
+        fixture = CalendarFixture.create(appointments);
+    }
+
+    @Benchmark
+    public Object sort() {
+        return fixture.sort(order, counting);
+    }
+}
@@ -1,6 +1,8 @@
 /**
  * Represents an Appointment object in the RU Clinic Scheduler.
  * Each appointment has a date, timeslot, patient, and provider.
+ * It also carries the id the MedicalRecord gave the patient's interned profile, so two appointments of one
+ * scheduler compare their patients as ints instead of by the profile's canonical key.
  *
  * @ Rithi and Shaili
  */
@@ -9,6 +11,7 @@ public class Appointment implements Comparable<Appointment> {
     private Date date;           // The date of the appointment
     private Timeslot timeslot;   // The timeslot of the appointment
     private Profile patient;     // The patient's profile
+    private int patientId;       // Id of the patient's interned profile, or Profile.NO_ID if it is not interned
     private Provider provider;   // The provider of the appointment
 
     /**
@@ -23,6 +26,7 @@ public class Appointment implements Comparable<Appointment> {
         this.date = date;
         this.timeslot = timeslot;
         this.patient = patient;
+        this.patientId = patient == null ? Profile.NO_ID : patient.getId();
         this.provider = provider;
     }
 
@@ -53,6 +57,38 @@ public class Appointment implements Comparable<Appointment> {
         return patient;
     }
 
+    /**
+     * Gets the id of the patient's profile, as it was when the appointment was created.
+     *
+     * @return the patient's id, or Profile.NO_ID if the profile was not interned
+     */
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Points an appointment not yet stored at its patient's interned profile, and takes the profile's id.
+     *
+     * @param profile the profile the MedicalRecord interned for the appointment's patient
+     */
+    void intern(Profile profile) {
+        this.patient = profile;
+        this.patientId = profile.getId();
+    }
+
+    /**
+     * Checks if the appointment is for a patient. An interned profile is compared by id, any other by key.
+     *
+     * @param profile the patient's profile
+     * @return true if the appointment is for the patient, false otherwise
+     */
+    public boolean isFor(Profile profile) {
+        if (patientId != Profile.NO_ID && profile.getId() != Profile.NO_ID) {
+            return patientId == profile.getId();
+        }
+        return patient.equals(profile);
+    }
+
     /**
      * Gets the provider of the appointment.
      *
@@ -65,6 +101,8 @@ public class Appointment implements Comparable<Appointment> {
     /**
      * Checks if two appointments are equal.
      * Appointments are considered equal if they have the same date, timeslot, and patient.
+     * Patients are compared by id when both profiles are interned, which every stored appointment's is, since
+     * the appointments compared come from one scheduler and its one MedicalRecord.
      *
      * @param obj the object to compare
      * @return true if the appointments are equal, false otherwise
@@ -74,9 +112,26 @@ public class Appointment implements Comparable<Appointment> {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Appointment other = (Appointment) obj;
-        return date.equals(other.date) &&
-                timeslot.equals(other.timeslot) &&
-                patient.equals(other.patient);
+        if (!date.equals(other.date) || timeslot != other.timeslot) {
+            return false;
+        }
+        if (patientId != Profile.NO_ID && other.patientId != Profile.NO_ID) {
+            return patientId == other.patientId;
+        }
+        return patient.equals(other.patient);
+    }
+
+    /**
+     * Returns a hash code consistent with equals(), built from the date, timeslot, and patient.
+     * The provider is not part of the hash since it is not part of equality.
+     *
+     * @return the hash code of the appointment
+     */
+    @Override
+    public int hashCode() {
+        int hash = date.hashCode();
+        hash = 31 * hash + timeslot.ordinal();
+        return 31 * hash + patient.hashCode();
     }
 
     /**
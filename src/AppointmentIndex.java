@@ -0,0 +1,244 @@
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * AppointmentIndex class - A secondary index over the appointments in a List, kept sorted in one fixed order.
+ * Appointments are kept in a concurrent skip list, so printing in that order is a simple walk with no sort step,
+ * and threads adding and removing different appointments never wait on one another or on a report walking it.
+ *
+ * @ Rithi and Shaili
+ */
+public class AppointmentIndex {
+
+    /**
+     * Order by date, timeslot, then provider; the patient breaks any remaining tie.
+     */
+    public static final Comparator<Appointment> BY_APPOINTMENT = (a, b) -> {
+        int comparison = a.getDate().compareTo(b.getDate());
+        if (comparison != 0) return comparison;
+        comparison = a.getTimeslot().compareTo(b.getTimeslot());
+        if (comparison != 0) return comparison;
+        comparison = a.getProvider().getName().compareTo(b.getProvider().getName());
+        if (comparison != 0) return comparison;
+        return a.getPatient().compareTo(b.getPatient());
+    };
+
+    /**
+     * Order by patient profile, then date and timeslot.
+     */
+    public static final Comparator<Appointment> BY_PATIENT = (a, b) -> {
+        int comparison = a.getPatient().compareTo(b.getPatient());
+        if (comparison != 0) return comparison;
+        comparison = a.getDate().compareTo(b.getDate());
+        if (comparison != 0) return comparison;
+        return a.getTimeslot().compareTo(b.getTimeslot());
+    };
+
+    /**
+     * Order by county, date, and timeslot; the provider and then the patient break any remaining tie.
+     */
+    public static final Comparator<Appointment> BY_LOCATION = (a, b) -> {
+        int comparison = a.getProvider().getLocation().getCounty().compareTo(b.getProvider().getLocation().getCounty());
+        if (comparison != 0) return comparison;
+        comparison = a.getDate().compareTo(b.getDate());
+        if (comparison != 0) return comparison;
+        comparison = a.getTimeslot().compareTo(b.getTimeslot());
+        if (comparison != 0) return comparison;
+        comparison = a.getProvider().getName().compareTo(b.getProvider().getName());
+        if (comparison != 0) return comparison;
+        return a.getPatient().compareTo(b.getPatient());
+    };
+
+    /**
+     * Order by provider, date, and timeslot; the patient breaks any remaining tie.
+     */
+    public static final Comparator<Appointment> BY_PROVIDER = (a, b) -> {
+        int comparison = a.getProvider().getName().compareTo(b.getProvider().getName());
+        if (comparison != 0) return comparison;
+        comparison = a.getDate().compareTo(b.getDate());
+        if (comparison != 0) return comparison;
+        comparison = a.getTimeslot().compareTo(b.getTimeslot());
+        if (comparison != 0) return comparison;
+        return a.getPatient().compareTo(b.getPatient());
+    };
+
+    private final Comparator<Appointment> order;                         // The order the index is kept in
+    private volatile ConcurrentSkipListMap<Appointment, Boolean> appointments;  // Appointments in sorted order
+
+    /**
+     * Constructor to create an empty index kept in the given order.
+     *
+     * @param order the comparator defining the index order; it must never return 0 for two distinct appointments.
+     */
+    public AppointmentIndex(Comparator<Appointment> order) {
+        this.order = order;
+        this.appointments = new ConcurrentSkipListMap<>(order);
+    }
+
+    /**
+     * Inserts an appointment at its sorted position.
+     *
+     * @param appointment the appointment to insert.
+     */
+    public void add(Appointment appointment) {
+        appointments.put(appointment, Boolean.TRUE);
+    }
+
+    /**
+     * Removes an appointment from the index.
+     *
+     * @param appointment the stored appointment to remove.
+     */
+    public void remove(Appointment appointment) {
+        appointments.remove(appointment);
+    }
+
+    /**
+     * Replaces the contents of the index with the given appointments, sorting them once with the
+     * AppointmentSorter and linking the sorted run into a new skip list in one pass. Used to build the index in
+     * bulk instead of inserting appointments one at a time; no other thread may change the index meanwhile.
+     *
+     * @param source the array holding the appointments.
+     * @param count the number of appointments at the start of the array.
+     */
+    public void rebuild(Appointment[] source, int count) {
+        Appointment[] sorted = Arrays.copyOf(source, count);
+        AppointmentSorter.sort(sorted, count, order);
+        appointments = new ConcurrentSkipListMap<>(new SortedRun(sorted, order));
+    }
+
+    /**
+     * Walks the whole index in order.
+     *
+     * @return an iterator over every appointment of the index, in index order.
+     */
+    public Iterator<Appointment> iterator() {
+        return appointments.keySet().iterator();
+    }
+
+    /**
+     * Walks the index from the start of a range. The probe only has to sort near the start of the range:
+     * the walk steps back over the appointments before it that are inside the range, and forward over the
+     * ones after it that are still before the range, so only the appointments tied with the probe on its
+     * leading keys are looked at twice.
+     *
+     * @param probe an appointment sorting at or near the start of the range.
+     * @param position places an appointment relative to the range: negative before it, 0 inside it,
+     *                 and positive after it. It must agree with the index order.
+     * @return an iterator over the appointments from the first one not before the range, in index order.
+     */
+    public Iterator<Appointment> from(Appointment probe, ToIntFunction<Appointment> position) {
+        ConcurrentSkipListMap<Appointment, Boolean> view = appointments;
+        Appointment start = view.ceilingKey(probe);
+        Appointment before = start == null ? view.lowerKey(probe) : view.lowerKey(start);
+        while (before != null && position.applyAsInt(before) >= 0) {
+            start = before;
+            before = view.lowerKey(before);
+        }
+        while (start != null && position.applyAsInt(start) < 0) {
+            start = view.higherKey(start);
+        }
+        if (start == null) {
+            return Collections.emptyIterator();
+        }
+        return view.tailMap(start, true).keySet().iterator();
+    }
+
+    /**
+     * SortedRun class - An already sorted array seen as a read-only sorted map, which is what the skip list's
+     * copy constructor needs to link the appointments in order without searching for each one.
+     */
+    private static class SortedRun extends AbstractMap<Appointment, Boolean>
+            implements SortedMap<Appointment, Boolean> {
+
+        private final Appointment[] sorted;             // Appointments in the run's order
+        private final Comparator<Appointment> order;    // The order of the run
+
+        /**
+         * Constructor to wrap a sorted array.
+         *
+         * @param sorted the appointments, sorted in the order.
+         * @param order the order of the array.
+         */
+        SortedRun(Appointment[] sorted, Comparator<Appointment> order) {
+            this.sorted = sorted;
+            this.order = order;
+        }
+
+        @Override
+        public Comparator<? super Appointment> comparator() {
+            return order;
+        }
+
+        @Override
+        public Set<Map.Entry<Appointment, Boolean>> entrySet() {
+            return new AbstractSet<Map.Entry<Appointment, Boolean>>() {
+                @Override
+                public Iterator<Map.Entry<Appointment, Boolean>> iterator() {
+                    return new Iterator<Map.Entry<Appointment, Boolean>>() {
+                        private int next;  // Position of the next appointment to return
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < sorted.length;
+                        }
+
+                        @Override
+                        public Map.Entry<Appointment, Boolean> next() {
+                            if (next == sorted.length) {
+                                throw new NoSuchElementException();
+                            }
+                            return new AbstractMap.SimpleImmutableEntry<>(sorted[next++], Boolean.TRUE);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return sorted.length;
+                }
+            };
+        }
+
+        @Override
+        public SortedMap<Appointment, Boolean> subMap(Appointment fromKey, Appointment toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<Appointment, Boolean> headMap(Appointment toKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedMap<Appointment, Boolean> tailMap(Appointment fromKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Appointment firstKey() {
+            if (sorted.length == 0) {
+                throw new NoSuchElementException();
+            }
+            return sorted[0];
+        }
+
+        @Override
+        public Appointment lastKey() {
+            if (sorted.length == 0) {
+                throw new NoSuchElementException();
+            }
+            return sorted[sorted.length - 1];
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * AppointmentQuery class - The filters and page of a PA, PP, or PL report that prints only part of the calendar.
+ * A query keeps the appointments between two dates, inclusive, that match an optional county, provider, and
+ * patient, and then skips the first offset of them and prints at most limit.
+ * A store serves a query from the sorted index whose leading key the query fixes, so it reads only the
+ * index range of that key and date range instead of every appointment.
+ *
+ * @ Rithi and Shaili
+ */
+public class AppointmentQuery {
+
+    /**
+     * The keys a sorted index can be ordered by first, ahead of the date.
+     */
+    public enum Key {
+        DATE, PATIENT, COUNTY, PROVIDER
+    }
+
+    /** A query with no filters and no page, matching the whole report. */
+    public static final AppointmentQuery ALL = new AppointmentQuery(null, null, null, null, null, 0, Integer.MAX_VALUE);
+
+    private static final Date EARLIEST = new Date(1, 1, 1);               // Probe date of an open date range
+    private static final Profile ANYONE = new Profile("", "", EARLIEST);  // Probe patient when none is fixed
+
+    private final Date from;          // First date to include, or null for no lower bound
+    private final Date to;            // Last date to include, or null for no upper bound
+    private final String county;      // County to include, or null for every county
+    private final Provider provider;  // Provider to include, or null for every provider
+    private final Profile patient;    // Interned profile of the patient to include, or null for every patient
+    private final int offset;         // Number of matching appointments to skip
+    private final int limit;          // Most matching appointments to print
+
+    /**
+     * Constructor to create a query.
+     *
+     * @param from the first date to include, or null for no lower bound.
+     * @param to the last date to include, or null for no upper bound.
+     * @param county the county to include, or null for every county.
+     * @param provider the provider to include, or null for every provider.
+     * @param patient the interned profile of the patient to include, or null for every patient.
+     * @param offset the number of matching appointments to skip.
+     * @param limit the most matching appointments to print.
+     */
+    public AppointmentQuery(Date from, Date to, String county, Provider provider, Profile patient,
+                            int offset, int limit) {
+        this.from = from;
+        this.to = to;
+        this.county = county;
+        this.provider = provider;
+        this.patient = patient;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Checks if an appointment passes every filter of the query.
+     *
+     * @param appointment the appointment to check.
+     * @return true if the appointment matches, false otherwise.
+     */
+    public boolean matches(Appointment appointment) {
+        return (from == null || appointment.getDate().compareTo(from) >= 0)
+                && (to == null || appointment.getDate().compareTo(to) <= 0)
+                && (county == null || appointment.getProvider().getLocation().getCounty().equals(county))
+                && (provider == null || appointment.getProvider() == provider)
+                && (patient == null || appointment.isFor(patient));
+    }
+
+    /**
+     * Checks if the fields of an appointment kept as a record pass every filter of the query.
+     *
+     * @param day the epoch day of the appointment.
+     * @param provider the provider of the appointment.
+     * @param patientId the MedicalRecord id of the appointment's patient.
+     * @return true if the appointment matches, false otherwise.
+     */
+    public boolean matches(int day, Provider provider, int patientId) {
+        return (from == null || day >= from.toEpochDay())
+                && (to == null || day <= to.toEpochDay())
+                && (county == null || provider.getLocation().getCounty().equals(county))
+                && (this.provider == null || provider == this.provider)
+                && (patient == null || patientId == patient.getId());
+    }
+
+    /**
+     * Checks if the query fixes a key, so the index ordered by that key holds its matches in one range.
+     * The date is always fixed, since an open date range is still a range.
+     *
+     * @param key the leading key of an index.
+     * @return true if the query filters on the key, false otherwise.
+     */
+    public boolean fixes(Key key) {
+        switch (key) {
+            case PATIENT: return patient != null;
+            case COUNTY: return county != null;
+            case PROVIDER: return provider != null;
+            default: return true;
+        }
+    }
+
+    /**
+     * Places an appointment relative to the query's range in an index ordered by a key and then the date.
+     * The query must fix the key.
+     *
+     * @param appointment the appointment to place.
+     * @param key the leading key of the index.
+     * @return a negative number if the appointment sorts before the range, 0 if it is inside it,
+     *         or a positive number if it sorts after it.
+     */
+    public int locate(Appointment appointment, Key key) {
+        int comparison = 0;
+        switch (key) {
+            case PATIENT:
+                comparison = appointment.getPatient().compareTo(patient);
+                break;
+            case COUNTY:
+                comparison = appointment.getProvider().getLocation().getCounty().compareTo(county);
+                break;
+            case PROVIDER:
+                comparison = appointment.getProvider().getName().compareTo(provider.getName());
+                break;
+            default:
+                break;
+        }
+        if (comparison != 0) return comparison;
+        if (from != null && appointment.getDate().compareTo(from) < 0) return -1;
+        if (to != null && appointment.getDate().compareTo(to) > 0) return 1;
+        return 0;
+    }
+
+    /**
+     * Builds an appointment that sorts at or near the start of the query's range in an index ordered by a key
+     * and then the date, for the index to start its walk from. The query must fix the key.
+     *
+     * @param key the leading key of the index.
+     * @return the probe, or null if no appointment can have the key the query fixes.
+     */
+    public Appointment probe(Key key) {
+        Provider at = provider == null ? Provider.values()[0] : provider;
+        if (key == Key.COUNTY) {
+            at = null;
+            for (Provider candidate : Provider.values()) {
+                if (candidate.getLocation().getCounty().equals(county)) {
+                    at = candidate;
+                    break;
+                }
+            }
+            if (at == null) {
+                return null;  // No provider works in the county
+            }
+        }
+        return new Appointment(from == null ? EARLIEST : from, Timeslot.values()[0],
+                patient == null ? ANYONE : patient, at);
+    }
+
+    /**
+     * Checks if a provider passes the county and provider filters of the query.
+     *
+     * @param provider the provider to check.
+     * @return true if the query keeps the provider's appointments, false otherwise.
+     */
+    public boolean admits(Provider provider) {
+        return (county == null || provider.getLocation().getCounty().equals(county))
+                && (this.provider == null || provider == this.provider);
+    }
+
+    /**
+     * Gets the first date to include.
+     *
+     * @return the first date, or null for no lower bound.
+     */
+    public Date getFrom() {
+        return from;
+    }
+
+    /**
+     * Gets the last date to include.
+     *
+     * @return the last date, or null for no upper bound.
+     */
+    public Date getTo() {
+        return to;
+    }
+
+    /**
+     * Gets the patient to include.
+     *
+     * @return the interned profile of the patient, or null for every patient.
+     */
+    public Profile getPatient() {
+        return patient;
+    }
+
+    /**
+     * Gets the number of matching appointments to skip.
+     *
+     * @return the offset.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the most matching appointments to print.
+     *
+     * @return the limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
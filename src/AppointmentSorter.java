@@ -0,0 +1,434 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * AppointmentSorter class - Sorts appointments in the orders of AppointmentIndex with counting passes instead
+ * of comparisons.
+ * Every key of those orders but the patient has a tiny domain: the timeslot, the provider, the county, and the
+ * day within the span of the appointments' dates. The keys of an order are packed into one long per
+ * appointment, most significant key highest, and the appointments are put in order by an LSD radix sort of the
+ * packed keys: a few stable counting passes of equal digits, skipping any pass whose digit is the same for
+ * every appointment. The patient is the one key ordered by name, so it is only ever compared. When it leads
+ * the order, only the distinct patients are sorted, with the comparison merge sort of Arrays.sort(), and each
+ * appointment's patient is packed as its rank in that order. When it only breaks ties, the runs of equal
+ * packed keys left by the passes are sorted by comparison; a calendar has none, since a provider sees one
+ * patient per timeslot. Sorting n appointments of p patients takes O(n + p log p) time, and appointments
+ * that compare equal keep their relative order.
+ * Small arrays, orders other than those of AppointmentIndex, and keys too wide to pack are sorted with
+ * Arrays.sort().
+ *
+ * @ Rithi and Shaili
+ */
+public class AppointmentSorter {
+
+    /**
+     * The keys the orders of AppointmentIndex are made of.
+     */
+    private enum Key { DATE, TIMESLOT, PROVIDER, COUNTY, PATIENT }
+
+    // Packed keys of each order, most significant first; the patient that breaks ties in the other orders is
+    // left to the comparator
+    private static final Key[] BY_APPOINTMENT = { Key.DATE, Key.TIMESLOT, Key.PROVIDER };
+    private static final Key[] BY_PATIENT = { Key.PATIENT, Key.DATE, Key.TIMESLOT };
+    private static final Key[] BY_LOCATION = { Key.COUNTY, Key.DATE, Key.TIMESLOT, Key.PROVIDER };
+    private static final Key[] BY_PROVIDER = { Key.PROVIDER, Key.DATE, Key.TIMESLOT };
+
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final int[] PROVIDER_RANKS;  // Rank of each provider's name, by provider ordinal
+    private static final int[] COUNTY_RANKS;    // Rank of each location's county, by location ordinal
+    private static final int MIN_COUNT = 256;  // Fewest appointments worth the counting passes
+    private static final int MAX_DIGIT_BITS = 11;  // Widest digit, so a pass's counts fit in the L1 cache
+    private static final int MAX_KEY_BITS = 63;
+
+    static {
+        String[] names = new String[PROVIDERS.length];
+        for (Provider provider : PROVIDERS) {
+            names[provider.ordinal()] = provider.getName();
+        }
+        PROVIDER_RANKS = ranks(names);
+        Location[] locations = Location.values();
+        String[] counties = new String[locations.length];
+        for (Location location : locations) {
+            counties[location.ordinal()] = location.getCounty();
+        }
+        COUNTY_RANKS = ranks(counties);
+    }
+
+    /**
+     * The fields of the appointments being sorted, read by their position in the array.
+     */
+    private interface Records {
+
+        /**
+         * Gets the date of a record.
+         *
+         * @param record the position of the record.
+         * @return the epoch day.
+         */
+        int day(int record);
+
+        /**
+         * Gets the timeslot of a record.
+         *
+         * @param record the position of the record.
+         * @return the timeslot ordinal.
+         */
+        int timeslot(int record);
+
+        /**
+         * Gets the provider of a record.
+         *
+         * @param record the position of the record.
+         * @return the provider ordinal.
+         */
+        int provider(int record);
+
+        /**
+         * Gets the patient of a record.
+         *
+         * @param record the position of the record.
+         * @return the patient's profile, interned so each patient has one.
+         */
+        Profile patient(int record);
+    }
+
+    /**
+     * Sorts the first appointments of an array.
+     *
+     * @param appointments the array to sort.
+     * @param count the number of appointments at the start of the array.
+     * @param order the order to sort in; one of the orders of AppointmentIndex, or any order to sort by
+     *              comparison.
+     */
+    public static void sort(Appointment[] appointments, int count, Comparator<Appointment> order) {
+        Key[] keys = keysOf(order);
+        if (keys == null || count < MIN_COUNT) {
+            Arrays.sort(appointments, 0, count, order);
+            return;
+        }
+        Records fields = new Records() {
+            @Override
+            public int day(int record) {
+                return appointments[record].getDate().toEpochDay();
+            }
+
+            @Override
+            public int timeslot(int record) {
+                return appointments[record].getTimeslot().ordinal();
+            }
+
+            @Override
+            public int provider(int record) {
+                return appointments[record].getProvider().ordinal();
+            }
+
+            @Override
+            public Profile patient(int record) {
+                return appointments[record].getPatient();
+            }
+        };
+        long[] packed = pack(keys, fields, count);
+        if (packed == null) {
+            Arrays.sort(appointments, 0, count, order);  // A span of dates too wide to pack with the other keys
+            return;
+        }
+        radixSort(appointments, packed, count);
+        if (keys[0] != Key.PATIENT) {
+            int start = 0;
+            while (start < count) {
+                int end = start + 1;
+                while (end < count && packed[end] == packed[start]) {
+                    end++;
+                }
+                if (end - start > 1) {
+                    Arrays.sort(appointments, start, end, order);  // Break the tie by patient
+                }
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * Helper method to pack the keys of an order into one long per appointment, most significant key highest.
+     *
+     * @param keys the keys of the order.
+     * @param records the fields of the appointments.
+     * @param count the number of appointments.
+     * @return the packed key of each appointment, or null if the keys are too wide to pack.
+     */
+    private static long[] pack(Key[] keys, Records records, int count) {
+        int firstDay = Integer.MAX_VALUE;
+        int lastDay = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            int day = records.day(i);
+            firstDay = Math.min(firstDay, day);
+            lastDay = Math.max(lastDay, day);
+        }
+        int[] patientRanks = null;
+        int lastRank = 0;
+        if (keys[0] == Key.PATIENT) {
+            patientRanks = rankPatients(records, count);
+            for (int i = 0; i < count; i++) {
+                lastRank = Math.max(lastRank, patientRanks[i]);
+            }
+        }
+        int[] widths = new int[keys.length];
+        int bits = 0;
+        for (int k = 0; k < keys.length; k++) {
+            switch (keys[k]) {
+                case DATE:
+                    widths[k] = bitsFor((long) lastDay - firstDay);
+                    break;
+                case TIMESLOT:
+                    widths[k] = bitsFor(Timeslot.values().length - 1);
+                    break;
+                case PROVIDER:
+                    widths[k] = bitsFor(PROVIDER_RANKS.length - 1);
+                    break;
+                case COUNTY:
+                    widths[k] = bitsFor(COUNTY_RANKS.length - 1);
+                    break;
+                default:
+                    widths[k] = bitsFor(lastRank);
+                    break;
+            }
+            bits += widths[k];
+        }
+        if (bits > MAX_KEY_BITS) {
+            return null;
+        }
+        long[] packed = new long[count];
+        for (int i = 0; i < count; i++) {
+            long value = 0;
+            for (int k = 0; k < keys.length; k++) {
+                int field;
+                switch (keys[k]) {
+                    case DATE:
+                        field = records.day(i) - firstDay;
+                        break;
+                    case TIMESLOT:
+                        field = records.timeslot(i);
+                        break;
+                    case PROVIDER:
+                        field = PROVIDER_RANKS[records.provider(i)];
+                        break;
+                    case COUNTY:
+                        field = COUNTY_RANKS[PROVIDERS[records.provider(i)].getLocation().ordinal()];
+                        break;
+                    default:
+                        field = patientRanks[i];
+                        break;
+                }
+                value = (value << widths[k]) | field;
+            }
+            packed[i] = value;
+        }
+        return packed;
+    }
+
+    /**
+     * Helper method to find the keys of an order.
+     *
+     * @param order the order.
+     * @return the keys, most significant first, or null if the order is not one of AppointmentIndex's.
+     */
+    private static Key[] keysOf(Comparator<Appointment> order) {
+        if (order == AppointmentIndex.BY_APPOINTMENT) {
+            return BY_APPOINTMENT;
+        } else if (order == AppointmentIndex.BY_PATIENT) {
+            return BY_PATIENT;
+        } else if (order == AppointmentIndex.BY_LOCATION) {
+            return BY_LOCATION;
+        } else if (order == AppointmentIndex.BY_PROVIDER) {
+            return BY_PROVIDER;
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to rank each appointment's patient in name order. The distinct patients are found with an
+     * identity hash table, since the MedicalRecord interns one profile per patient, and only they are sorted.
+     * Profiles that compare equal get the same rank.
+     *
+     * @param records the fields of the appointments.
+     * @param count the number of appointments.
+     * @return the rank of each appointment's patient, from 0.
+     */
+    private static int[] rankPatients(Records records, int count) {
+        int[] ranks = new int[count];  // Position of each appointment's patient in distinct, then its rank
+        Profile[] distinct = new Profile[MIN_COUNT];
+        int size = 0;
+        int[] table = new int[MIN_COUNT * 2];  // Positions in distinct plus one; 0 marks an empty bucket
+        for (int i = 0; i < count; i++) {
+            Profile patient = records.patient(i);
+            int bucket = findBucket(table, distinct, patient);
+            if (table[bucket] == 0) {
+                if (size == distinct.length) {
+                    distinct = Arrays.copyOf(distinct, size * 2);
+                    table = new int[distinct.length * 2];  // Keep the table at most half full
+                    for (int d = 0; d < size; d++) {
+                        table[findBucket(table, distinct, distinct[d])] = d + 1;
+                    }
+                    bucket = findBucket(table, distinct, patient);
+                }
+                distinct[size] = patient;
+                table[bucket] = ++size;
+            }
+            ranks[i] = table[bucket] - 1;
+        }
+        Profile[] sorted = Arrays.copyOf(distinct, size);
+        Arrays.sort(sorted);  // The only comparisons: of names, once per distinct patient
+        int[] rankOf = new int[size];
+        int rank = -1;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || sorted[i].compareTo(sorted[i - 1]) != 0) {
+                rank++;
+            }
+            rankOf[table[findBucket(table, distinct, sorted[i])] - 1] = rank;
+        }
+        for (int i = 0; i < count; i++) {
+            ranks[i] = rankOf[ranks[i]];
+        }
+        return ranks;
+    }
+
+    /**
+     * Helper method to find the bucket of the identity hash table holding a profile, or the empty bucket
+     * where it would go. Uses linear probing from the profile's home bucket.
+     *
+     * @param table the hash table of positions in distinct plus one.
+     * @param distinct the profiles in the table.
+     * @param profile the profile to search for.
+     * @return the bucket of the profile, or the first empty bucket on its probe path.
+     */
+    private static int findBucket(int[] table, Profile[] distinct, Profile profile) {
+        int mask = table.length - 1;
+        int hash = System.identityHashCode(profile) * 0x9E3779B9;
+        int bucket = (hash ^ (hash >>> 16)) & mask;
+        while (table[bucket] != 0 && distinct[table[bucket] - 1] != profile) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /**
+     * Helper method to sort appointments by their packed keys with stable counting passes, least significant
+     * digit first.
+     *
+     * @param appointments the appointments to sort.
+     * @param keys the packed key of each appointment; sorted along with the appointments.
+     * @param count the number of appointments at the start of the arrays.
+     */
+    private static void radixSort(Appointment[] appointments, long[] keys, int count) {
+        Appointment[] from = appointments;
+        Appointment[] to = new Appointment[count];
+        long[] fromKeys = keys;
+        long[] toKeys = new long[count];
+        int[] counts = new int[(1 << MAX_DIGIT_BITS) + 1];
+        int bits = keyBits(keys, count);
+        int digitBits = digitBits(bits);
+        for (int shift = 0; shift < bits; shift += digitBits) {
+            if (!countDigits(fromKeys, count, shift, digitBits, counts)) {
+                continue;  // Every appointment has the same digit; the pass would move nothing
+            }
+            int mask = (1 << digitBits) - 1;
+            for (int i = 0; i < count; i++) {
+                int position = counts[(int) (fromKeys[i] >>> shift) & mask]++;
+                to[position] = from[i];
+                toKeys[position] = fromKeys[i];
+            }
+            Appointment[] swap = from;
+            from = to;
+            to = swap;
+            long[] swapKeys = fromKeys;
+            fromKeys = toKeys;
+            toKeys = swapKeys;
+        }
+        if (from != appointments) {
+            System.arraycopy(from, 0, appointments, 0, count);
+            System.arraycopy(fromKeys, 0, keys, 0, count);
+        }
+    }
+
+    /**
+     * Helper method to count the bits the packed keys use.
+     *
+     * @param keys the packed keys.
+     * @param count the number of keys at the start of the array.
+     * @return the number of low bits any key has set.
+     */
+    private static int keyBits(long[] keys, int count) {
+        long used = 0;
+        for (int i = 0; i < count; i++) {
+            used |= keys[i];
+        }
+        return bitsFor(used);
+    }
+
+    /**
+     * Helper method to choose the width of a digit, as equal across the passes as their number allows.
+     *
+     * @param bits the number of key bits to sort by.
+     * @return the number of bits of each digit.
+     */
+    private static int digitBits(int bits) {
+        int passes = Math.max(1, (bits + MAX_DIGIT_BITS - 1) / MAX_DIGIT_BITS);
+        return Math.max(1, (bits + passes - 1) / passes);
+    }
+
+    /**
+     * Helper method to count the keys with each digit and turn the counts into the first position of each
+     * digit.
+     *
+     * @param keys the packed keys.
+     * @param count the number of keys at the start of the array.
+     * @param shift the position of the digit's lowest bit.
+     * @param digitBits the number of bits of the digit.
+     * @param counts the array to fill; at least one longer than the number of digits.
+     * @return false if every key has the same digit, so the pass would move nothing.
+     */
+    private static boolean countDigits(long[] keys, int count, int shift, int digitBits, int[] counts) {
+        int mask = (1 << digitBits) - 1;
+        Arrays.fill(counts, 0, mask + 2, 0);
+        for (int i = 0; i < count; i++) {
+            counts[((int) (keys[i] >>> shift) & mask) + 1]++;
+        }
+        if (counts[((int) (keys[0] >>> shift) & mask) + 1] == count) {
+            return false;
+        }
+        for (int digit = 0; digit <= mask; digit++) {
+            counts[digit + 1] += counts[digit];  // Now the first position of each digit
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to count the bits needed to hold the values from 0 up to a largest value.
+     *
+     * @param largest the largest value.
+     * @return the number of bits; 0 if every value is 0.
+     */
+    private static int bitsFor(long largest) {
+        return 64 - Long.numberOfLeadingZeros(largest);
+    }
+
+    /**
+     * Helper method to rank names in String order. Equal names get the same rank.
+     *
+     * @param names the names.
+     * @return the number of distinct names that sort before each name.
+     */
+    private static int[] ranks(String[] names) {
+        String[] sorted = names.clone();
+        Arrays.sort(sorted);
+        int[] ranks = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            for (int j = 1; j < sorted.length && sorted[j].compareTo(names[i]) <= 0; j++) {
+                if (!sorted[j].equals(sorted[j - 1])) {
+                    ranks[i]++;
+                }
+            }
+        }
+        return ranks;
+    }
+}
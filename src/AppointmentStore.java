@@ -0,0 +1,129 @@
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+
+/**
+ * AppointmentStore interface - The operations the Scheduler uses on its calendar of appointments.
+ * Two appointments are the same if they have the same date, timeslot, and patient; the provider is ignored.
+ * List keeps Appointment objects on the heap with sorted indexes for printing, and OffHeapAppointmentStore
+ * keeps a grid of fixed-width cells outside the heap; ShardedAppointmentStore splits the calendar into one of those
+ * stores per location. Each operation is atomic on its own, and a caller can hold the monitor given by
+ * mutex() to make several operations on one appointment, and on any appointment equal to it, one atomic step.
+ *
+ * @ Rithi and Shaili
+ */
+public interface AppointmentStore {
+
+    /**
+     * Returns the stored appointment equal to the given one.
+     *
+     * @param appointment the appointment to look up; its provider is ignored.
+     * @return the stored appointment, or null if there is none.
+     */
+    Appointment get(Appointment appointment);
+
+    /**
+     * Adds an appointment that is not already in the store.
+     *
+     * @param appointment the appointment to be added.
+     */
+    void add(Appointment appointment);
+
+    /**
+     * Adds an appointment unless the store already holds an equal one, as one atomic step.
+     *
+     * @param appointment the appointment to be added.
+     * @return true if the appointment was added, false if an equal one was already in the store.
+     */
+    boolean addIfAbsent(Appointment appointment);
+
+    /**
+     * Removes the stored appointment equal to the given one, if there is one.
+     *
+     * @param appointment the appointment to be removed; its provider is ignored.
+     */
+    void remove(Appointment appointment);
+
+    /**
+     * Checks if the store holds an appointment equal to the given one.
+     *
+     * @param appointment the appointment to check.
+     * @return true if an equal appointment is stored, false otherwise.
+     */
+    boolean contains(Appointment appointment);
+
+    /**
+     * Returns the number of appointments in the store.
+     *
+     * @return the number of appointments.
+     */
+    int size();
+
+    /**
+     * Makes room for at least the given number of appointments.
+     *
+     * @param capacity the number of appointments the store should hold without growing.
+     */
+    void ensureCapacity(int capacity);
+
+    /**
+     * Starts a bulk load, during which the store may defer keeping its print orders.
+     */
+    void beginBulkLoad();
+
+    /**
+     * Ends a bulk load.
+     */
+    void endBulkLoad();
+
+    /**
+     * Writes every stored appointment as a snapshot row at the buffer's position: the date (int epoch day), the
+     * timeslot and provider (byte ordinals), and the patient's MedicalRecord id (int).
+     *
+     * @param rows the buffer to write to; it must have Snapshot.ROW_SIZE bytes left for each appointment.
+     */
+    void writeRows(ByteBuffer rows);
+
+    /**
+     * Gets the monitor that guards an appointment. Operations on equal appointments, or on appointments of
+     * the same patient on the same day, always share it.
+     *
+     * @param appointment the appointment.
+     * @return the object to synchronize on.
+     */
+    Object mutex(Appointment appointment);
+
+    /**
+     * Collects the first appointments matching a query's filters in an order; the query's page is ignored.
+     *
+     * @param order the order to collect in; one of the orders of AppointmentIndex.
+     * @param query the filters to match.
+     * @param max the most appointments to collect.
+     * @return a new array of the matching appointments, in order, no longer than max.
+     */
+    Appointment[] select(Comparator<Appointment> order, AppointmentQuery query, int max);
+
+    /**
+     * Prints the appointments matching a query ordered by patient profile, then by date/timeslot.
+     *
+     * @param out the stream to print to.
+     * @param query the filters and page to print; AppointmentQuery.ALL prints every appointment.
+     */
+    void printByPatient(PrintStream out, AppointmentQuery query);
+
+    /**
+     * Prints the appointments matching a query ordered by location, then by date/timeslot.
+     *
+     * @param out the stream to print to.
+     * @param query the filters and page to print; AppointmentQuery.ALL prints every appointment.
+     */
+    void printByLocation(PrintStream out, AppointmentQuery query);
+
+    /**
+     * Prints the appointments matching a query ordered by date/timeslot, then by provider.
+     *
+     * @param out the stream to print to.
+     * @param query the filters and page to print; AppointmentQuery.ALL prints every appointment.
+     */
+    void printByAppointment(PrintStream out, AppointmentQuery query);
+}
@@ -0,0 +1,146 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BatchRunner class - Applies a file of scheduler commands without going through the console.
+ * The command file is memory-mapped, and each line is parsed straight out of the mapped bytes into one
+ * reused Command, so applying a command allocates nothing for parsing. Every result is written to a
+ * buffered output file. Commands are run in batches of BATCH_SIZE with Scheduler.executeBatch(), which checks
+ * and looks up the patients of a batch's S commands in one pass each. A throughput summary is printed when the
+ * run finishes.
+ *
+ * @ Rithi and Shaili
+ */
+public class BatchRunner {
+
+    private final Scheduler scheduler;  // The scheduler the commands are applied to
+    private final CommandParser parser = new CommandParser();
+    private final Command[] batch = new Command[BATCH_SIZE];        // Commands parsed but not yet run
+    private final PrintStream[] outs = new PrintStream[BATCH_SIZE];  // Stream of each command in the batch
+    private final RuntimeException[] failures = new RuntimeException[BATCH_SIZE];
+    private int pending;                // Number of commands in the batch
+    private long commands;              // Number of commands applied in the last run
+
+    private static final long WINDOW_SIZE = 1L << 30;  // Bytes of the file mapped at a time
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Constructor to create a batch runner for a scheduler.
+     *
+     * @param scheduler the scheduler the commands are applied to.
+     */
+    public BatchRunner(Scheduler scheduler) {
+        this.scheduler = scheduler;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = new Command();
+        }
+    }
+
+    /**
+     * Applies every command in a file, stopping early at a Q command, and writes the results to another file.
+     *
+     * @param input the path of the command file.
+     * @param output the path of the results file; it is created or truncated.
+     * @throws IOException if either file cannot be read or written.
+     */
+    public void run(Path input, Path output) throws IOException {
+        long start = System.nanoTime();
+        commands = 0;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             PrintStream out = new PrintStream(new BufferedOutputStream(
+                     new FileOutputStream(output.toFile()), OUTPUT_BUFFER_SIZE), false)) {
+            long fileSize = channel.size();
+            long position = 0;
+            boolean quit = false;
+            while (position < fileSize && !quit) {
+                long length = Math.min(WINDOW_SIZE, fileSize - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == fileSize;
+                int lineStart = 0;
+                int limit = window.limit();
+                for (int i = 0; i < limit && !quit; i++) {
+                    if (window.get(i) == '\n') {
+                        quit = apply(window, lineStart, i, out);
+                        lineStart = i + 1;
+                    }
+                }
+                if (last && lineStart < limit && !quit) {
+                    quit = apply(window, lineStart, limit, out);  // Final line without a newline
+                    lineStart = limit;
+                }
+                if (lineStart == 0 && !last) {
+                    throw new IOException("Command line longer than the mapping window at byte " + position);
+                }
+                position += lineStart;  // Remap from the start of any line cut off by the window
+            }
+            flush();
+            if (quit) {
+                out.println("Scheduler has been terminated.");
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Processed %,d commands in %,.1f ms (%,.0f commands/sec); results in %s%n",
+                commands, elapsed / 1e6, commands * 1e9 / Math.max(elapsed, 1), output);
+    }
+
+    /**
+     * Helper method to parse one line of the mapped file into the batch, running the batch once it is full.
+     *
+     * @param window the mapped bytes.
+     * @param from the index of the first byte of the line.
+     * @param to the index just past the last byte of the line.
+     * @param out the stream results are written to.
+     * @return true if the line was a Q command and the run should stop, false otherwise.
+     */
+    private boolean apply(MappedByteBuffer window, int from, int to, PrintStream out) {
+        Command command = batch[pending];
+        parser.parse(window, from, to, command);
+        if (command.getType() == Command.Type.EMPTY) {
+            return false;  // Ignore empty lines
+        }
+        if (command.getType() == Command.Type.QUIT) {
+            return true;
+        }
+        commands++;
+        outs[pending++] = out;
+        if (pending == BATCH_SIZE) {
+            flush();
+        }
+        return false;
+    }
+
+    /**
+     * Helper method to run the commands of the batch, in order, stopping at the first that throws.
+     */
+    private void flush() {
+        int ran = scheduler.executeBatch(batch, outs, failures, 0, pending);
+        RuntimeException failure = ran == 0 ? null : failures[ran - 1];
+        for (int i = 0; i < pending; i++) {
+            outs[i] = null;
+        }
+        if (failure != null) {
+            failures[ran - 1] = null;
+            commands -= pending - ran;  // The commands after the failure never ran
+        }
+        pending = 0;
+        if (failure != null) {
+            throw failure;  // As running the commands one at a time would have, before the rest ran
+        }
+    }
+
+    /**
+     * Gets the number of commands applied in the last run.
+     *
+     * @return the number of commands applied.
+     */
+    public long getCommandCount() {
+        return commands;
+    }
+}
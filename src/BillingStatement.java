@@ -1,23 +1,27 @@
 /**
  * Represents a billing statement for a patient in the RU Clinic Scheduler.
  * The statement includes the patient's profile and the total amount charged.
+ * Amounts are kept as exact whole cents so running totals never pick up rounding error.
  *
  * @ Rithi and Shaili
  */
 public class BillingStatement {
     // Fields
     private Profile patientProfile;  // The patient's profile
-    private double totalAmount;      // The total amount charged in the billing statement
+    private long totalCents;         // The total amount charged in the billing statement, in cents
+    private int appointments;        // Number of appointments the total is made of
+
+    private static final int CENTS_PER_DOLLAR = 100;
 
     /**
-     * Constructor to create a billing statement with an initial amount.
+     * Constructor to create a billing statement with nothing charged yet.
      *
      * @param patientProfile the profile of the patient
-     * @param initialAmount the initial amount for the billing statement
      */
-    public BillingStatement(Profile patientProfile, double initialAmount) {
+    public BillingStatement(Profile patientProfile) {
         this.patientProfile = patientProfile;
-        this.totalAmount = initialAmount;
+        this.totalCents = 0;
+        this.appointments = 0;
     }
 
     /**
@@ -32,19 +36,49 @@ public class BillingStatement {
     /**
      * Gets the total amount charged in this billing statement.
      *
-     * @return the total amount charged
+     * @return the total amount charged, in cents
+     */
+    public synchronized long getTotalCents() {
+        return totalCents;
+    }
+
+    /**
+     * Gets the number of appointments charged in this billing statement.
+     *
+     * @return the number of appointments
+     */
+    public synchronized int getAppointmentCount() {
+        return appointments;
+    }
+
+    /**
+     * Adds the charge of one appointment to the total amount in the billing statement.
+     *
+     * @param cents the charge to add, in cents
+     */
+    public synchronized void addCharge(long cents) {
+        this.totalCents += cents;
+        this.appointments++;
+    }
+
+    /**
+     * Takes the charge of one removed appointment off the total amount in the billing statement.
+     *
+     * @param cents the charge to remove, in cents
      */
-    public double getTotalAmount() {
-        return totalAmount;
+    public synchronized void removeCharge(long cents) {
+        this.totalCents -= cents;
+        this.appointments--;
     }
 
     /**
-     * Adds a specified amount to the total amount in the billing statement.
+     * Formats an amount of cents as dollars with thousands separators, for example 1,250.00.
      *
-     * @param amount the amount to add to the total
+     * @param cents the amount in cents
+     * @return the formatted amount
      */
-    public void addAmount(double amount) {
-        this.totalAmount += amount;
+    public static String formatDollars(long cents) {
+        return String.format("%,d.%02d", cents / CENTS_PER_DOLLAR, Math.abs(cents % CENTS_PER_DOLLAR));
     }
 
     /**
@@ -55,6 +89,6 @@ public class BillingStatement {
      */
     @Override
     public String toString() {
-        return String.format("%s: $%.2f", patientProfile, totalAmount);
+        return String.format("%s: $%s", patientProfile, formatDollars(totalCents));
     }
 }
@@ -0,0 +1,223 @@
+/**
+ * Command class - A mutable, reusable holder for one parsed scheduler command.
+ * The CommandParser fills in the primitive fields straight from the input characters, so parsing a
+ * command allocates nothing; strings are only built when a handler asks for a token's text.
+ *
+ * @ Rithi and Shaili
+ */
+public class Command {
+
+    /**
+     * The kinds of commands the scheduler understands.
+     */
+    public enum Type {
+        SCHEDULE, CANCEL, RESCHEDULE, PRINT_BY_APPOINTMENT, PRINT_BY_PATIENT, PRINT_BY_LOCATION,
+        PRINT_BILLING, NEXT_AVAILABLE, STATS, QUIT, EMPTY, INVALID, TOO_LONG
+    }
+
+    // Positions of the tokens of an S, C, or R command
+    public static final int DATE = 1;
+    public static final int TIMESLOT = 2;
+    public static final int FIRST_NAME = 3;
+    public static final int LAST_NAME = 4;
+    public static final int DOB = 5;
+    public static final int PROVIDER = 6;
+    public static final int NEW_TIMESLOT = 6;
+
+    static final int MAX_LENGTH = 1 << 12;  // Longest command line accepted
+    static final int MAX_TOKENS = 16;       // Most comma-separated tokens kept
+
+    // The trimmed line and where each trimmed token starts and ends in it
+    final char[] line = new char[MAX_LENGTH];
+    int length;
+    final int[] tokenStart = new int[MAX_TOKENS];
+    final int[] tokenEnd = new int[MAX_TOKENS];
+    int tokenCount;
+
+    // Parsed fields; a date part or timeslot that is not a number is left as 0
+    Type type;
+    int month;
+    int day;
+    int year;
+    int slot;
+    int dobMonth;
+    int dobDay;
+    int dobYear;
+    int newSlot;
+    Provider provider;  // Null if the provider token names no provider
+
+    /**
+     * Gets the kind of the command.
+     *
+     * @return the command type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the number of comma-separated tokens in the command, including the command name.
+     *
+     * @return the token count.
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * Builds the trimmed text of a token. Only called when a handler needs the text itself,
+     * such as for a name or an error message.
+     *
+     * @param i the position of the token.
+     * @return the text of the token.
+     */
+    public String token(int i) {
+        return new String(line, tokenStart[i], tokenEnd[i] - tokenStart[i]);
+    }
+
+    /**
+     * Checks if a token is a given word, ignoring case, without building the token's text.
+     *
+     * @param i the position of the token.
+     * @param word the word to compare with.
+     * @return true if the token is the word, false otherwise.
+     */
+    public boolean tokenEquals(int i, String word) {
+        int start = tokenStart[i];
+        if (tokenEnd[i] - start != word.length()) {
+            return false;
+        }
+        for (int j = 0; j < word.length(); j++) {
+            if (Profile.fold(line[start + j]) != Profile.fold(word.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the whole trimmed command line.
+     *
+     * @return the text of the command.
+     */
+    public String text() {
+        return new String(line, 0, length);
+    }
+
+    /**
+     * Gets the month of the appointment date.
+     *
+     * @return the month of the appointment date.
+     */
+    public int getMonth() {
+        return month;
+    }
+
+    /**
+     * Gets the day of the appointment date.
+     *
+     * @return the day of the appointment date.
+     */
+    public int getDay() {
+        return day;
+    }
+
+    /**
+     * Gets the year of the appointment date.
+     *
+     * @return the year of the appointment date.
+     */
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * Gets the timeslot number, 1 to 6 when valid.
+     *
+     * @return the timeslot number, 1 to 6 when valid.
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Gets the month of the patient's date of birth.
+     *
+     * @return the month of the patient's date of birth.
+     */
+    public int getDobMonth() {
+        return dobMonth;
+    }
+
+    /**
+     * Gets the day of the patient's date of birth.
+     *
+     * @return the day of the patient's date of birth.
+     */
+    public int getDobDay() {
+        return dobDay;
+    }
+
+    /**
+     * Gets the year of the patient's date of birth.
+     *
+     * @return the year of the patient's date of birth.
+     */
+    public int getDobYear() {
+        return dobYear;
+    }
+
+    /**
+     * Gets the timeslot number an R command moves to.
+     *
+     * @return the timeslot number an R command moves to.
+     */
+    public int getNewSlot() {
+        return newSlot;
+    }
+
+    /**
+     * Gets the provider named by an S or C command, or null if there is none.
+     *
+     * @return the provider named by an S or C command, or null if there is none.
+     */
+    public Provider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Looks up the patient named by the first and last name tokens without allocating the names.
+     *
+     * @param medicalRecord the record to search.
+     * @param dob the patient's date of birth.
+     * @return the patient, or null if no such patient is enrolled.
+     */
+    public Patient findPatient(MedicalRecord medicalRecord, Date dob) {
+        return medicalRecord.findPatient(line, tokenStart[FIRST_NAME], tokenEnd[FIRST_NAME],
+                tokenStart[LAST_NAME], tokenEnd[LAST_NAME], dob);
+    }
+
+    /**
+     * Copies this parsed command into another, so it can be run there without parsing its line again.
+     * Only the characters and tokens in use are copied.
+     *
+     * @param other the command to overwrite.
+     */
+    void copyTo(Command other) {
+        System.arraycopy(line, 0, other.line, 0, length);
+        other.length = length;
+        System.arraycopy(tokenStart, 0, other.tokenStart, 0, tokenCount);
+        System.arraycopy(tokenEnd, 0, other.tokenEnd, 0, tokenCount);
+        other.tokenCount = tokenCount;
+        other.type = type;
+        other.month = month;
+        other.day = day;
+        other.year = year;
+        other.slot = slot;
+        other.dobMonth = dobMonth;
+        other.dobDay = dobDay;
+        other.dobYear = dobYear;
+        other.newSlot = newSlot;
+        other.provider = provider;
+    }
+}
@@ -0,0 +1,274 @@
+import java.nio.ByteBuffer;
+
+/**
+ * CommandParser class - Parses scheduler command lines into a reusable Command without allocating.
+ * The characters of a line are copied into the Command's own buffer, split on commas in place, and the
+ * dates, timeslots, and provider are decoded straight into primitive fields. This replaces split(),
+ * trim(), and repeated Integer.parseInt() calls on every command.
+ *
+ * @ Rithi and Shaili
+ */
+public class CommandParser {
+
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final int MAX_DIGITS = 9;  // More digits than this cannot be a valid date part or timeslot
+
+    private final int[] dateParts = new int[3];  // Reused month, day, and year of the date being decoded;
+                                                 // a parser is therefore used by one thread at a time
+
+    /**
+     * Parses a command line held in a string.
+     *
+     * @param input the command line.
+     * @param command the command to fill in.
+     */
+    public void parse(CharSequence input, Command command) {
+        int length = input.length();
+        if (length > Command.MAX_LENGTH) {
+            tooLong(command);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            command.line[i] = input.charAt(i);
+        }
+        command.length = length;
+        decode(command);
+    }
+
+    /**
+     * Parses a command line held in a range of bytes, such as a memory-mapped command file.
+     * Bytes are read as ISO-8859-1 characters.
+     *
+     * @param bytes the buffer holding the line.
+     * @param from the index of the first byte of the line.
+     * @param to the index just past the last byte of the line.
+     * @param command the command to fill in.
+     */
+    public void parse(ByteBuffer bytes, int from, int to, Command command) {
+        int length = to - from;
+        if (length > Command.MAX_LENGTH) {
+            tooLong(command);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            command.line[i] = (char) (bytes.get(from + i) & 0xFF);
+        }
+        command.length = length;
+        decode(command);
+    }
+
+    /**
+     * Marks a command as a line longer than Command.MAX_LENGTH. Such a line is rejected whole, never cut short
+     * and run as a different command.
+     *
+     * @param command the command to fill in.
+     */
+    public void tooLong(Command command) {
+        command.length = 0;
+        command.tokenCount = 0;
+        command.provider = null;
+        command.type = Command.Type.TOO_LONG;
+    }
+
+    /**
+     * Helper method to trim the copied line, split it into tokens, and decode the fields.
+     *
+     * @param command the command whose line has been copied.
+     */
+    private void decode(Command command) {
+        char[] line = command.line;
+        int begin = skipSpace(line, 0, command.length);
+        int end = trimEnd(line, begin, command.length);
+        command.tokenCount = 0;
+        command.provider = null;
+        command.slot = command.newSlot = 0;
+        command.month = command.day = command.year = 0;
+        command.dobMonth = command.dobDay = command.dobYear = 0;
+        if (begin == end) {
+            command.type = Command.Type.EMPTY;
+            return;
+        }
+
+        // Split on commas, trimming each token
+        int start = begin;
+        for (int i = begin; i <= end && command.tokenCount < Command.MAX_TOKENS; i++) {
+            if (i == end || line[i] == ',') {
+                int tokenStart = skipSpace(line, start, i);
+                command.tokenStart[command.tokenCount] = tokenStart;
+                command.tokenEnd[command.tokenCount] = trimEnd(line, tokenStart, i);
+                command.tokenCount++;
+                start = i + 1;
+            }
+        }
+        // Like String.split(), drop trailing empty tokens
+        while (command.tokenCount > 1 && command.tokenStart[command.tokenCount - 1] == command.tokenEnd[command.tokenCount - 1]) {
+            command.tokenCount--;
+        }
+
+        command.type = typeOf(command);
+        if (command.type == Command.Type.QUIT && end - begin != 1) {
+            command.type = Command.Type.INVALID;  // Only a bare Q quits
+        }
+        if (command.type == Command.Type.SCHEDULE || command.type == Command.Type.CANCEL
+                || command.type == Command.Type.RESCHEDULE) {
+            decodeAppointment(command);
+        }
+    }
+
+    /**
+     * Helper method to decode the date, timeslot, date of birth, and provider or new timeslot tokens.
+     *
+     * @param command the command being parsed.
+     */
+    private void decodeAppointment(Command command) {
+        if (command.tokenCount <= Command.PROVIDER) {
+            return;  // Too few tokens; the handler reports the command as invalid
+        }
+        int[] date = decodeDate(command, Command.DATE);
+        command.month = date[0];
+        command.day = date[1];
+        command.year = date[2];
+        date = decodeDate(command, Command.DOB);
+        command.dobMonth = date[0];
+        command.dobDay = date[1];
+        command.dobYear = date[2];
+        command.slot = number(command.line, command.tokenStart[Command.TIMESLOT], command.tokenEnd[Command.TIMESLOT]);
+        if (command.type == Command.Type.RESCHEDULE) {
+            command.newSlot = number(command.line, command.tokenStart[Command.NEW_TIMESLOT], command.tokenEnd[Command.NEW_TIMESLOT]);
+        } else {
+            command.provider = provider(command.line, command.tokenStart[Command.PROVIDER], command.tokenEnd[Command.PROVIDER]);
+        }
+    }
+
+    /**
+     * Helper method to decode a mm/dd/yyyy token. Parts that are missing or not numbers are left as 0,
+     * which makes the date invalid.
+     *
+     * @param command the command being parsed.
+     * @param token the position of the date token.
+     * @return the reused array of month, day, and year.
+     */
+    private int[] decodeDate(Command command, int token) {
+        char[] line = command.line;
+        int end = command.tokenEnd[token];
+        int part = 0;
+        int partStart = command.tokenStart[token];
+        for (int i = partStart; i <= end && part < dateParts.length; i++) {
+            if (i == end || line[i] == '/') {
+                dateParts[part++] = number(line, skipSpace(line, partStart, i), trimEnd(line, partStart, i));
+                partStart = i + 1;
+            }
+        }
+        while (part < dateParts.length) {
+            dateParts[part++] = 0;  // Missing parts
+        }
+        return dateParts;
+    }
+
+    /**
+     * Helper method to decode the command name token.
+     *
+     * @param command the command being parsed.
+     * @return the command type.
+     */
+    private static Command.Type typeOf(Command command) {
+        char[] line = command.line;
+        int start = command.tokenStart[0];
+        int length = command.tokenEnd[0] - start;
+        if (length == 1) {
+            switch (line[start]) {
+                case 'S': return Command.Type.SCHEDULE;
+                case 'C': return Command.Type.CANCEL;
+                case 'R': return Command.Type.RESCHEDULE;
+                case 'N': return Command.Type.NEXT_AVAILABLE;
+                case 'Q': return Command.Type.QUIT;
+                default: return Command.Type.INVALID;
+            }
+        }
+        if (length == 2 && line[start] == 'P') {
+            switch (line[start + 1]) {
+                case 'A': return Command.Type.PRINT_BY_APPOINTMENT;
+                case 'P': return Command.Type.PRINT_BY_PATIENT;
+                case 'L': return Command.Type.PRINT_BY_LOCATION;
+                case 'S': return Command.Type.PRINT_BILLING;
+                default: return Command.Type.INVALID;
+            }
+        }
+        if (length == 2 && line[start] == 'S' && line[start + 1] == 'T') {
+            return Command.Type.STATS;
+        }
+        return Command.Type.INVALID;
+    }
+
+    /**
+     * Helper method to decode a non-negative decimal number.
+     *
+     * @param line the characters.
+     * @param start the index of the first digit.
+     * @param end the index just past the last digit.
+     * @return the number, or 0 if the range is empty, too long, or not all digits.
+     */
+    private static int number(char[] line, int start, int end) {
+        if (start == end || end - start > MAX_DIGITS) {
+            return 0;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = line[i];
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Helper method to find the provider whose name matches a range of characters, ignoring case.
+     *
+     * @param line the characters.
+     * @param start the index of the first character of the name.
+     * @param end the index just past the last character of the name.
+     * @return the provider, or null if no provider has that name.
+     */
+    private static Provider provider(char[] line, int start, int end) {
+        for (Provider provider : PROVIDERS) {
+            String name = provider.getName();
+            if (name.length() != end - start) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length() && Profile.fold(name.charAt(i)) == Profile.fold(line[start + i])) i++;
+            if (i == name.length()) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to skip leading whitespace, matching String.trim().
+     *
+     * @param line the characters.
+     * @param start the index to start from.
+     * @param end the index to stop at.
+     * @return the index of the first non-whitespace character, or end.
+     */
+    private static int skipSpace(char[] line, int start, int end) {
+        while (start < end && line[start] <= ' ') start++;
+        return start;
+    }
+
+    /**
+     * Helper method to skip trailing whitespace, matching String.trim().
+     *
+     * @param line the characters.
+     * @param start the index to stop at.
+     * @param end the index just past the range.
+     * @return the index just past the last non-whitespace character, or start.
+     */
+    private static int trimEnd(char[] line, int start, int end) {
+        while (end > start && line[end - 1] <= ' ') end--;
+        return end;
+    }
+}
@@ -0,0 +1,398 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * CommandPipeline class - Runs the commands of many threads on one writer thread, in a fixed order.
+ * A producer thread parses its command line into its own reused Command, claims the next sequence number of a
+ * ring of slots with one atomic increment, copies the command into that slot's reused Command, and publishes
+ * it. The writer thread runs the published commands strictly in sequence order, so the calendar is only ever
+ * changed by one thread and the journal records come out in the order the commands were claimed. Each slot also holds its command's results, which
+ * the producer copies to its own stream once the writer marks the slot done; then the slot is free for the
+ * command one lap later. The writer takes the published commands in batches, runs each batch with
+ * Scheduler.executeBatch(), and syncs the journal once per batch before any of its results are released.
+ * Nothing is locked on the way in or out; a producer or the writer only parks once a short spin finds nothing
+ * to do.
+ * Reports (PA, PP, PL, PS, and ST) change nothing, so a producer runs them itself, straight into its own stream:
+ * no slot ever holds a whole report, and a long report does not hold up the commands queued behind it. A
+ * producer's report still sees every command it ran before, since those have finished when it starts.
+ * Q commands are not special: a producer that reads them handles them itself, as the console does.
+ *
+ * @ Rithi and Shaili
+ */
+public class CommandPipeline implements AutoCloseable {
+
+    private final Scheduler scheduler;                  // The scheduler the writer runs every command on
+    private final Slot[] slots;                         // The ring, by sequence number modulo its length
+    private final AtomicLongArray states;               // State of each slot, PADDING entries apart
+    private final int mask;                             // Number of slots minus one
+    private final AtomicLong claimed = new AtomicLong();  // Next sequence number to hand to a producer
+    private final Thread writer;                        // The only thread that runs commands
+    private final int batchSize;                        // Most commands run before their results are released
+    private final long lingerNanos;                     // Longest wait for a batch to fill once it has begun
+    private volatile boolean writerParked;              // True while the writer waits for a command
+    private volatile boolean running = true;            // False once close() is called
+    // Each producer thread reuses its own parser and command
+    private final ThreadLocal<CommandParser> parser = ThreadLocal.withInitial(CommandParser::new);
+    private final ThreadLocal<Command> command = ThreadLocal.withInitial(Command::new);
+
+    // A slot whose command has sequence number s goes through the states s (free), s + 1 (published),
+    // s + 2 (done), and then s + slots.length, which is free for the command one lap later
+    private static final int PUBLISHED = 1;
+    private static final int DONE = 2;
+    private static final int MIN_SLOTS = 4;      // Fewest slots for the states of one lap to differ from the next
+    private static final int PADDING = 8;        // Longs between the states of two slots, a cache line
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    // Checks before a waiting thread parks; spinning only pays off when another CPU runs the other side
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 64 : 0;
+    private static final long PARK_NANOS = 50_000;
+    private static final int RESULT_BUFFER_SIZE = 256;
+
+    /**
+     * Constructor to create a pipeline and start its writer thread.
+     *
+     * @param scheduler the scheduler to run commands on; its journal should be set not to sync each command,
+     *                  since the writer syncs once per batch.
+     * @param capacity the number of commands that may be in flight at once; rounded up to a power of two.
+     */
+    public CommandPipeline(Scheduler scheduler, int capacity) {
+        this(scheduler, capacity, DEFAULT_BATCH_SIZE, 0);
+    }
+
+    /**
+     * Constructor to create a pipeline that groups commands into batches, and start its writer thread.
+     * Once a command is published, the writer waits up to lingerNanos for more, or until batchSize are
+     * waiting, then runs them with one pass of S command checks, one pass of patient lookups, and one
+     * journal sync. A longer wait gives larger batches at the cost of each command's latency.
+     *
+     * @param scheduler the scheduler to run commands on; its journal should be set not to sync each command,
+     *                  since the writer syncs once per batch.
+     * @param capacity the number of commands that may be in flight at once; rounded up to a power of two.
+     * @param batchSize the most commands in one batch; at most the capacity.
+     * @param lingerNanos the longest time to wait for a batch to fill, or 0 to run whatever is waiting.
+     */
+    public CommandPipeline(Scheduler scheduler, int capacity, int batchSize, long lingerNanos) {
+        this.scheduler = scheduler;
+        int count = Integer.highestOneBit(Math.max(capacity, MIN_SLOTS) - 1) << 1;
+        this.batchSize = Math.max(1, Math.min(batchSize, count));
+        this.lingerNanos = Math.max(0, lingerNanos);
+        this.slots = new Slot[count];
+        this.states = new AtomicLongArray(count * PADDING);
+        for (int i = 0; i < count; i++) {
+            slots[i] = new Slot();
+            states.set(i * PADDING, i);  // Free for the first lap
+        }
+        this.mask = count - 1;
+        this.writer = new Thread(this::write, "scheduler-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Runs one command line on the writer thread and writes its results to a stream. Safe to call from
+     * many threads at once; returns once the command has run and its journal records are on disk.
+     *
+     * @param line the command line.
+     * @param out the stream to write the results to.
+     */
+    public void execute(CharSequence line, PrintStream out) {
+        Command command = this.command.get();
+        parser.get().parse(line, command);
+        execute(command, out);
+    }
+
+    /**
+     * Runs one command line held in a range of a byte buffer, as execute(CharSequence, PrintStream) does.
+     *
+     * @param bytes the buffer holding the line.
+     * @param from the index of the first byte of the line.
+     * @param to the index just past the last byte of the line.
+     * @param out the stream to write the results to.
+     */
+    public void execute(ByteBuffer bytes, int from, int to, PrintStream out) {
+        Command command = this.command.get();
+        parser.get().parse(bytes, from, to, command);
+        execute(command, out);
+    }
+
+    /**
+     * Runs one already parsed command, as execute(CharSequence, PrintStream) does. A report runs on the
+     * calling thread; any other command is copied into the ring, so the caller may reuse it once this returns.
+     *
+     * @param command the parsed command.
+     * @param out the stream to write the results to.
+     */
+    public void execute(Command command, PrintStream out) {
+        if (isReport(command)) {
+            checkOpen();
+            scheduler.execute(command, out);
+            return;
+        }
+        long sequence = claim();
+        command.copyTo(slots[(int) sequence & mask].command);
+        complete(sequence, out);
+    }
+
+    /**
+     * Stops the writer once it has run every command already published. Call after every producer has
+     * returned; a command submitted later is never run.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method to check if a command is a report, which only reads the calendar, the medical record,
+     * the ledger, or the command statistics.
+     *
+     * @param command the parsed command.
+     * @return true if the command is PA, PP, PL, PS, or ST, false otherwise.
+     */
+    private static boolean isReport(Command command) {
+        switch (command.getType()) {
+            case PRINT_BY_APPOINTMENT:
+            case PRINT_BY_PATIENT:
+            case PRINT_BY_LOCATION:
+            case PRINT_BILLING:
+            case STATS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Helper method to refuse a command once the pipeline is closed.
+     */
+    private void checkOpen() {
+        if (!running) {
+            throw new IllegalStateException("Command pipeline is closed");
+        }
+    }
+
+    /**
+     * Helper method to claim the next sequence number and wait until its slot is free.
+     *
+     * @return the sequence number.
+     */
+    private long claim() {
+        checkOpen();
+        long sequence = claimed.getAndIncrement();
+        await(stateIndex(sequence), sequence);  // The command one lap earlier has handed back its results
+        return sequence;
+    }
+
+    /**
+     * Helper method to publish a parsed command, wait for the writer to run it, copy its results, and free
+     * its slot.
+     *
+     * @param sequence the sequence number of the command.
+     * @param out the stream to write the results to.
+     */
+    private void complete(long sequence, PrintStream out) {
+        Slot slot = slots[(int) sequence & mask];
+        int index = stateIndex(sequence);
+        slot.producer = Thread.currentThread();
+        states.set(index, sequence + PUBLISHED);
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        await(index, sequence + DONE);
+        RuntimeException failure = slot.failure;
+        if (failure == null) {
+            out.write(slot.buffer(), 0, slot.results.size());
+        }
+        slot.results.reset();
+        slot.failure = null;
+        slot.producer = null;
+        states.set(index, sequence + slots.length);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Helper method to wait until a slot reaches a state: spin briefly, then park until woken or a short
+     * time has passed.
+     *
+     * @param index the index of the slot's state.
+     * @param state the state to wait for.
+     */
+    private void await(int index, long state) {
+        for (int spins = 0; states.get(index) != state; spins++) {
+            if (spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Helper method to find the state of the slot of a sequence number.
+     *
+     * @param sequence the sequence number.
+     * @return the index of the slot's state.
+     */
+    private int stateIndex(long sequence) {
+        return ((int) sequence & mask) * PADDING;
+    }
+
+    /**
+     * The writer thread's loop: collect a batch of published commands, run it, then sync the journal and
+     * release the batch's results.
+     */
+    private void write() {
+        Command[] commands = new Command[batchSize];
+        PrintStream[] outs = new PrintStream[batchSize];
+        RuntimeException[] failures = new RuntimeException[batchSize];
+        long next = 0;  // Sequence number of the next command to run
+        while (true) {
+            int count = collect(next);
+            if (count == 0) {
+                return;  // Closed, and every published command has run and been released
+            }
+            for (int i = 0; i < count; i++) {
+                Slot slot = slots[(int) (next + i) & mask];
+                commands[i] = slot.command;
+                outs[i] = slot.out;
+                failures[i] = null;
+            }
+            // A command that throws fails alone: the commands after it belong to other producers, so they
+            // run as they would have on their own
+            for (int ran = 0; ran < count; ) {
+                ran = scheduler.executeBatch(commands, outs, failures, ran, count);
+            }
+            for (int i = 0; i < count; i++) {
+                slots[(int) (next + i) & mask].failure = failures[i];  // Reported to the producer
+            }
+            next = release(next, next + count);
+        }
+    }
+
+    /**
+     * Helper method to wait for the command with a sequence number to be published, then gather the
+     * commands published right after it: up to batchSize, waiting at most lingerNanos for more to arrive.
+     *
+     * @param next the sequence number of the first command of the batch.
+     * @return the number of commands in the batch, or 0 if the pipeline was closed and none is waiting.
+     */
+    private int collect(long next) {
+        int index = stateIndex(next);
+        for (int idle = 0; states.get(index) != next + PUBLISHED; idle++) {
+            if (!running) {
+                return 0;
+            }
+            if (idle < SPINS) {
+                Thread.onSpinWait();
+                continue;
+            }
+            writerParked = true;
+            if (states.get(index) != next + PUBLISHED && running) {
+                LockSupport.park(this);
+            }
+            writerParked = false;
+        }
+        int count = 1;
+        long deadline = System.nanoTime() + lingerNanos;
+        while (count < batchSize) {
+            long sequence = next + count;
+            if (states.get(stateIndex(sequence)) == sequence + PUBLISHED) {
+                count++;
+                continue;
+            }
+            long left = deadline - System.nanoTime();
+            if (left <= 0 || !running) {
+                break;
+            }
+            LockSupport.parkNanos(this, left);  // Producers publishing meanwhile do not wake the writer
+        }
+        return count;
+    }
+
+    /**
+     * Helper method to make the journal records of a run of commands durable, then mark each done and wake
+     * its producer.
+     *
+     * @param from the sequence number of the first command of the run.
+     * @param to the sequence number just past the last.
+     * @return to.
+     */
+    private long release(long from, long to) {
+        RuntimeException failure = null;
+        try {
+            scheduler.syncJournal();
+        } catch (RuntimeException e) {
+            failure = e;  // No command of the run may report success
+        }
+        for (long sequence = from; sequence < to; sequence++) {
+            Slot slot = slots[(int) sequence & mask];
+            if (failure != null && slot.failure == null) {
+                slot.failure = failure;
+            }
+            Thread producer = slot.producer;
+            states.set(stateIndex(sequence), sequence + DONE);
+            LockSupport.unpark(producer);
+        }
+        return to;
+    }
+
+    /**
+     * One entry of the ring: a command, the results it printed, and the producer waiting for them.
+     */
+    private static class Slot {
+
+        private final Command command = new Command();  // The command, parsed by its producer
+        private final Results results = new Results();  // What the command printed
+        private final PrintStream out = new PrintStream(results, false);
+        private Thread producer;                        // Thread to wake once the results are released
+        private RuntimeException failure;               // What the command or the journal sync threw, if anything
+
+        /**
+         * Gets the bytes of the results, without copying them.
+         *
+         * @return the results buffer; only its first results.size() bytes are valid.
+         */
+        byte[] buffer() {
+            return results.bytes();
+        }
+    }
+
+    /**
+     * A results buffer whose bytes can be read without copying them.
+     */
+    private static class Results extends ByteArrayOutputStream {
+
+        /**
+         * Constructor to create an empty buffer.
+         */
+        Results() {
+            super(RESULT_BUFFER_SIZE);
+        }
+
+        /**
+         * Gets the buffer.
+         *
+         * @return the buffer; only its first size() bytes are valid.
+         */
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * CommandStats class - Latency histograms and outcome counters for the commands a Scheduler runs, along with
+ * the sizes of its structures. Each command type has its own LatencyHistogram, and each (command type, reason)
+ * pair its own reject counter; a command that is not rejected counts as succeeded. Recording takes a few atomic
+ * increments and never allocates. The statistics are printed by the ST command and exposed through JMX as
+ * a CommandStatsMBean.
+ *
+ * @ Rithi and Shaili
+ */
+public class CommandStats implements CommandStatsMBean {
+
+    /**
+     * The reasons a command is rejected without changing the calendar.
+     */
+    public enum Reject {
+        INVALID_COMMAND, INVALID_TIMESLOT, INVALID_DATE, DOB_AFTER_TODAY, DATE_NOT_AFTER_TODAY,
+        DATE_BEYOND_SIX_MONTHS, WEEKEND, UNKNOWN_PROVIDER, PROVIDER_BUSY, DUPLICATE, NOT_FOUND,
+        INVALID_FILTER, NO_AVAILABILITY, LINE_TOO_LONG, VISIT_MADE
+    }
+
+    private final AppointmentStore appointments;  // Calendar whose size is reported
+    private final MedicalRecord medicalRecord;    // Patients whose number is reported
+    private final Ledger ledger;                  // Billing statements whose number is reported
+    private final LatencyHistogram[] latencies;   // Latency histogram per command type ordinal
+    private final AtomicLongArray rejects;        // Reject count per command type ordinal and reason ordinal
+
+    private static final Command.Type[] TYPES = Command.Type.values();
+    private static final Reject[] REJECTS = Reject.values();
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * Constructor to create empty statistics for a scheduler's structures.
+     *
+     * @param appointments the scheduler's calendar.
+     * @param medicalRecord the scheduler's medical record.
+     * @param ledger the scheduler's ledger.
+     */
+    public CommandStats(AppointmentStore appointments, MedicalRecord medicalRecord, Ledger ledger) {
+        this.appointments = appointments;
+        this.medicalRecord = medicalRecord;
+        this.ledger = ledger;
+        this.latencies = new LatencyHistogram[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+        this.rejects = new AtomicLongArray(TYPES.length * REJECTS.length);
+    }
+
+    /**
+     * Records how long a command took.
+     *
+     * @param type the command type.
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(Command.Type type, long nanos) {
+        latencies[type.ordinal()].record(nanos);
+    }
+
+    /**
+     * Counts a command rejected for a reason.
+     *
+     * @param type the command type.
+     * @param reason the reason it was rejected.
+     */
+    public void reject(Command.Type type, Reject reason) {
+        rejects.incrementAndGet(type.ordinal() * REJECTS.length + reason.ordinal());
+    }
+
+    /**
+     * Helper method to count the rejected commands of a type.
+     *
+     * @param type the command type.
+     * @return the number of rejected commands for every reason.
+     */
+    private long rejected(Command.Type type) {
+        long total = 0;
+        for (int r = 0; r < REJECTS.length; r++) {
+            total += rejects.get(type.ordinal() * REJECTS.length + r);
+        }
+        return total;
+    }
+
+    @Override
+    public int getAppointmentCount() {
+        return appointments.size();
+    }
+
+    @Override
+    public int getPatientCount() {
+        return medicalRecord.size();
+    }
+
+    @Override
+    public int getBillingStatementCount() {
+        return ledger.size();
+    }
+
+    @Override
+    public long getCount(String command) {
+        return latencies[Command.Type.valueOf(command).ordinal()].getCount();
+    }
+
+    @Override
+    public long getSucceeded(String command) {
+        Command.Type type = Command.Type.valueOf(command);
+        return Math.max(0, latencies[type.ordinal()].getCount() - rejected(type));
+    }
+
+    @Override
+    public long getRejected(String command, String reason) {
+        return rejects.get(Command.Type.valueOf(command).ordinal() * REJECTS.length + Reject.valueOf(reason).ordinal());
+    }
+
+    @Override
+    public double getLatencyMicros(String command, double percentile) {
+        return latencies[Command.Type.valueOf(command).ordinal()].getValueAtPercentile(percentile) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("** Command statistics **").append(System.lineSeparator());
+        for (Command.Type type : TYPES) {
+            LatencyHistogram latency = latencies[type.ordinal()];
+            long count = latency.getCount();
+            if (count == 0) {
+                continue;
+            }
+            report.append(String.format("%s: %d run, %d succeeded; p50 %.1f us, p99 %.1f us, p999 %.1f us, max %.1f us%n",
+                    type, count, Math.max(0, count - rejected(type)),
+                    latency.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                    latency.getValueAtPercentile(99) / NANOS_PER_MICRO,
+                    latency.getValueAtPercentile(99.9) / NANOS_PER_MICRO,
+                    latency.getMax() / NANOS_PER_MICRO));
+            for (Reject reason : REJECTS) {
+                long rejectCount = rejects.get(type.ordinal() * REJECTS.length + reason.ordinal());
+                if (rejectCount > 0) {
+                    report.append(String.format("  rejected %s: %d%n", reason, rejectCount));
+                }
+            }
+        }
+        report.append(String.format("Sizes: %d appointments, %d patients, %d billing statements%n",
+                getAppointmentCount(), getPatientCount(), getBillingStatementCount()));
+        report.append("** end of list **").append(System.lineSeparator());
+        return report.toString();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * CommandStatsMBean interface - The command statistics of a Scheduler as seen through JMX.
+ * Commands are named by their Command.Type, such as SCHEDULE, and reject reasons by their
+ * CommandStats.Reject, such as PROVIDER_BUSY.
+ *
+ * @ Rithi and Shaili
+ */
+public interface CommandStatsMBean {
+
+    /**
+     * Gets the number of appointments on the calendar.
+     *
+     * @return the number of appointments.
+     */
+    int getAppointmentCount();
+
+    /**
+     * Gets the number of patients in the medical record.
+     *
+     * @return the number of patients.
+     */
+    int getPatientCount();
+
+    /**
+     * Gets the number of billing statements in the ledger.
+     *
+     * @return the number of billing statements.
+     */
+    int getBillingStatementCount();
+
+    /**
+     * Gets the statistics report the ST command prints.
+     *
+     * @return the report.
+     */
+    String getReport();
+
+    /**
+     * Gets the number of commands of a type that were run.
+     *
+     * @param command the name of the command type.
+     * @return the number of commands run.
+     */
+    long getCount(String command);
+
+    /**
+     * Gets the number of commands of a type that succeeded.
+     *
+     * @param command the name of the command type.
+     * @return the number of commands that were not rejected.
+     */
+    long getSucceeded(String command);
+
+    /**
+     * Gets the number of commands of a type rejected for a reason.
+     *
+     * @param command the name of the command type.
+     * @param reason the name of the reject reason.
+     * @return the number of commands rejected for the reason.
+     */
+    long getRejected(String command, String reason);
+
+    /**
+     * Gets the latency of commands of a type at a percentile.
+     *
+     * @param command the name of the command type.
+     * @param percentile the percentile, from 0 to 100.
+     * @return the latency in microseconds.
+     */
+    double getLatencyMicros(String command, double percentile);
+}
@@ -1,13 +1,15 @@
+import java.util.Calendar;
+
 /**
  * Represents a date in the RU Clinic Scheduler.
  * Includes methods to validate the date and perform various date-related comparisons.
+ * A date is stored as a single int, the number of days since 1/1/1970 (its epoch day), so comparing,
+ * hashing, and the weekend/today/six-month checks are all plain integer arithmetic.
  *
  * @authors Rithi and Shaili
  */
 public class Date implements Comparable<Date> {
-    private int year;   // Year of the date
-    private int month;  // Month of the date
-    private int day;    // Day of the date
+    private final int epochDay;  // Days since 1/1/1970, or INVALID if the date is not a calendar date
 
     // Constants for date validation
     private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };  // Days in each month
@@ -15,6 +17,23 @@ public class Date implements Comparable<Date> {
     private static final int QUADRENNIAL = 4;
     private static final int CENTENNIAL = 100;
     private static final int QUATERCENTENNIAL = 400;
+    private static final int MIN_YEAR = 1;
+    private static final int MAX_YEAR = 9999;
+    private static final int INVALID = Integer.MIN_VALUE;
+
+    // Constants for the epoch-day arithmetic
+    private static final int DAYS_PER_ERA = 146097;      // Days in 400 years
+    private static final int DAYS_BEFORE_EPOCH = 719468; // Days from 3/1/0000 to 1/1/1970
+    private static final int DAYS_PER_WEEK = 7;
+    private static final int EPOCH_DAY_OF_WEEK = 3;      // 1/1/1970 was a Thursday, counting Monday as 0
+    private static final int SATURDAY = 5;
+    private static final int SIX_MONTHS = 6;
+
+    private static volatile Window window;  // Cached today and six-month window, replaced as a whole
+
+    static {
+        refreshToday();
+    }
 
     /**
      * Constructor to create a Date object.
@@ -24,9 +43,60 @@ public class Date implements Comparable<Date> {
      * @param day the day of the date
      */
     public Date(int year, int month, int day) {
-        this.year = year;
-        this.month = month;
-        this.day = day;
+        this.epochDay = isValid(year, month, day) ? toEpochDay(year, month, day) : INVALID;
+    }
+
+    /**
+     * Constructor to create a Date object from an epoch day.
+     *
+     * @param epochDay the number of days since 1/1/1970
+     */
+    public Date(int epochDay) {
+        this.epochDay = epochDay;
+    }
+
+    /**
+     * Recomputes the cached today and six-months-from-today values from the system clock.
+     * They are computed once when the class loads, and Main calls this again at each midnight. Both values
+     * are published in one Window object, so a reader never sees one day's today with another's window.
+     */
+    public static void refreshToday() {
+        Calendar calendar = Calendar.getInstance();
+        int today = toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+        calendar.add(Calendar.MONTH, SIX_MONTHS);
+        window = new Window(today,
+                toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)));
+    }
+
+    /**
+     * Gets the number of milliseconds from now until the next midnight of the system clock's time zone.
+     * @return the delay until the day changes
+     */
+    public static long millisUntilTomorrow() {
+        Calendar midnight = Calendar.getInstance();
+        long now = midnight.getTimeInMillis();
+        midnight.add(Calendar.DAY_OF_MONTH, 1);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        return Math.max(0, midnight.getTimeInMillis() - now);
+    }
+
+    /**
+     * Gets today's date from the cached value.
+     * @return today's date
+     */
+    public static Date today() {
+        return new Date(window.today);
+    }
+
+    /**
+     * Gets the last day within six months of today from the cached value.
+     * @return the last date an appointment can be booked for
+     */
+    public static Date sixMonthsFromNow() {
+        return new Date(window.sixMonthsFromNow);
     }
 
     /**
@@ -34,7 +104,8 @@ public class Date implements Comparable<Date> {
      * @return the year of the date
      */
     public int getYear() {
-        return year;
+        int yearOfMarch = yearOfMarch(epochDay);
+        return monthOf(epochDay, yearOfMarch) <= FEBRUARY ? yearOfMarch + 1 : yearOfMarch;
     }
 
     /**
@@ -42,7 +113,7 @@ public class Date implements Comparable<Date> {
      * @return the month of the date
      */
     public int getMonth() {
-        return month;
+        return monthOf(epochDay, yearOfMarch(epochDay));
     }
 
     /**
@@ -50,7 +121,70 @@ public class Date implements Comparable<Date> {
      * @return the day of the date
      */
     public int getDay() {
-        return day;
+        int dayOfYear = dayOfMarchYear(epochDay, yearOfMarch(epochDay));
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        return dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+    }
+
+    /**
+     * Gets the number of days between 1/1/1970 and this date, negative for earlier dates.
+     * @return the epoch day of the date
+     */
+    public int toEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Counts the days between 1/1/1970 and a valid calendar date.
+     * @param year the year of the date
+     * @param month the month of the date
+     * @param day the day of the date
+     * @return the epoch day of the date
+     */
+    private static int toEpochDay(int year, int month, int day) {
+        // Count years from March so the leap day falls at the end of the year
+        int y = month <= FEBRUARY ? year - 1 : year;
+        int era = Math.floorDiv(y, QUATERCENTENNIAL);
+        int yearOfEra = y - era * QUATERCENTENNIAL;
+        int dayOfYear = (153 * (month > FEBRUARY ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / QUADRENNIAL - yearOfEra / CENTENNIAL + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_BEFORE_EPOCH;
+    }
+
+    /**
+     * Finds the year, counted from March, that an epoch day falls in.
+     * @param epochDay the epoch day
+     * @return the March-based year
+     */
+    private static int yearOfMarch(int epochDay) {
+        int days = epochDay + DAYS_BEFORE_EPOCH;
+        int era = Math.floorDiv(days, DAYS_PER_ERA);
+        int dayOfEra = days - era * DAYS_PER_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DAYS_PER_ERA - 1)) / 365;
+        return yearOfEra + era * QUATERCENTENNIAL;
+    }
+
+    /**
+     * Finds the day within its March-based year that an epoch day falls on, counting March 1 as 0.
+     * @param epochDay the epoch day
+     * @param yearOfMarch the March-based year of the epoch day
+     * @return the day of the March-based year
+     */
+    private static int dayOfMarchYear(int epochDay, int yearOfMarch) {
+        int yearOfEra = Math.floorMod(yearOfMarch, QUATERCENTENNIAL);
+        int dayOfEra = Math.floorMod(epochDay + DAYS_BEFORE_EPOCH, DAYS_PER_ERA);
+        return dayOfEra - (365 * yearOfEra + yearOfEra / QUADRENNIAL - yearOfEra / CENTENNIAL);
+    }
+
+    /**
+     * Finds the calendar month an epoch day falls in.
+     * @param epochDay the epoch day
+     * @param yearOfMarch the March-based year of the epoch day
+     * @return the month, from 1 to 12
+     */
+    private static int monthOf(int epochDay, int yearOfMarch) {
+        int monthIndex = (5 * dayOfMarchYear(epochDay, yearOfMarch) + 2) / 153;  // 0 is March
+        return monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
     }
 
     /**
@@ -58,8 +192,19 @@ public class Date implements Comparable<Date> {
      * @return true if the date is valid, false otherwise
      */
     public boolean isValid() {
-        // Check if month is valid
-        if (month < 1 || month > 12) {
+        return epochDay != INVALID;
+    }
+
+    /**
+     * Checks if a year, month, and day make a valid calendar date between the years 1 and 9999.
+     * @param year the year of the date
+     * @param month the month of the date
+     * @param day the day of the date
+     * @return true if the date is valid, false otherwise
+     */
+    private static boolean isValid(int year, int month, int day) {
+        // Check if year and month are valid
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12) {
             return false;
         }
 
@@ -80,13 +225,7 @@ public class Date implements Comparable<Date> {
      */
     @Override
     public int compareTo(Date other) {
-        if (this.year != other.year) {
-            return this.year - other.year;  // Compare by year
-        }
-        if (this.month != other.month) {
-            return this.month - other.month;  // Compare by month
-        }
-        return this.day - other.day;  // Compare by day
+        return Integer.compare(this.epochDay, other.epochDay);
     }
 
     /**
@@ -98,8 +237,24 @@ public class Date implements Comparable<Date> {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
-        Date other = (Date) obj;
-        return year == other.year && month == other.month && day == other.day;
+        return epochDay == ((Date) obj).epochDay;
+    }
+
+    /**
+     * Returns a hash code consistent with equals().
+     * @return the hash code of the date
+     */
+    @Override
+    public int hashCode() {
+        return epochDay;
+    }
+
+    /**
+     * Packs the date into a single int that is unique per calendar date.
+     * @return the packed date, which is its epoch day
+     */
+    public int pack() {
+        return epochDay;
     }
 
     /**
@@ -109,7 +264,7 @@ public class Date implements Comparable<Date> {
      */
     @Override
     public String toString() {
-        return String.format("%d/%d/%04d", month, day, year);
+        return String.format("%d/%d/%04d", getMonth(), getDay(), getYear());
     }
 
     /**
@@ -125,21 +280,59 @@ public class Date implements Comparable<Date> {
         System.out.println(date2.isValid()); // Expected: true
     }
 
+    /**
+     * Checks if the date falls on a Saturday or Sunday.
+     * @param appointmentDate unused; the check is on this date
+     * @return true if the date is a weekend day, false otherwise
+     */
     public boolean isWeekend(
             Date appointmentDate) {
-        return false;
+        return Math.floorMod(epochDay + EPOCH_DAY_OF_WEEK, DAYS_PER_WEEK) >= SATURDAY;
     }
 
+    /**
+     * Checks if the date is no later than six months from today.
+     * @param appointmentDate unused; the check is on this date
+     * @return true if the date is within six months, false otherwise
+     */
     public boolean isWithinSixMonths(
             Date appointmentDate) {
-        return false;
+        return epochDay <= window.sixMonthsFromNow;
     }
 
+    /**
+     * Checks if the date is today or earlier.
+     * @return true if the date is today or before today, false otherwise
+     */
     public boolean isBeforeToday() {
-        return false;
+        return epochDay <= window.today;
     }
 
+    /**
+     * Checks if the date is later than today.
+     * @return true if the date is after today, false otherwise
+     */
     public boolean isAfterToday() {
-        return false;
+        return epochDay > window.today;
+    }
+
+    /**
+     * The cached today and the last day within six months of it, computed together.
+     */
+    private static class Window {
+
+        private final int today;             // Epoch day of today
+        private final int sixMonthsFromNow;  // Epoch day of the last day within six months of today
+
+        /**
+         * Constructor to create a window.
+         *
+         * @param today the epoch day of today.
+         * @param sixMonthsFromNow the epoch day of the last day within six months of today.
+         */
+        Window(int today, int sixMonthsFromNow) {
+            this.today = today;
+            this.sixMonthsFromNow = sixMonthsFromNow;
+        }
     }
 }
@@ -0,0 +1,474 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Journal class - An append-only binary log of every successful S, C, and R command and every new patient.
+ * Records are encoded into an in-memory buffer as commands succeed, and written and forced to disk in
+ * groups: the first thread waiting for durability writes everything appended so far with one write and
+ * one fsync, and threads that appended in the meantime find their records already durable.
+ * On startup the journal is read back sequentially in large blocks and replayed, with no text parsing,
+ * into the scheduler. Once a snapshot covers the records up to a position, the journal is compacted to the
+ * records after it, so it does not grow without bound.
+ *
+ * Journal positions count from the start of the uncompacted journal and do not change when it is compacted.
+ * File layout: a header of MAGIC, VERSION, and the journal position of the first record in the file (long),
+ * then records starting with a type byte. An enroll record
+ * follows it with the date of birth (int epoch day) and first and last name (unsigned short length then UTF-8
+ * bytes each); patients are enrolled in id order, so the record's position gives the patient's id.
+ * Schedule, cancel, and reschedule records are APPOINTMENT_SIZE bytes: the type, date (int epoch day),
+ * timeslot (byte ordinal), patient (int id), and then the provider (byte ordinal) of a schedule record or the
+ * new timeslot (byte ordinal) of a reschedule record.
+ *
+ * @ Rithi and Shaili
+ */
+public class Journal implements AutoCloseable {
+
+    private final Path path;            // Path of the journal file
+    private FileChannel channel;        // The journal file, replaced when it is compacted
+    private long base;                  // Journal position of the first record in the file
+    private ByteBuffer pending;         // Records appended but not yet written
+    private ByteBuffer spare;           // Buffer swapped in for pending while a group is written
+    private long appended;              // Journal position just past the last appended record
+    private volatile long durable;      // Journal position up to which records are forced to disk
+    private final Object flushLock = new Object();  // Held by the thread writing a group
+
+    private static final int MAGIC = 0x52554A4C;  // "RUJL"
+    private static final short VERSION = 3;
+    private static final int HEADER_SIZE = 14;
+    private static final byte SCHEDULE = 1;
+    private static final byte CANCEL = 2;
+    private static final byte RESCHEDULE = 3;
+    private static final byte ENROLL = 4;
+    private static final int APPOINTMENT_SIZE = 11;    // Type, date, timeslot, patient, last byte
+    private static final int ENROLL_FIXED_SIZE = 9;    // Type, date of birth, name lengths
+    private static final int BUFFER_SIZE = 1 << 16;    // Initial size of the append buffers
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+
+    /**
+     * Constructor to open a journal file, creating it if it does not exist.
+     * Records are appended after the existing ones; call replay() first to load them.
+     *
+     * @param path the path of the journal file.
+     * @throws IOException if the file cannot be opened or is not a journal.
+     */
+    public Journal(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            base = HEADER_SIZE;
+            writeHeader(channel);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) ;
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION
+                    || (base = header.getLong()) < HEADER_SIZE) {
+                channel.close();
+                throw new IOException(path + " is not a version " + VERSION + " scheduler journal");
+            }
+        }
+        appended = durable = base + channel.size() - HEADER_SIZE;
+        pending = ByteBuffer.allocate(BUFFER_SIZE);
+        spare = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    /**
+     * Helper method to write the header of a journal file and force it to disk.
+     *
+     * @param file the journal file, positioned anywhere.
+     * @throws IOException if the header cannot be written.
+     */
+    private void writeHeader(FileChannel file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).putLong(base);
+        header.flip();
+        while (header.hasRemaining()) {
+            file.write(header, HEADER_SIZE - header.remaining());
+        }
+        file.force(true);
+    }
+
+    /**
+     * Helper method to find where a journal position lies in the file.
+     *
+     * @param position a journal position at or after the first record in the file.
+     * @return the file offset of the position.
+     */
+    private long offsetOf(long position) {
+        return position - base + HEADER_SIZE;
+    }
+
+    /**
+     * Replays every record in the journal into a scheduler. A record cut off by a crash while it was being
+     * written is dropped, and the file is truncated so new records follow the last complete one.
+     *
+     * @param scheduler the scheduler to load; it should be empty.
+     * @return the number of records replayed.
+     * @throws IOException if the journal cannot be read, is corrupt, or was compacted and needs its snapshot.
+     */
+    public long replay(Scheduler scheduler) throws IOException {
+        return replay(scheduler, null);
+    }
+
+    /**
+     * Loads a snapshot into a scheduler and replays the journal records written after it.
+     * The snapshot's rows and the records go straight into the scheduler's store within one bulk restore, so
+     * no appointment is held on the heap beyond what the store itself keeps.
+     *
+     * @param scheduler the scheduler to load; it should be empty.
+     * @param snapshot the snapshot to start from, or null to replay the whole journal.
+     * @return the number of records replayed.
+     * @throws IOException if the journal cannot be read, is corrupt, or does not hold every record after the
+     *                     snapshot's position.
+     */
+    public synchronized long replay(Scheduler scheduler, Snapshot snapshot) throws IOException {
+        MedicalRecord medicalRecord = scheduler.getMedicalRecord();
+        long position = base;  // Start of the next record to decode
+        if (snapshot != null) {
+            if (snapshot.getJournalPosition() > appended) {
+                throw new IOException("The journal ends before the snapshot's position " + snapshot.getJournalPosition());
+            }
+            position = Math.max(position, snapshot.getJournalPosition());
+        }
+        if (base > HEADER_SIZE && (snapshot == null || snapshot.getJournalPosition() < base)) {
+            throw new IOException("The journal was compacted at position " + base + "; it needs the snapshot taken there");
+        }
+        scheduler.beginRestore(snapshot == null ? 0 : snapshot.size());
+        try {
+            if (snapshot != null) {
+                snapshot.restoreRows(scheduler);
+            }
+            return replayRecords(scheduler, medicalRecord, position);
+        } finally {
+            scheduler.endRestore();
+        }
+    }
+
+    /**
+     * Helper method to replay the journal records from a position into a scheduler that has begun a restore.
+     * Only the last record of the file may be cut off, by a crash while it was being written; it is dropped,
+     * and the file is truncated so new records follow the last complete one. A malformed record anywhere
+     * else is corruption, and nothing is truncated.
+     *
+     * @param scheduler the scheduler to load.
+     * @param medicalRecord the scheduler's medical record.
+     * @param position the position of the first record to replay.
+     * @return the number of records replayed.
+     * @throws IOException if the journal cannot be read, holds a malformed record, or refers to a patient it
+     *                     never enrolled.
+     */
+    private long replayRecords(Scheduler scheduler, MedicalRecord medicalRecord, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        byte[] bytes = buffer.array();
+        long records = 0;
+        buffer.limit(0);
+        while (true) {
+            int size = recordSize(buffer, position);
+            if (size < 0) {
+                // Keep the partial record and refill the rest of the buffer; names are short enough
+                // that any complete record fits
+                buffer.compact();
+                long offset = offsetOf(position) + buffer.position();
+                int read;
+                while (buffer.hasRemaining() && (read = channel.read(buffer, offset)) > 0) {
+                    offset += read;
+                }
+                buffer.flip();
+                size = recordSize(buffer, position);
+                if (size < 0) {
+                    break;  // End of the journal, or a record cut off at its end
+                }
+            }
+            byte type = buffer.get();
+            if (type == ENROLL) {
+                Date dob = new Date(buffer.getInt());
+                int length = buffer.getShort() & 0xFFFF;
+                String firstName = new String(bytes, buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                length = buffer.getShort() & 0xFFFF;
+                String lastName = new String(bytes, buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                medicalRecord.getOrCreate(new Profile(firstName, lastName, dob));
+            } else {
+                Date date = new Date(buffer.getInt());
+                Timeslot timeslot = TIMESLOTS[buffer.get()];
+                int patient = buffer.getInt();
+                byte last = buffer.get();
+                if (patient < 0 || patient >= medicalRecord.size()) {
+                    throw new IOException("Journal record at " + position + " refers to unknown patient " + patient);
+                }
+                Appointment appointment = new Appointment(date, timeslot, medicalRecord.getProfile(patient),
+                        type == SCHEDULE ? PROVIDERS[last] : null);
+                if (type == SCHEDULE) {
+                    scheduler.restore(appointment);
+                } else {
+                    Appointment stored = scheduler.discard(appointment);
+                    if (type == RESCHEDULE && stored != null) {
+                        scheduler.restore(new Appointment(date, TIMESLOTS[last], stored.getPatient(), stored.getProvider()));
+                    }
+                }
+            }
+            position += size;
+            records++;
+        }
+        long end = offsetOf(position);
+        if (end + buffer.remaining() < channel.size()) {
+            throw new IOException("Journal record at " + position + " does not fit in the read buffer");
+        }
+        if (end < channel.size()) {
+            channel.truncate(end);  // Drop the cut-off record so new records follow the last complete one
+            channel.force(true);
+        }
+        appended = durable = position;
+        return records;
+    }
+
+    /**
+     * Helper method to measure the record at a buffer's position, checking that it is well formed.
+     *
+     * @param buffer the buffer of journal bytes.
+     * @param position the journal position of the record, for the error message.
+     * @return the size of the record, or -1 if the buffer ends before the record does.
+     * @throws IOException if the record has an unknown type or an out-of-range timeslot or provider.
+     */
+    private static int recordSize(ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        int remaining = buffer.remaining();
+        if (remaining < 1) {
+            return -1;
+        }
+        byte type = buffer.get(start);
+        if (type == ENROLL) {
+            if (remaining < ENROLL_FIXED_SIZE) {
+                return -1;
+            }
+            int firstLength = buffer.getShort(start + 5) & 0xFFFF;
+            if (remaining < ENROLL_FIXED_SIZE + firstLength) {
+                return -1;
+            }
+            int size = ENROLL_FIXED_SIZE + firstLength + (buffer.getShort(start + 7 + firstLength) & 0xFFFF);
+            return remaining < size ? -1 : size;
+        }
+        if (type < SCHEDULE || type > RESCHEDULE) {
+            throw new IOException("Journal record at " + position + " has unknown type " + type);
+        }
+        if (remaining < APPOINTMENT_SIZE) {
+            return -1;
+        }
+        byte timeslot = buffer.get(start + 5);
+        byte last = buffer.get(start + APPOINTMENT_SIZE - 1);
+        if (timeslot < 0 || timeslot >= TIMESLOTS.length
+                || last < 0 || last >= (type == SCHEDULE ? PROVIDERS.length : TIMESLOTS.length)) {
+            throw new IOException("Journal record at " + position + " is corrupt");
+        }
+        return APPOINTMENT_SIZE;
+    }
+
+    /**
+     * Appends a record of a booked appointment.
+     *
+     * @param appointment the appointment that was booked.
+     * @return the journal position the record is durable at.
+     */
+    public long schedule(Appointment appointment) {
+        return append(SCHEDULE, appointment, (byte) appointment.getProvider().ordinal());
+    }
+
+    /**
+     * Appends a record of a canceled appointment.
+     *
+     * @param appointment the appointment that was canceled.
+     * @return the journal position the record is durable at.
+     */
+    public long cancel(Appointment appointment) {
+        return append(CANCEL, appointment, (byte) 0);
+    }
+
+    /**
+     * Appends a record of an appointment moved to another timeslot on the same day.
+     *
+     * @param appointment the appointment as it was before it was moved.
+     * @param newTimeslot the timeslot it was moved to.
+     * @return the journal position the record is durable at.
+     */
+    public long reschedule(Appointment appointment, Timeslot newTimeslot) {
+        return append(RESCHEDULE, appointment, (byte) newTimeslot.ordinal());
+    }
+
+    /**
+     * Appends a record of a newly enrolled patient. Patients must be journaled in the order of their ids.
+     *
+     * @param profile the interned profile of the patient.
+     * @return the journal position the record is durable at.
+     */
+    public synchronized long enroll(Profile profile) {
+        byte[] firstName = profile.getFirstName().getBytes(StandardCharsets.UTF_8);
+        byte[] lastName = profile.getLastName().getBytes(StandardCharsets.UTF_8);
+        int size = ENROLL_FIXED_SIZE + firstName.length + lastName.length;
+        reserve(size);
+        pending.put(ENROLL)
+                .putInt(profile.getDateOfBirth().toEpochDay())
+                .putShort((short) firstName.length).put(firstName)
+                .putShort((short) lastName.length).put(lastName);
+        appended += size;
+        return appended;
+    }
+
+    /**
+     * Helper method to encode an appointment record into the pending buffer.
+     *
+     * @param type the record type.
+     * @param appointment the appointment the record is about; its patient must be interned.
+     * @param last the provider or new timeslot ordinal ending the record.
+     * @return the journal position just past the record.
+     */
+    private synchronized long append(byte type, Appointment appointment, byte last) {
+        reserve(APPOINTMENT_SIZE);
+        pending.put(type)
+                .putInt(appointment.getDate().toEpochDay())
+                .put((byte) appointment.getTimeslot().ordinal())
+                .putInt(appointment.getPatientId())
+                .put(last);
+        appended += APPOINTMENT_SIZE;
+        return appended;
+    }
+
+    /**
+     * Helper method to grow the pending buffer if a record of a given size does not fit.
+     *
+     * @param size the size of the record.
+     */
+    private void reserve(int size) {
+        if (pending.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+    }
+
+    /**
+     * Waits until the journal is forced to disk up to a position. If no other thread is already writing,
+     * the caller writes and forces every record appended so far, so one fsync covers a whole group.
+     *
+     * @param position the journal position returned when a record was appended.
+     * @throws IOException if the journal cannot be written.
+     */
+    public void awaitDurable(long position) throws IOException {
+        if (durable >= position) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (durable >= position) {
+                return;  // Written by the group that held the lock before us
+            }
+            ByteBuffer group;
+            long end;
+            synchronized (this) {
+                group = pending;
+                pending = spare;
+                end = appended;
+            }
+            group.flip();
+            long offset = offsetOf(end - group.remaining());
+            while (group.hasRemaining()) {
+                offset += channel.write(group, offset);
+            }
+            channel.force(false);
+            group.clear();
+            synchronized (this) {
+                spare = group;
+            }
+            durable = end;
+        }
+    }
+
+    /**
+     * Drops the records before a position that a snapshot covers. The records after it are copied into a
+     * new file beside the journal, which is forced to disk and moved over the journal, so a crash leaves
+     * either the whole journal or the compacted one. Appends go on meanwhile; only writing them waits.
+     *
+     * @param position the journal position of a snapshot saved to disk; records up to it must be durable.
+     * @throws IOException if the compacted journal cannot be written.
+     */
+    public void compact(long position) throws IOException {
+        synchronized (flushLock) {  // The file does not change while its records are copied
+            if (position <= base) {
+                return;  // Already compacted this far
+            }
+            if (position > durable) {
+                throw new IllegalArgumentException("Journal position " + position + " is not on disk yet");
+            }
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            FileChannel compacted = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                long from = offsetOf(position);
+                long to = offsetOf(durable);
+                compacted.position(HEADER_SIZE);
+                while (from < to) {
+                    from += channel.transferTo(from, to - from, compacted);
+                }
+                long oldBase = base;
+                base = position;
+                try {
+                    writeHeader(compacted);
+                    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException | RuntimeException e) {
+                    base = oldBase;
+                    throw e;
+                }
+            } catch (IOException | RuntimeException e) {
+                compacted.close();
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            channel.close();
+            channel = compacted;
+        }
+    }
+
+    /**
+     * Gets the journal position just past the last appended record.
+     *
+     * @return the current end of the journal.
+     */
+    public synchronized long position() {
+        return appended;
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     *
+     * @throws IOException if the journal cannot be written.
+     */
+    public void sync() throws IOException {
+        long end;
+        synchronized (this) {
+            end = appended;
+        }
+        awaitDurable(end);
+    }
+
+    /**
+     * Forces every appended record to disk and closes the journal file.
+     *
+     * @throws IOException if the journal cannot be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            synchronized (flushLock) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram class - Counts latencies in log-linear buckets, in the style of an HDR histogram.
+ * Values below SUB_BUCKETS nanoseconds get a bucket each; above that every power of two is split into
+ * SUB_BUCKETS equal buckets, so any recorded value is known to within about 3%. Recording finds the bucket
+ * with a leading-zero count and a shift and increments one atomic counter, so it takes nanoseconds, never
+ * allocates, and is safe from many threads at once. Values of MAX_VALUE nanoseconds or more share the last bucket.
+ *
+ * @ Rithi and Shaili
+ */
+public class LatencyHistogram {
+
+    private final AtomicLongArray counts;  // Number of values recorded in each bucket
+    private final AtomicLongArray totals;  // Number of values recorded, and the largest value recorded
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;  // Buckets per power of two
+    private static final int MAX_MAGNITUDE = 40;                 // Values are tracked up to 2^40 ns, about 18 minutes
+    private static final long MAX_VALUE = 1L << MAX_MAGNITUDE;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int COUNT = 0;
+    private static final int MAX = 1;
+
+    /**
+     * Constructor to create an empty histogram.
+     */
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        totals = new AtomicLongArray(2);
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totals.incrementAndGet(COUNT);
+        long max = totals.get(MAX);
+        while (value > max && !totals.compareAndSet(MAX, max, value)) {
+            max = totals.get(MAX);
+        }
+    }
+
+    /**
+     * Helper method to find the bucket of a value.
+     *
+     * @param value the value, at least 0.
+     * @return the bucket index.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        if (value >= MAX_VALUE) {
+            return BUCKETS - 1;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Helper method to find the largest value a bucket holds.
+     *
+     * @param bucket the bucket index.
+     * @return the largest value counted in the bucket.
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long top = SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * Gets the number of latencies recorded.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+        return totals.get(COUNT);
+    }
+
+    /**
+     * Gets the largest latency recorded.
+     *
+     * @return the largest latency in nanoseconds, or 0 if none was recorded.
+     */
+    public long getMax() {
+        return totals.get(MAX);
+    }
+
+    /**
+     * Gets the latency at a percentile: the largest value of the bucket holding that rank, but no more than
+     * the largest latency recorded. Latencies recorded during the call may or may not be counted.
+     *
+     * @param percentile the percentile, from 0 to 100.
+     * @return the latency in nanoseconds, or 0 if none was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+}
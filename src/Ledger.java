@@ -0,0 +1,137 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Ledger class - The running billing statements of every patient with booked appointments.
+ * Statements are updated as appointments are scheduled, canceled, and rescheduled. Each patient holds a
+ * reference to its own statement, so updating a total takes constant time under that patient's monitor, and
+ * scheduling threads only wait on each other here when they book the same patient.
+ * A patient's first charge appends a new statement to the array, and a statement closed by its last credit is
+ * left in it, so the ledger's own monitor is only held for those two constant-time steps. The statements are
+ * brought back to patient order when they are read: closed statements are dropped and the ones appended since
+ * are sorted in with one sort, which finds the part already in order as a single run.
+ *
+ * @ Rithi and Shaili
+ */
+public class Ledger {
+
+    private BillingStatement[] statements;  // Statements, in patient order once settled
+    private int size;                       // Number of statements in the array, open or closed
+    private boolean settled;                // True if the array holds only open statements, in patient order
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long CENTS_PER_DOLLAR = 100;
+    private static final Comparator<BillingStatement> BY_PATIENT =
+            (a, b) -> a.getPatientProfile().compareTo(b.getPatientProfile());
+
+    /**
+     * Constructor to create an empty ledger.
+     */
+    public Ledger() {
+        statements = new BillingStatement[INITIAL_CAPACITY];
+        size = 0;
+        settled = true;
+    }
+
+    /**
+     * Charges a patient for a booked appointment, opening a statement for the patient if needed.
+     *
+     * @param patient the patient the appointment is for.
+     * @param specialty the specialty of the appointment's provider.
+     */
+    public void charge(Patient patient, Specialty specialty) {
+        synchronized (patient) {
+            BillingStatement statement = patient.getStatement();
+            if (statement == null) {
+                statement = new BillingStatement(patient.getProfile());
+                statement.addCharge(specialty.getCharge() * CENTS_PER_DOLLAR);  // Never appended with nothing charged
+                patient.setStatement(statement);
+                append(statement);
+                return;
+            }
+            statement.addCharge(specialty.getCharge() * CENTS_PER_DOLLAR);
+        }
+    }
+
+    /**
+     * Takes the charge of a removed appointment off a patient's statement, closing the statement
+     * once the patient has no appointments left.
+     *
+     * @param patient the patient the appointment was for.
+     * @param specialty the specialty of the appointment's provider.
+     */
+    public void credit(Patient patient, Specialty specialty) {
+        synchronized (patient) {
+            BillingStatement statement = patient.getStatement();
+            if (statement == null) {
+                return;  // Nothing was charged
+            }
+            statement.removeCharge(specialty.getCharge() * CENTS_PER_DOLLAR);
+            if (statement.getAppointmentCount() == 0) {
+                patient.setStatement(null);  // A later charge opens a new statement
+                unsettle();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of open statements.
+     *
+     * @return the number of statements.
+     */
+    public synchronized int size() {
+        settle();
+        return size;
+    }
+
+    /**
+     * Gets the open statements in patient order.
+     *
+     * @return a new array of the statements.
+     */
+    public synchronized BillingStatement[] getStatements() {
+        settle();
+        return Arrays.copyOf(statements, size);
+    }
+
+    /**
+     * Helper method to append a newly opened statement, out of patient order.
+     *
+     * @param statement the statement to append.
+     */
+    private synchronized void append(BillingStatement statement) {
+        if (size == statements.length) {
+            statements = Arrays.copyOf(statements, statements.length * 2);
+        }
+        statements[size++] = statement;
+        settled = false;
+    }
+
+    /**
+     * Helper method to note that a statement in the array was closed.
+     */
+    private synchronized void unsettle() {
+        settled = false;
+    }
+
+    /**
+     * Helper method to drop the closed statements and sort the rest, if anything changed since the last time.
+     * A closed statement has no appointments, and nothing charges it again, since its patient no longer
+     * refers to it.
+     */
+    private void settle() {
+        if (settled) {
+            return;
+        }
+        int open = 0;
+        for (int i = 0; i < size; i++) {
+            if (statements[i].getAppointmentCount() > 0) {
+                statements[open++] = statements[i];
+            }
+        }
+        Arrays.fill(statements, open, size, null);
+        size = open;
+        Arrays.sort(statements, 0, size, BY_PATIENT);
+        settled = true;
+    }
+}
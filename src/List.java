@@ -1,61 +1,151 @@
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * List class - This class represents a growable array-based implementation of a list to manage appointments.
- * The array expands its capacity dynamically as appointments are added.
+ * List class - This class represents a concurrent hash table of appointments with sorted indexes to print them.
+ * A hash table keyed on (date, timeslot, patient) maps each appointment to its stored copy, so duplicate checks,
+ * lookups, and removals take constant time instead of a full scan.
+ * Four sorted secondary indexes are maintained alongside the table, by appointment, patient, location, and
+ * provider, so printing never sorts. A filtered report reads only the range of the index whose leading key
+ * it fixes.
+ * The table and the indexes are concurrent maps, so threads changing different appointments share no monitor;
+ * the list only synchronizes on the monitor mutex() gives an appointment, striped by its patient and day,
+ * so adding an appointment and indexing it is one atomic step for it and the appointments equal to it.
  *
  * @ Rithi and Shaili
  */
-public class List {
+public class List implements AppointmentStore {
 
-    private Appointment[] appointments;  // Array to store Appointment objects
-    private int size;                    // Number of appointments currently stored in the list
+    private volatile ConcurrentHashMap<Appointment, Appointment> appointments;  // Stored copy of each appointment
+    private final Object[] mutexes;          // Monitors striped by patient and day
+    private AppointmentIndex byAppointment;  // Appointments ordered by date/time/provider
+    private AppointmentIndex byPatient;      // Appointments ordered by patient/date/time
+    private AppointmentIndex byLocation;     // Appointments ordered by county/date/time
+    private AppointmentIndex byProvider;     // Appointments ordered by provider/date/time
+    private volatile boolean bulkLoading;    // True while the sorted indexes are left stale for a bulk load
 
-    // Constants for the initial capacity of the array and the value for 'not found'
+    // Constants for the initial capacity of the table, the number of monitors, and the first page size
     private static final int INITIAL_CAPACITY = 4;
-    private static final int NOT_FOUND = -1;
+    private static final int MUTEXES = 256;  // A power of two
+    private static final int INITIAL_PAGE_CAPACITY = 16;
 
     /**
      * Constructor for the List class.
-     * Initializes the list with a small initial capacity and sets the size to zero.
+     * Initializes the list with a small initial capacity.
      */
     public List() {
-        appointments = new Appointment[INITIAL_CAPACITY];  // Allocate memory for initial capacity
-        size = 0;  // No appointments initially
+        appointments = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+        mutexes = new Object[MUTEXES];
+        for (int i = 0; i < MUTEXES; i++) {
+            mutexes[i] = new Object();
+        }
+        byAppointment = new AppointmentIndex(AppointmentIndex.BY_APPOINTMENT);
+        byPatient = new AppointmentIndex(AppointmentIndex.BY_PATIENT);
+        byLocation = new AppointmentIndex(AppointmentIndex.BY_LOCATION);
+        byProvider = new AppointmentIndex(AppointmentIndex.BY_PROVIDER);
     }
 
     /**
      * Method to get the array of appointments.
      *
-     * @return the array of appointments currently in the list.
+     * @return a copy of the appointments currently in the list, in no particular order.
      */
     public Appointment[] getAppointments() {
-        return appointments;
+        return appointments.values().toArray(new Appointment[0]);
+    }
+
+    @Override
+    public void writeRows(ByteBuffer rows) {
+        for (Appointment appointment : appointments.values()) {
+            rows.putInt(appointment.getDate().toEpochDay());
+            rows.put((byte) appointment.getTimeslot().ordinal());
+            rows.put((byte) appointment.getProvider().ordinal());
+            rows.putInt(appointment.getPatientId());
+        }
     }
 
     /**
-     * Helper method to find the index of an appointment in the list.
+     * Returns the stored appointment equal to the given one, i.e. with the same date, timeslot, and patient.
      *
-     * @param appointment the appointment to search for.
-     * @return the index of the appointment if found, otherwise NOT_FOUND (-1).
+     * @param appointment the appointment to look up; its provider is ignored.
+     * @return the stored appointment, or null if there is none.
      */
-    private int find(Appointment appointment) {
-        for (int i = 0; i < size; i++) {
-            if (appointments[i].equals(appointment)) {
-                return i;  // Return the index if the appointment is found
-            }
-        }
-        return NOT_FOUND;  // Return -1 if the appointment is not found
+    @Override
+    public Appointment get(Appointment appointment) {
+        return appointments.get(appointment);
     }
 
     /**
-     * Adds a new appointment to the list. Expands the array if necessary.
+     * Adds a new appointment to the list.
      *
      * @param appointment the appointment to be added.
      */
+    @Override
     public void add(Appointment appointment) {
-        if (size == appointments.length) {
-            grow();  // If the array is full, increase its capacity
+        synchronized (mutex(appointment)) {
+            appointments.put(appointment, appointment);
+            index(appointment);
         }
-        appointments[size++] = appointment;  // Add the new appointment and increment size
+    }
+
+    /**
+     * Adds an appointment unless the list already holds one with the same date, timeslot, and patient.
+     * The check and the add are one atomic step, so two threads cannot both add the same appointment.
+     *
+     * @param appointment the appointment to be added.
+     * @return true if the appointment was added, false if an equal one was already in the list.
+     */
+    @Override
+    public boolean addIfAbsent(Appointment appointment) {
+        synchronized (mutex(appointment)) {
+            if (appointments.putIfAbsent(appointment, appointment) != null) {
+                return false;
+            }
+            index(appointment);
+            return true;
+        }
+    }
+
+    /**
+     * Helper method to add a stored appointment to each sorted index, unless they are left stale for a bulk load.
+     *
+     * @param appointment the stored appointment.
+     */
+    private void index(Appointment appointment) {
+        if (!bulkLoading) {
+            byAppointment.add(appointment);
+            byPatient.add(appointment);
+            byLocation.add(appointment);
+            byProvider.add(appointment);
+        }
+    }
+
+    /**
+     * Starts a bulk load. Until endBulkLoad() is called, add() and remove() only update the hash table, and the
+     * sorted indexes are left stale; they must not be printed.
+     */
+    @Override
+    public void beginBulkLoad() {
+        bulkLoading = true;
+    }
+
+    /**
+     * Ends a bulk load by rebuilding each sorted index with a single sort. No other thread may change the list
+     * meanwhile.
+     */
+    @Override
+    public void endBulkLoad() {
+        Appointment[] loaded = getAppointments();
+        byAppointment.rebuild(loaded, loaded.length);
+        byPatient.rebuild(loaded, loaded.length);
+        byLocation.rebuild(loaded, loaded.length);
+        byProvider.rebuild(loaded, loaded.length);
+        bulkLoading = false;
     }
 
     /**
@@ -63,142 +153,201 @@ public class List {
      *
      * @param appointment the appointment to be removed.
      */
+    @Override
     public void remove(Appointment appointment) {
-        int index = find(appointment);  // Find the index of the appointment to be removed
-        if (index != NOT_FOUND) {
-            // Shift elements to the left to overwrite the removed appointment
-            for (int i = index; i < size - 1; i++) {
-                appointments[i] = appointments[i + 1];
+        synchronized (mutex(appointment)) {
+            Appointment stored = appointments.remove(appointment);  // May have a different provider than the probe
+            if (stored != null && !bulkLoading) {
+                byAppointment.remove(stored);
+                byPatient.remove(stored);
+                byLocation.remove(stored);
+                byProvider.remove(stored);
             }
-            appointments[--size] = null;  // Null out the last element and decrement size
         }
     }
 
     /**
-     * Helper method to increase the capacity of the array by INITIAL_CAPACITY.
+     * Makes room for at least the given number of appointments, so adding them never rehashes part way through.
+     * Only an empty list is resized, since the hash table cannot be resized in place; no other thread may change
+     * the list meanwhile.
+     *
+     * @param capacity the number of appointments the list should hold without growing.
      */
-    private void grow() {
-        // Create a new array with increased capacity
-        Appointment[] newAppointments = new Appointment[appointments.length + INITIAL_CAPACITY];
-
-        // Manually copy the existing appointments into the new array
-        for (int i = 0; i < appointments.length; i++) {
-            newAppointments[i] = appointments[i];  // Copy each element one by one
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (appointments.isEmpty()) {
+            appointments = new ConcurrentHashMap<>(capacity);
         }
+    }
+
+    /**
+     * Gets the monitor striped by the appointment's patient and day. A reschedule keeps both, so the old and
+     * the new appointment of a move share one monitor.
+     *
+     * @param appointment the appointment.
+     * @return the object to synchronize on.
+     */
+    @Override
+    public Object mutex(Appointment appointment) {
+        int hash = (appointment.getDate().hashCode() * 31 + appointment.getPatient().hashCode()) * 0x9E3779B9;
+        return mutexes[(hash ^ (hash >>> 16)) & (MUTEXES - 1)];
+    }
 
-        // Replace the old array with the new array
-        appointments = newAppointments;
+    /**
+     * Collects the first appointments matching a query's filters in one of the orders of the sorted indexes,
+     * reading the same ranges the print methods read.
+     *
+     * @param order the order to collect in; one of the orders of AppointmentIndex.
+     * @param query the filters to match.
+     * @param max the most appointments to collect.
+     * @return a new array of the matching appointments, in order, no longer than max.
+     */
+    @Override
+    public Appointment[] select(Comparator<Appointment> order, AppointmentQuery query, int max) {
+        return page(order, query, 0, max);
     }
 
     /**
-     * Prints the list of appointments sorted by patient profile, then by date/timeslot.
+     * Prints the appointments matching a query ordered by patient profile, then by date/timeslot.
+     * A query for one patient reads only that patient's range of the patient index.
+     *
+     * @param out the stream to print to.
+     * @param query the filters and page to print.
      */
-    public void printByPatient() {
-        sortByPatient();  // Sort the appointments
-        System.out.println("** Appointments ordered by patient/date/time **");
-        for (int i = 0; i < size; i++) {
-            System.out.println(appointments[i]);
-        }
-        System.out.println("** end of list **");
+    @Override
+    public void printByPatient(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by patient/date/time **");
+        print(page(AppointmentIndex.BY_PATIENT, query, query.getOffset(), query.getLimit()), out);
     }
 
     /**
-     * Prints the list of appointments sorted by location, then by date/timeslot.
+     * Prints the appointments matching a query ordered by location, then by date/timeslot.
+     * A query for one county reads only its range of the location index, and a query for one provider,
+     * whose appointments are all in one county, reads only its range of the provider index.
+     *
+     * @param out the stream to print to.
+     * @param query the filters and page to print.
      */
-    public void printByLocation() {
-        sortByLocation();  // Sort the appointments
-        System.out.println("** Appointments ordered by county/date/time **");
-        for (int i = 0; i < size; i++) {
-            System.out.println(appointments[i]);
-        }
-        System.out.println("** end of list **");
+    @Override
+    public void printByLocation(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by county/date/time **");
+        print(page(AppointmentIndex.BY_LOCATION, query, query.getOffset(), query.getLimit()), out);
     }
 
     /**
-     * Prints the list of appointments sorted by date/timeslot, then by provider.
+     * Prints the appointments matching a query ordered by date/timeslot, then by provider.
+     * Once the patient, provider, or county is fixed, the rest of each of those indexes is in date/timeslot
+     * order too, so the query reads the narrowest of those ranges, or else the date range of this index.
+     *
+     * @param out the stream to print to.
+     * @param query the filters and page to print.
      */
-    public void printByAppointment() {
-        sortByDateAndTimeslot();  // Sort the appointments
-        System.out.println("** Appointments ordered by date/time/provider **");
-        for (int i = 0; i < size; i++) {
-            System.out.println(appointments[i]);
-        }
-        System.out.println("** end of list **");
+    @Override
+    public void printByAppointment(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by date/time/provider **");
+        print(page(AppointmentIndex.BY_APPOINTMENT, query, query.getOffset(), query.getLimit()), out);
     }
 
     /**
-     * Sorts the appointments by patient profile, then by date and timeslot.
-     * Uses a bubble sort for simplicity.
+     * Helper method to pick the index and range to read for a query in an order, and collect a page of the
+     * matches from it.
+     *
+     * @param order the order of the page; one of the orders of AppointmentIndex.
+     * @param query the filters to match.
+     * @param skip the number of matches to skip.
+     * @param max the most appointments to collect.
+     * @return a new array of the page's appointments, in order.
      */
-    public void sortByPatient() {
-        for (int i = 0; i < size - 1; i++) {
-            for (int j = 0; j < size - i - 1; j++) {
-                if (appointments[j].getPatient().compareTo(appointments[j + 1].getPatient()) > 0) {
-                    swap(j, j + 1);  // Swap if they are in the wrong order
-                }
+    private Appointment[] page(Comparator<Appointment> order, AppointmentQuery query, int skip, int max) {
+        if (order == AppointmentIndex.BY_PATIENT) {
+            return collect(byPatient, AppointmentQuery.Key.PATIENT, query, skip, max);
+        }
+        if (order == AppointmentIndex.BY_PROVIDER) {
+            return collect(byProvider, AppointmentQuery.Key.PROVIDER, query, skip, max);
+        }
+        if (order == AppointmentIndex.BY_LOCATION) {
+            if (query.fixes(AppointmentQuery.Key.PROVIDER) && !query.fixes(AppointmentQuery.Key.COUNTY)) {
+                return collect(byProvider, AppointmentQuery.Key.PROVIDER, query, skip, max);
             }
+            return collect(byLocation, AppointmentQuery.Key.COUNTY, query, skip, max);
         }
+        if (order == AppointmentIndex.BY_APPOINTMENT) {
+            if (query.fixes(AppointmentQuery.Key.PATIENT)) {
+                return collect(byPatient, AppointmentQuery.Key.PATIENT, query, skip, max);
+            } else if (query.fixes(AppointmentQuery.Key.PROVIDER)) {
+                return collect(byProvider, AppointmentQuery.Key.PROVIDER, query, skip, max);
+            } else if (query.fixes(AppointmentQuery.Key.COUNTY)) {
+                return collect(byLocation, AppointmentQuery.Key.COUNTY, query, skip, max);
+            }
+            return collect(byAppointment, AppointmentQuery.Key.DATE, query, skip, max);
+        }
+        throw new IllegalArgumentException("No index is kept in that order");
     }
 
     /**
-     * Sorts the appointments by location, then by date and timeslot.
-     * Uses a bubble sort for simplicity.
-     */
-    private void sortByLocation() {
-        for (int i = 0; i < size - 1; i++) {
-            for (int j = 0; j < size - i - 1; j++) {
-                int countyComparison = appointments[j].getProvider().getLocation().getCounty().compareTo(appointments[j + 1].getProvider().getLocation().getCounty());
-                if (countyComparison > 0) {
-                    swap(j, j + 1);
-                } else if (countyComparison == 0) {
-                    int dateComparison = appointments[j].getDate().compareTo(appointments[j + 1].getDate());
-                    if (dateComparison > 0) {
-                        swap(j, j + 1);
-                    } else if (dateComparison == 0) {
-                        int timeComparison = appointments[j].getTimeslot().compareTo(appointments[j + 1].getTimeslot());
-                        if (timeComparison > 0) {
-                            swap(j, j + 1);
-                        }
-                    }
-                }
+     * Helper method to collect a page of the appointments of an index that match a query, in index order.
+     * If the query fixes the index's leading key, only the range of that key and the date range is read;
+     * otherwise the whole index is walked. The page grows as rows are found, so its size follows the rows
+     * returned, not the size of the index.
+     *
+     * @param view the index to walk.
+     * @param key the leading key of the index.
+     * @param query the filters to match.
+     * @param skip the number of matches to skip.
+     * @param max the most appointments to collect.
+     * @return a new array of the page's appointments, in index order.
+     */
+    private Appointment[] collect(AppointmentIndex view, AppointmentQuery.Key key, AppointmentQuery query,
+                                  int skip, int max) {
+        boolean ranged = query.fixes(key);
+        Iterator<Appointment> walk;
+        if (!ranged) {
+            walk = view.iterator();
+        } else {
+            Appointment probe = query.probe(key);
+            walk = probe == null ? Collections.emptyIterator() : view.from(probe, a -> query.locate(a, key));
+        }
+        Appointment[] page = new Appointment[Math.min(max, INITIAL_PAGE_CAPACITY)];
+        int skipped = 0;
+        int count = 0;
+        while (walk.hasNext() && count < max) {
+            Appointment appointment = walk.next();
+            if (ranged && query.locate(appointment, key) > 0) {
+                break;  // Past the end of the range
             }
+            if (!query.matches(appointment)) {
+                continue;
+            }
+            if (skipped < skip) {
+                skipped++;
+                continue;
+            }
+            if (count == page.length) {
+                page = Arrays.copyOf(page, (int) Math.min((long) count * 2, max));  // Grows with the rows found
+            }
+            page[count++] = appointment;
         }
+        return count == page.length ? page : Arrays.copyOf(page, count);
     }
 
     /**
-     * Sorts the appointments by date and timeslot, then by provider.
-     * Uses a bubble sort for simplicity.
-     */
-    private void sortByDateAndTimeslot() {
-        for (int i = 0; i < size - 1; i++) {
-            for (int j = 0; j < size - i - 1; j++) {
-                int dateComparison = appointments[j].getDate().compareTo(appointments[j + 1].getDate());
-                if (dateComparison > 0) {
-                    swap(j, j + 1);
-                } else if (dateComparison == 0) {
-                    int timeComparison = appointments[j].getTimeslot().compareTo(appointments[j + 1].getTimeslot());
-                    if (timeComparison > 0) {
-                        swap(j, j + 1);
-                    } else if (timeComparison == 0) {
-                        if (appointments[j].getProvider().getName().compareTo(appointments[j + 1].getProvider().getName()) > 0) {
-                            swap(j, j + 1);
-                        }
-                    }
-                }
-            }
-        }
+     * Helper method to print a page of appointments, formatted in parallel by the ReportRenderer.
+     *
+     * @param page the appointments, in the order to print them.
+     * @param out the stream to print to.
+     */
+    private void print(Appointment[] page, PrintStream out) {
+        ReportRenderer.print(page.length, (row, line) -> line.appendAppointment(page[row]), out);
+        out.println("** end of list **");
     }
 
     /**
-     * Swaps two appointments in the array.
+     * Gets the index of appointments ordered by patient profile, then by date/timeslot.
      *
-     * @param i the index of the first appointment.
-     * @param j the index of the second appointment.
+     * @return the patient-ordered index.
      */
-    private void swap(int i, int j) {
-        Appointment temp = appointments[i];
-        appointments[i] = appointments[j];
-        appointments[j] = temp;
+    public AppointmentIndex getPatientIndex() {
+        return byPatient;
     }
 
     /**
@@ -207,8 +356,9 @@ public class List {
      * @param newAppointment the appointment to check.
      * @return true if the appointment exists in the list, false otherwise.
      */
+    @Override
     public boolean contains(Appointment newAppointment) {
-        return find(newAppointment) != NOT_FOUND;
+        return appointments.containsKey(newAppointment);
     }
 
     /**
@@ -216,17 +366,8 @@ public class List {
      *
      * @return the size of the list.
      */
+    @Override
     public int size() {
-        return size;
-    }
-
-    /**
-     * Retrieves the appointment at a specific index.
-     *
-     * @param i the index of the appointment.
-     * @return the appointment at the given index.
-     */
-    public Appointment get(int i) {
-        return appointments[i];
+        return appointments.size();
     }
 }
@@ -0,0 +1,60 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LockStripes class - A fixed set of locks shared out over (provider, day) pairs.
+ * A command that changes one provider's schedule on one day locks only that pair's stripe, so commands for
+ * different providers or days run at the same time. Consecutive days of every provider map to different
+ * stripes. Reports lock every stripe, which waits out all changes in progress and gives a consistent view.
+ *
+ * @ Rithi and Shaili
+ */
+public class LockStripes {
+
+    private final ReentrantLock[] locks;  // The stripes
+    private final int mask;               // Number of stripes minus one
+
+    private static final int PROVIDERS = Provider.values().length;
+
+    /**
+     * Constructor to create a set of stripes.
+     *
+     * @param stripes the number of stripes; rounded up to a power of two.
+     */
+    public LockStripes(int stripes) {
+        int count = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Gets the stripe guarding a provider's schedule on a day.
+     *
+     * @param provider the provider.
+     * @param date the day.
+     * @return the lock of the stripe.
+     */
+    public ReentrantLock stripe(Provider provider, Date date) {
+        return locks[(date.toEpochDay() * PROVIDERS + provider.ordinal()) & mask];
+    }
+
+    /**
+     * Locks every stripe, always in the same order so two callers cannot deadlock.
+     */
+    public void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    /**
+     * Unlocks every stripe locked by lockAll().
+     */
+    public void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+}
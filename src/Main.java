@@ -1,7 +1,171 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 public class Main {
-    public static void main(String[] args) {
-        Scheduler scheduler = new Scheduler();
-        scheduler.run();
+    private static final long SNAPSHOT_PERIOD_MINUTES = 10;
+    private static final int PIPELINE_CAPACITY = 1024;
+    private static final String STATS_MBEAN_NAME = "ruclinic:type=Scheduler,name=CommandStats";
+
+    public static void main(String[] args) throws IOException {
+        Path journalPath = null;
+        Path snapshotPath = null;
+        Path storePath = null;
+        int port = -1;
+        boolean offHeap = false;
+        boolean sharded = false;
+        boolean singleWriter = false;
+        int first = 0;
+        while (first < args.length && args[first].startsWith("-")) {
+            if (args[first].equals("-o")) {
+                offHeap = true;  // Keep appointments in direct memory
+                first++;
+                continue;
+            }
+            if (args[first].equals("-w")) {
+                singleWriter = true;  // Run the server's commands on one writer thread fed by a pipeline
+                first++;
+                continue;
+            }
+            if (args[first].equals("-l")) {
+                sharded = true;  // Keep each location's appointments in a store of its own
+                first++;
+                continue;
+            }
+            if (first + 1 >= args.length) {
+                break;
+            }
+            if (args[first].equals("-j")) {
+                journalPath = Paths.get(args[first + 1]);
+            } else if (args[first].equals("-s")) {
+                snapshotPath = Paths.get(args[first + 1]);
+            } else if (args[first].equals("-p")) {
+                port = Integer.parseInt(args[first + 1]);  // Serve clients over TCP instead of the console
+            } else if (args[first].equals("-m")) {
+                storePath = Paths.get(args[first + 1]);  // Keep appointments in a memory-mapped scratch file
+                offHeap = true;
+            } else {
+                break;
+            }
+            first += 2;
+        }
+        int remaining = args.length - first;
+        if ((remaining != 0 && remaining != 2) || (port >= 0 && remaining != 0) || (sharded && storePath != null)
+                || (singleWriter && port < 0)) {
+            System.out.println("Usage: java Main [-j journalFile] [-s snapshotFile] [-l] [-o | -m storeFile] [-p port [-w] | commandFile resultFile]");
+            return;
+        }
+        Scheduler scheduler = sharded ? Scheduler.sharded(offHeap)
+                : offHeap ? Scheduler.offHeap(storePath) : new Scheduler();
+        try {
+            // Expose the command statistics to JMX consoles as well as to the ST command
+            ManagementFactory.getPlatformMBeanServer().registerMBean(scheduler.getStats(), new ObjectName(STATS_MBEAN_NAME));
+        } catch (JMException e) {
+            System.out.println("Command statistics are not available through JMX: " + e.getMessage());
+        }
+
+        // Load the latest snapshot, then replay the journal records written after it
+        long start = System.nanoTime();
+        Snapshot snapshot = snapshotPath != null && Files.exists(snapshotPath) ? Snapshot.load(snapshotPath) : null;
+        Journal journal = journalPath == null ? null : new Journal(journalPath);
+        if (journal != null) {
+            long records = journal.replay(scheduler, snapshot);
+            System.out.printf("Replayed %,d journal records; %,d appointments on the calendar in %,.1f ms.%n",
+                    records, scheduler.size(), (System.nanoTime() - start) / 1e6);
+        } else if (snapshot != null) {
+            snapshot.restore(scheduler);
+            System.out.printf("Loaded %,d appointments from the snapshot in %,.1f ms.%n",
+                    scheduler.size(), (System.nanoTime() - start) / 1e6);
+        }
+
+        // Refresh the cached today at each midnight, so a long-running scheduler checks dates against the real day,
+        // and record the appointments of the day that ended as visits in their patients' histories
+        ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.recordVisits(Date.today());  // Appointments dated before today are visits already made
+        refreshTodayAtMidnight(clock, scheduler);
+
+        ScheduledExecutorService snapshots = null;
+        if (snapshotPath != null) {
+            // Snapshot periodically so a restart replays only recent journal records
+            Path path = snapshotPath;
+            Journal log = journal;
+            snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshots.scheduleWithFixedDelay(() -> {
+                // A task that throws is never run again, so report the failure and try at the next period
+                try {
+                    Snapshot.save(scheduler, log, path);
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("Snapshot could not be saved: " + e);
+                }
+            }, SNAPSHOT_PERIOD_MINUTES, SNAPSHOT_PERIOD_MINUTES, TimeUnit.MINUTES);
+        }
+
+        try {
+            if (port >= 0) {
+                // Server mode: a worker syncs the journal once per run of a client's pipelined commands, or with -w
+                // the pipeline's writer syncs it once per batch of commands from every client
+                scheduler.setJournal(journal, false);
+                try (CommandPipeline pipeline = singleWriter ? new CommandPipeline(scheduler, PIPELINE_CAPACITY) : null;
+                     SchedulerServer server = new SchedulerServer(scheduler, pipeline, new InetSocketAddress(port))) {
+                    System.out.println("Scheduler is serving on port " + server.getPort() + ".");
+                    // On Ctrl-C, stop serving and let this thread save the snapshot and close the journal
+                    Thread mainThread = Thread.currentThread();
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        server.shutdown();
+                        try {
+                            mainThread.join();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }));
+                    server.run();
+                }
+            } else if (remaining == 0) {
+                scheduler.setJournal(journal, true);
+                scheduler.run();
+            } else {
+                // Batch mode: apply a command file and write the results to an output file.
+                // The journal is synced once at the end instead of after each command.
+                scheduler.setJournal(journal, false);
+                new BatchRunner(scheduler).run(Paths.get(args[first]), Paths.get(args[first + 1]));
+            }
+            if (snapshots != null) {
+                snapshots.shutdownNow();
+                Snapshot.save(scheduler, journal, snapshotPath);
+            }
+        } finally {
+            clock.shutdownNow();
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
 
+    // Schedule Date.refreshToday() and the recording of the day's visits at the next midnight, then again at
+    // the one after. The delay is worked out each day, so a day of 23 or 25 hours still refreshes at midnight;
+    // a refresh that wakes a little early finds the same day and is simply scheduled again for the midnight
+    // it missed. The next midnight is scheduled first, so a failure to record visits does not end the chain.
+    private static void refreshTodayAtMidnight(ScheduledExecutorService clock, Scheduler scheduler) {
+        clock.schedule(() -> {
+            refreshTodayAtMidnight(clock, scheduler);
+            Date.refreshToday();
+            scheduler.recordVisits(Date.today());
+        }, Date.millisUntilTomorrow(), TimeUnit.MILLISECONDS);
     }
-}
\ No newline at end of file
+}
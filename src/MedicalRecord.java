@@ -1,20 +1,33 @@
+import java.util.concurrent.locks.StampedLock;
+
 /**
  * Represents a medical record in the RU Clinic Scheduler.
  * Stores an array of Patient objects and dynamically grows as needed.
+ * Patients are also registered in an open-addressing hash table keyed on the profile's canonical key,
+ * so finding or enrolling a patient takes constant time. Each patient's id is its position in enrollment
+ * order, and the record interns one Profile per patient carrying that id.
+ * Enrolling is synchronized, and callers may hold the record's monitor to keep enrollment still while they
+ * read several things. Lookups take no lock, since every scheduling thread looks patients up on every command:
+ * they read optimistically under a StampedLock that enrolling write-locks, and only read again under the read
+ * lock if an enrollment moved the arrays underneath them.
  *
  * @ Rithi and Shaili
  */
 public class MedicalRecord {
     private Patient[] patients;  // Array of patient objects
-    private int size;            // Number of patients currently in the record
+    private volatile int size;   // Number of patients currently in the record
+    private int[] table;         // Hash table of array positions plus one; 0 marks an empty bucket
+    private final StampedLock lock = new StampedLock();  // Write-locked while enrolling changes the arrays
 
     private static final int INITIAL_CAPACITY = 4;  // Initial capacity of the patient array
+    private static final int EMPTY = 0;
 
     /**
      * Constructor to create an empty medical record with an initial capacity.
      */
     public MedicalRecord() {
         patients = new Patient[INITIAL_CAPACITY];
+        table = new int[INITIAL_CAPACITY * 2];  // Keep the hash table at most half full
         size = 0;
     }
 
@@ -22,11 +35,19 @@ public class MedicalRecord {
      * Adds a new patient to the medical record. Dynamically grows the array if the current capacity is reached.
      * @param newPatient the patient to add
      */
-    public void add(Patient newPatient) {
-        if (size == patients.length) {
-            grow();  // Grow the array if it's full
+    public synchronized void add(Patient newPatient) {
+        long stamp = lock.writeLock();
+        try {
+            if (size == patients.length) {
+                grow();  // Grow the array if it's full
+            }
+            newPatient.getProfile().setId(size);
+            patients[size] = newPatient;
+            table[findBucket(newPatient.getProfile())] = size + 1;
+            size++;
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        patients[size++] = newPatient;
     }
 
     /**
@@ -35,23 +56,228 @@ public class MedicalRecord {
      * @return the patient if found, or null if not found
      */
     public Patient findPatient(Profile profile) {
+        long stamp = lock.tryOptimisticRead();
+        Patient patient = lookup(profile);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                patient = lookup(profile);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return patient;
+    }
+
+    /**
+     * Finds the patient whose names are ranges of a character array, such as the tokens of a parsed command,
+     * without building a Profile.
+     * @param chars the characters holding the names
+     * @param firstStart the index of the first character of the first name
+     * @param firstEnd the index just past the first name
+     * @param lastStart the index of the first character of the last name
+     * @param lastEnd the index just past the last name
+     * @param dob the date of birth of the patient
+     * @return the patient if found, or null if not found
+     */
+    public Patient findPatient(char[] chars, int firstStart, int firstEnd, int lastStart, int lastEnd, Date dob) {
+        long stamp = lock.tryOptimisticRead();
+        Patient patient = lookup(chars, firstStart, firstEnd, lastStart, lastEnd, dob);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                patient = lookup(chars, firstStart, firstEnd, lastStart, lastEnd, dob);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return patient;
+    }
+
+    /**
+     * Finds the patient with the given profile, enrolling a new patient if there is none.
+     * A new patient's profile is interned: it is given the patient's id, and the patient's appointments
+     * share it. A profile already interned by another record is copied first.
+     * @param profile the profile of the patient
+     * @return the existing or newly enrolled patient
+     */
+    public Patient getOrCreate(Profile profile) {
+        Patient patient = findPatient(profile);
+        return patient != null ? patient : enroll(profile);
+    }
+
+    /**
+     * Helper method to enroll a new patient unless another thread enrolled the same one first.
+     * @param profile the profile of the patient
+     * @return the existing or newly enrolled patient
+     */
+    private synchronized Patient enroll(Profile profile) {
+        long stamp = lock.writeLock();
+        try {
+            int bucket = findBucket(profile);
+            if (table[bucket] != EMPTY) {
+                return patients[table[bucket] - 1];
+            }
+            if (size == patients.length) {
+                grow();
+                bucket = findBucket(profile);  // The table was rebuilt
+            }
+            if (profile.getId() != Profile.NO_ID) {
+                profile = new Profile(profile.getFirstName(), profile.getLastName(), profile.getDateOfBirth());
+            }
+            profile.setId(size);
+            Patient newPatient = new Patient(profile);
+            patients[size] = newPatient;
+            table[bucket] = size + 1;
+            size++;
+            return newPatient;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Finds the id of a patient, which is the patient's position in enrollment order.
+     * Patients are never removed, so an id stays the same for the life of the record.
+     * @param profile the profile of the patient
+     * @return the patient's id, or -1 if the patient is not enrolled
+     */
+    public int idOf(Profile profile) {
+        int id = profile.getId();
+        if (id != Profile.NO_ID && id < size && getProfile(id) == profile) {
+            return id;  // Interned here
+        }
+        Patient patient = findPatient(profile);
+        return patient == null ? -1 : patient.getProfile().getId();
+    }
+
+    /**
+     * Gets the profile of the patient with an id.
+     * @param id the patient's id
+     * @return the profile of the patient
+     */
+    public Profile getProfile(int id) {
+        long stamp = lock.tryOptimisticRead();
+        Patient[] enrolled = patients;
+        Patient patient = id < enrolled.length ? enrolled[id] : null;
+        if (patient == null || !lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                patient = patients[id];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return patient.getProfile();
+    }
+
+    /**
+     * Gets the profiles of every patient, in the order they were enrolled.
+     * @return a new array of the profiles
+     */
+    public synchronized Profile[] getProfiles() {
+        Profile[] profiles = new Profile[size];
         for (int i = 0; i < size; i++) {
-            if (patients[i].getProfile().equals(profile)) {
-                return patients[i];  // Found the patient
+            profiles[i] = patients[i].getProfile();
+        }
+        return profiles;
+    }
+
+    /**
+     * Gets the number of patients in the medical record.
+     * @return the number of patients
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up a patient by profile without locking. While an enrollment is changing the arrays it may return a
+     * wrong answer, but never throws or loops, so a caller whose optimistic stamp still validates can trust it.
+     * @param profile the profile to search for
+     * @return the patient if found, or null if not found
+     */
+    private Patient lookup(Profile profile) {
+        String key = profile.getKey();
+        int[] table = this.table;
+        Patient[] patients = this.patients;
+        int mask = table.length - 1;
+        int bucket = home(key.hashCode(), mask);
+        for (int probes = 0; probes < table.length && table[bucket] != EMPTY; probes++) {
+            int position = table[bucket] - 1;
+            Patient patient = position < patients.length ? patients[position] : null;
+            if (patient != null && patient.getProfile().getKey().equals(key)) {
+                return patient;
             }
+            bucket = (bucket + 1) & mask;
         }
-        return null;  // Patient not found
+        return null;
     }
 
     /**
-     * Grows the patient array by increasing its capacity by 4.
-     * Manually copies the elements from the old array to the new array.
+     * Looks up a patient by names held in a character array without locking, as lookup(Profile) does.
+     * @param chars the characters holding the names
+     * @param firstStart the index of the first character of the first name
+     * @param firstEnd the index just past the first name
+     * @param lastStart the index of the first character of the last name
+     * @param lastEnd the index just past the last name
+     * @param dob the date of birth of the patient
+     * @return the patient if found, or null if not found
      */
-    private void grow() {
-        Patient[] newPatients = new Patient[patients.length + INITIAL_CAPACITY];
-        for (int i = 0; i < patients.length; i++) {
-            newPatients[i] = patients[i];  // Manual copy
+    private Patient lookup(char[] chars, int firstStart, int firstEnd, int lastStart, int lastEnd, Date dob) {
+        int[] table = this.table;
+        Patient[] patients = this.patients;
+        int mask = table.length - 1;
+        int bucket = home(Profile.keyHash(chars, firstStart, firstEnd, lastStart, lastEnd, dob), mask);
+        for (int probes = 0; probes < table.length && table[bucket] != EMPTY; probes++) {
+            int position = table[bucket] - 1;
+            Patient patient = position < patients.length ? patients[position] : null;
+            if (patient != null && patient.getProfile().matches(chars, firstStart, firstEnd, lastStart, lastEnd, dob)) {
+                return patient;
+            }
+            bucket = (bucket + 1) & mask;
         }
+        return null;
+    }
+
+    /**
+     * Finds the bucket holding a profile, or the empty bucket where it would go, using linear probing.
+     * @param profile the profile to search for
+     * @return the bucket of the profile, or the first empty bucket on its probe path
+     */
+    private int findBucket(Profile profile) {
+        String key = profile.getKey();
+        int mask = table.length - 1;
+        int bucket = home(key.hashCode(), mask);
+        while (table[bucket] != EMPTY && !patients[table[bucket] - 1].getProfile().getKey().equals(key)) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /**
+     * Spreads a hash code and maps it to a bucket of the hash table.
+     * @param hash the hash code to map
+     * @param mask the table length minus one
+     * @return the home bucket for the hash code
+     */
+    private static int home(int hash, int mask) {
+        hash *= 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * Doubles the capacity of the patient array and rebuilds the hash table to match,
+     * so enrolling n patients costs amortized constant time each.
+     */
+    private void grow() {
+        Patient[] newPatients = new Patient[patients.length * 2];
+        System.arraycopy(patients, 0, newPatients, 0, size);
         patients = newPatients;
+
+        table = new int[patients.length * 2];
+        for (int i = 0; i < size; i++) {
+            table[findBucket(patients[i].getProfile())] = i + 1;
+        }
     }
 }
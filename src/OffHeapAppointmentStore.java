@@ -0,0 +1,791 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OffHeapAppointmentStore class - An appointment store that keeps the calendar as a grid of fixed-width cells
+ * outside the Java heap, for calendars too large to hold as Appointment objects.
+ * A provider sees at most one patient per timeslot, so the calendar has one cell per day, timeslot, and
+ * provider, holding the patient's MedicalRecord id plus one, or 0 if the provider is free. The cells of
+ * DAYS_PER_SEGMENT consecutive days make up a segment, created the first time one of its days is booked, in
+ * direct memory or in a memory-mapped scratch file so the calendar can also exceed physical memory. Cells are
+ * numbered in date and timeslot order, and each patient keeps the sorted numbers of their booked cells, so the
+ * only per-appointment heap cost is one int in that list.
+ * A lookup reads the cells of one day and timeslot, and a change writes one cell, under the monitor striped by
+ * patient and day that mutex() gives, and then the patient's list under its own monitor; the Scheduler's stripe
+ * for the provider and day keeps two commands off one cell. Threads changing different appointments share no
+ * other lock.
+ * A report in date, provider, or county order walks the cells of its date range in that order, and a report
+ * in patient order walks the patients' lists in name order from the start of its date range. Either way it
+ * stops at the end of its page and formats the page straight from the cells, building no appointment and
+ * sorting nothing but the patients.
+ *
+ * @ Rithi and Shaili
+ */
+public class OffHeapAppointmentStore implements AppointmentStore {
+
+    private final MedicalRecord medicalRecord;                     // Resolves patient ids to profiles and back
+    private final FileChannel channel;                             // Scratch file the segments are mapped from, or null
+    private final AtomicReferenceArray<ByteBuffer> segments;       // Cells of each block of days, or null if none booked
+    private final Object allocationLock = new Object();            // Held while creating a segment or a patient list
+    private final Object[] mutexes;                                // Monitors striped by patient and day
+    private final LongAdder size = new LongAdder();                // Number of booked cells
+    private volatile AtomicReferenceArray<PatientCells> patients;  // Booked cells of each patient, by id
+    private volatile int lowestSegment;                            // First segment created, or SEGMENTS if none
+    private volatile int highestSegment;                           // Last segment created, or -1 if none
+    private ByteBuffer region;                                     // Mapped file region segments are cut from
+    private int regionUsed;                                        // Segments cut from the region so far
+    private long mapped;                                           // Bytes of the file mapped so far
+
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+    private static final int CELL_SIZE = 4;
+    private static final int CELLS_PER_DAY = TIMESLOTS.length * PROVIDERS.length;
+    private static final int DAYS_PER_SEGMENT = 64;
+    private static final int CELLS_PER_SEGMENT = DAYS_PER_SEGMENT * CELLS_PER_DAY;
+    private static final int SEGMENT_SIZE = CELLS_PER_SEGMENT * CELL_SIZE;
+    private static final int REGION_SEGMENTS = 64;  // Segments mapped from the file at once
+    private static final int FIRST_DAY = new Date(1, 1, 1).toEpochDay();
+    private static final int LAST_DAY = new Date(9999, 12, 31).toEpochDay();
+    private static final int SEGMENTS = (LAST_DAY - FIRST_DAY) / DAYS_PER_SEGMENT + 1;
+    private static final int EMPTY = 0;
+    private static final int MUTEXES = 256;  // A power of two
+    private static final int INITIAL_PAGE_CAPACITY = 16;
+    private static final int INITIAL_PATIENTS = 64;
+    private static final int[] PROVIDERS_BY_NAME;  // Provider ordinals in name order
+    private static final String[] COUNTIES;        // Each county once, in order
+
+    static {
+        PROVIDERS_BY_NAME = new int[PROVIDERS.length];
+        for (int i = 0; i < PROVIDERS.length; i++) {
+            int rank = 0;
+            for (Provider other : PROVIDERS) {
+                if (other.getName().compareTo(PROVIDERS[i].getName()) < 0) {
+                    rank++;
+                }
+            }
+            PROVIDERS_BY_NAME[rank] = i;
+        }
+        Location[] locations = Location.values();
+        String[] counties = new String[locations.length];
+        int count = 0;
+        for (Location location : locations) {
+            boolean seen = false;
+            for (int i = 0; i < count; i++) {
+                seen |= counties[i].equals(location.getCounty());
+            }
+            if (!seen) {
+                counties[count++] = location.getCounty();
+            }
+        }
+        COUNTIES = Arrays.copyOf(counties, count);
+        Arrays.sort(COUNTIES);
+    }
+
+    /**
+     * Constructor to create a store whose segments live in direct (off-heap) memory.
+     *
+     * @param medicalRecord the record of the patients the appointments are for.
+     */
+    public OffHeapAppointmentStore(MedicalRecord medicalRecord) {
+        this.medicalRecord = medicalRecord;
+        this.channel = null;
+        this.segments = new AtomicReferenceArray<>(SEGMENTS);
+        this.mutexes = newMutexes();
+        this.patients = new AtomicReferenceArray<>(INITIAL_PATIENTS);
+        this.lowestSegment = SEGMENTS;
+        this.highestSegment = -1;
+    }
+
+    /**
+     * Constructor to create a store whose segments live in a memory-mapped scratch file. The file's old
+     * contents are discarded; the journal and snapshots, not this file, are what survive a restart.
+     *
+     * @param medicalRecord the record of the patients the appointments are for.
+     * @param file the path of the scratch file.
+     * @throws IOException if the file cannot be created.
+     */
+    public OffHeapAppointmentStore(MedicalRecord medicalRecord, Path file) throws IOException {
+        this.medicalRecord = medicalRecord;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.segments = new AtomicReferenceArray<>(SEGMENTS);
+        this.mutexes = newMutexes();
+        this.patients = new AtomicReferenceArray<>(INITIAL_PATIENTS);
+        this.lowestSegment = SEGMENTS;
+        this.highestSegment = -1;
+    }
+
+    /**
+     * Helper method to create the monitors striped by patient and day.
+     *
+     * @return the monitors.
+     */
+    private static Object[] newMutexes() {
+        Object[] mutexes = new Object[MUTEXES];
+        for (int i = 0; i < MUTEXES; i++) {
+            mutexes[i] = new Object();
+        }
+        return mutexes;
+    }
+
+    /**
+     * Helper method to number the cell of a day, timeslot, and provider. Cells are numbered in date, then
+     * timeslot, then provider order, so a segment holds a run of CELLS_PER_SEGMENT consecutive numbers.
+     *
+     * @param day the epoch day, between FIRST_DAY and LAST_DAY.
+     * @param timeslot the timeslot ordinal.
+     * @param provider the provider ordinal.
+     * @return the number of the cell.
+     */
+    private static int cellOf(int day, int timeslot, int provider) {
+        return (day - FIRST_DAY) * CELLS_PER_DAY + timeslot * PROVIDERS.length + provider;
+    }
+
+    /**
+     * Helper method to get the epoch day of a cell.
+     *
+     * @param cell the number of the cell.
+     * @return the epoch day.
+     */
+    private static int dayOf(int cell) {
+        return cell / CELLS_PER_DAY + FIRST_DAY;
+    }
+
+    /**
+     * Helper method to get the timeslot of a cell.
+     *
+     * @param cell the number of the cell.
+     * @return the timeslot ordinal.
+     */
+    private static int timeslotOf(int cell) {
+        return cell % CELLS_PER_DAY / PROVIDERS.length;
+    }
+
+    /**
+     * Helper method to get the provider of a cell.
+     *
+     * @param cell the number of the cell.
+     * @return the provider ordinal.
+     */
+    private static int providerOf(int cell) {
+        return cell % PROVIDERS.length;
+    }
+
+    /**
+     * Helper method to get the position of a cell within its segment.
+     *
+     * @param cell the number of the cell.
+     * @return the byte offset of the cell in its segment.
+     */
+    private static int offsetOf(int cell) {
+        return cell % CELLS_PER_SEGMENT * CELL_SIZE;
+    }
+
+    /**
+     * Helper method to read a cell.
+     *
+     * @param cell the number of the cell.
+     * @return the patient id plus one, or EMPTY if the provider is free.
+     */
+    private int read(int cell) {
+        ByteBuffer segment = segments.get(cell / CELLS_PER_SEGMENT);
+        return segment == null ? EMPTY : segment.getInt(offsetOf(cell));
+    }
+
+    /**
+     * Helper method to get the segment of a cell, creating it if no day of the segment was booked before.
+     *
+     * @param cell the number of the cell.
+     * @return the segment.
+     */
+    private ByteBuffer segmentOf(int cell) {
+        int index = cell / CELLS_PER_SEGMENT;
+        ByteBuffer segment = segments.get(index);
+        if (segment != null) {
+            return segment;
+        }
+        synchronized (allocationLock) {
+            segment = segments.get(index);
+            if (segment == null) {
+                segment = allocate();
+                lowestSegment = Math.min(lowestSegment, index);
+                highestSegment = Math.max(highestSegment, index);
+                segments.set(index, segment);
+            }
+            return segment;
+        }
+    }
+
+    /**
+     * Helper method to allocate an empty segment in direct memory, or cut it from the mapped region of the
+     * scratch file, mapping the next region first if that one is used up. The caller holds allocationLock.
+     *
+     * @return a new segment with every cell EMPTY.
+     */
+    private ByteBuffer allocate() {
+        if (channel == null) {
+            return ByteBuffer.allocateDirect(SEGMENT_SIZE);
+        }
+        if (region == null || regionUsed == REGION_SEGMENTS) {
+            try {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, mapped, (long) REGION_SEGMENTS * SEGMENT_SIZE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not grow the appointment file", e);
+            }
+            mapped += (long) REGION_SEGMENTS * SEGMENT_SIZE;
+            regionUsed = 0;
+        }
+        return region.slice(regionUsed++ * SEGMENT_SIZE, SEGMENT_SIZE);
+    }
+
+    /**
+     * Helper method to get the list of a patient's booked cells.
+     *
+     * @param patient the patient id.
+     * @param create true to create the list if the patient has none yet.
+     * @return the list, or null if the patient has none and create is false.
+     */
+    private PatientCells cellsOf(int patient, boolean create) {
+        AtomicReferenceArray<PatientCells> table = patients;
+        PatientCells cells = patient < table.length() ? table.get(patient) : null;
+        if (cells != null || !create) {
+            return cells;
+        }
+        synchronized (allocationLock) {
+            table = patients;
+            if (patient >= table.length()) {
+                int length = table.length();
+                while (length <= patient) {
+                    length *= 2;
+                }
+                AtomicReferenceArray<PatientCells> grown = new AtomicReferenceArray<>(length);
+                for (int i = 0; i < table.length(); i++) {
+                    grown.set(i, table.get(i));
+                }
+                patients = grown;
+                table = grown;
+            }
+            cells = table.get(patient);
+            if (cells == null) {
+                cells = new PatientCells();
+                table.set(patient, cells);
+            }
+            return cells;
+        }
+    }
+
+    /**
+     * Helper method to find the cell booked for a patient at a day and timeslot.
+     *
+     * @param day the epoch day.
+     * @param timeslot the timeslot ordinal.
+     * @param patient the patient id.
+     * @return the number of the cell, or -1 if the patient has no appointment then.
+     */
+    private int find(int day, int timeslot, int patient) {
+        if (day < FIRST_DAY || day > LAST_DAY) {
+            return -1;
+        }
+        int first = cellOf(day, timeslot, 0);
+        ByteBuffer segment = segments.get(first / CELLS_PER_SEGMENT);
+        if (segment == null) {
+            return -1;
+        }
+        for (int provider = 0; provider < PROVIDERS.length; provider++) {
+            if (segment.getInt(offsetOf(first + provider)) == patient + 1) {
+                return first + provider;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Helper method to find the cell of an appointment.
+     *
+     * @param appointment the appointment to search for; its provider is ignored.
+     * @return the number of the cell, or -1 if it is not stored.
+     */
+    private int find(Appointment appointment) {
+        int patient = medicalRecord.idOf(appointment.getPatient());
+        if (patient < 0) {
+            return -1;
+        }
+        return find(appointment.getDate().toEpochDay(), appointment.getTimeslot().ordinal(), patient);
+    }
+
+    /**
+     * Helper method to rebuild the appointment booked in a cell.
+     *
+     * @param cell the number of the cell.
+     * @param patient the patient id held by the cell.
+     * @return a new Appointment equal to the stored one.
+     */
+    private Appointment decode(int cell, int patient) {
+        return new Appointment(new Date(dayOf(cell)), TIMESLOTS[timeslotOf(cell)], medicalRecord.getProfile(patient),
+                PROVIDERS[providerOf(cell)]);
+    }
+
+    @Override
+    public Appointment get(Appointment appointment) {
+        int cell = find(appointment);
+        if (cell < 0) {
+            return null;
+        }
+        int stored = read(cell);
+        return stored == EMPTY ? null : decode(cell, stored - 1);
+    }
+
+    @Override
+    public void add(Appointment appointment) {
+        addIfAbsent(appointment);
+    }
+
+    /**
+     * Books the appointment's cell unless the patient already has an appointment at that date and timeslot.
+     * The provider must be free then, which the Scheduler checks against its ProviderCalendar first.
+     *
+     * @param appointment the appointment to be added.
+     * @return true if the appointment was added, false if an equal one was already in the store.
+     * @throws IllegalArgumentException if the patient is not enrolled in the medical record, or the provider
+     *                                  already has an appointment at that date and timeslot.
+     */
+    @Override
+    public boolean addIfAbsent(Appointment appointment) {
+        int patient = medicalRecord.idOf(appointment.getPatient());
+        if (patient < 0) {
+            throw new IllegalArgumentException("The patient of " + appointment + " is not enrolled");
+        }
+        int day = appointment.getDate().toEpochDay();
+        int timeslot = appointment.getTimeslot().ordinal();
+        synchronized (mutex(appointment)) {
+            if (find(day, timeslot, patient) >= 0) {
+                return false;
+            }
+            int cell = cellOf(day, timeslot, appointment.getProvider().ordinal());
+            ByteBuffer segment = segmentOf(cell);
+            if (segment.getInt(offsetOf(cell)) != EMPTY) {
+                throw new IllegalArgumentException("The provider of " + appointment + " is already booked");
+            }
+            segment.putInt(offsetOf(cell), patient + 1);
+            cellsOf(patient, true).add(cell);
+            size.increment();
+            return true;
+        }
+    }
+
+    @Override
+    public void remove(Appointment appointment) {
+        int patient = medicalRecord.idOf(appointment.getPatient());
+        if (patient < 0) {
+            return;  // Not enrolled, so not in the store
+        }
+        synchronized (mutex(appointment)) {
+            int cell = find(appointment.getDate().toEpochDay(), appointment.getTimeslot().ordinal(), patient);
+            if (cell < 0) {
+                return;  // Not in the store
+            }
+            segments.get(cell / CELLS_PER_SEGMENT).putInt(offsetOf(cell), EMPTY);
+            cellsOf(patient, false).remove(cell);
+            size.decrement();
+        }
+    }
+
+    @Override
+    public boolean contains(Appointment appointment) {
+        return find(appointment) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * Does nothing; the grid has a cell for every day, and segments are created as days are booked.
+     *
+     * @param capacity the number of appointments the store should hold.
+     */
+    @Override
+    public void ensureCapacity(int capacity) {
+    }
+
+    /**
+     * Does nothing; the store keeps no print orders to defer.
+     */
+    @Override
+    public void beginBulkLoad() {
+    }
+
+    /**
+     * Does nothing; the store keeps no print orders to defer.
+     */
+    @Override
+    public void endBulkLoad() {
+    }
+
+    @Override
+    public void writeRows(ByteBuffer rows) {
+        for (int index = lowestSegment; index <= highestSegment; index++) {
+            ByteBuffer segment = segments.get(index);
+            if (segment == null) {
+                continue;
+            }
+            for (int cell = index * CELLS_PER_SEGMENT; cell < (index + 1) * CELLS_PER_SEGMENT; cell++) {
+                int stored = segment.getInt(offsetOf(cell));
+                if (stored != EMPTY) {
+                    rows.putInt(dayOf(cell));
+                    rows.put((byte) timeslotOf(cell));
+                    rows.put((byte) providerOf(cell));
+                    rows.putInt(stored - 1);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void printByPatient(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by patient/date/time **");
+        print(AppointmentIndex.BY_PATIENT, query, out);
+    }
+
+    @Override
+    public void printByLocation(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by county/date/time **");
+        print(AppointmentIndex.BY_LOCATION, query, out);
+    }
+
+    @Override
+    public void printByAppointment(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by date/time/provider **");
+        print(AppointmentIndex.BY_APPOINTMENT, query, out);
+    }
+
+    /**
+     * Gets the monitor striped by the appointment's patient and day. A reschedule keeps both, so the old
+     * and the new appointment of a move share one monitor.
+     *
+     * @param appointment the appointment.
+     * @return the object to synchronize on.
+     */
+    @Override
+    public Object mutex(Appointment appointment) {
+        int hash = (appointment.getDate().hashCode() * 31 + appointment.getPatient().hashCode()) * 0x9E3779B9;
+        return mutexes[(hash ^ (hash >>> 16)) & (MUTEXES - 1)];
+    }
+
+    @Override
+    public Appointment[] select(Comparator<Appointment> order, AppointmentQuery query, int max) {
+        int[] cells = page(order, query, 0, max);
+        Appointment[] selected = new Appointment[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            selected[i] = decode(cells[i], read(cells[i]) - 1);
+        }
+        return selected;
+    }
+
+    /**
+     * Helper method to print a page of the appointments matching a query in an order, formatted by the
+     * ReportRenderer straight from the cells.
+     *
+     * @param order the order to print in.
+     * @param query the filters and page to print.
+     * @param out the stream to print to.
+     */
+    private void print(Comparator<Appointment> order, AppointmentQuery query, PrintStream out) {
+        int[] cells = page(order, query, query.getOffset(), query.getLimit());
+        Profile[] profiles = medicalRecord.getProfiles();  // One lookup for the report, not one per row
+        ReportRenderer.print(cells.length, (row, line) -> {
+            int cell = cells[row];
+            line.appendAppointment(new Date(dayOf(cell)), TIMESLOTS[timeslotOf(cell)], profiles[read(cell) - 1],
+                    PROVIDERS[providerOf(cell)]);
+        }, out);
+        out.println("** end of list **");
+    }
+
+    /**
+     * Helper method to collect a page of the cells matching a query in an order. Date, provider, and county
+     * orders walk the grid in that order and stop at the end of the page; patient order collects every match
+     * and sorts it.
+     *
+     * @param order the order of the page; one of the orders of AppointmentIndex.
+     * @param query the filters to match.
+     * @param skip the number of matches to skip.
+     * @param max the most cells to collect.
+     * @return a new array of the page's cell numbers, in order.
+     */
+    private int[] page(Comparator<Appointment> order, AppointmentQuery query, int skip, int max) {
+        if (order == AppointmentIndex.BY_APPOINTMENT) {
+            Page page = new Page(query, skip, max);
+            walk(admitted(query, null), page);
+            return page.cells();
+        }
+        if (order == AppointmentIndex.BY_PROVIDER) {
+            Page page = new Page(query, skip, max);
+            for (int provider : admitted(query, null)) {
+                if (!walk(new int[] { provider }, page)) {
+                    break;
+                }
+            }
+            return page.cells();
+        }
+        if (order == AppointmentIndex.BY_LOCATION) {
+            Page page = new Page(query, skip, max);
+            for (String county : COUNTIES) {
+                if (!walk(admitted(query, county), page)) {
+                    break;
+                }
+            }
+            return page.cells();
+        }
+        if (order == AppointmentIndex.BY_PATIENT) {
+            Page page = new Page(query, skip, max);
+            if (query.fixes(AppointmentQuery.Key.PATIENT)) {
+                walkPatient(medicalRecord.idOf(query.getPatient()), page);
+                return page.cells();
+            }
+            Profile[] profiles = medicalRecord.getProfiles();
+            Arrays.sort(profiles);  // The only sort of a report: of the patients, by name
+            for (Profile profile : profiles) {
+                if (!walkPatient(profile.getId(), page)) {
+                    break;
+                }
+            }
+            return page.cells();
+        }
+        throw new IllegalArgumentException("No walk of the grid is in that order");
+    }
+
+    /**
+     * Helper method to list the providers a query keeps, in name order.
+     *
+     * @param query the query.
+     * @param county the county the providers must work in, or null for any county.
+     * @return the ordinals of the providers.
+     */
+    private static int[] admitted(AppointmentQuery query, String county) {
+        int[] providers = new int[PROVIDERS.length];
+        int count = 0;
+        for (int provider : PROVIDERS_BY_NAME) {
+            if (query.admits(PROVIDERS[provider])
+                    && (county == null || PROVIDERS[provider].getLocation().getCounty().equals(county))) {
+                providers[count++] = provider;
+            }
+        }
+        return Arrays.copyOf(providers, count);
+    }
+
+    /**
+     * Helper method to walk the booked cells of some providers over a query's date range, in date, timeslot,
+     * and then the given provider order, offering each to a page. Only the segments created in the date
+     * range are read.
+     *
+     * @param providers the ordinals of the providers, in the order to walk them within a timeslot.
+     * @param page the page to offer the cells to.
+     * @return true if the page can take more cells, false if it is full.
+     */
+    private boolean walk(int[] providers, Page page) {
+        if (page.isFull()) {
+            return false;
+        }
+        if (providers.length == 0) {
+            return true;
+        }
+        Date from = page.query.getFrom();
+        Date to = page.query.getTo();
+        int firstDay = from == null ? FIRST_DAY : Math.max(FIRST_DAY, from.toEpochDay());
+        int lastDay = to == null ? LAST_DAY : Math.min(LAST_DAY, to.toEpochDay());
+        if (firstDay > lastDay) {
+            return true;
+        }
+        int last = Math.min(highestSegment, (lastDay - FIRST_DAY) / DAYS_PER_SEGMENT);
+        for (int index = Math.max(lowestSegment, (firstDay - FIRST_DAY) / DAYS_PER_SEGMENT); index <= last; index++) {
+            ByteBuffer segment = segments.get(index);
+            if (segment == null) {
+                continue;
+            }
+            int start = Math.max(firstDay, FIRST_DAY + index * DAYS_PER_SEGMENT);
+            int end = Math.min(lastDay, FIRST_DAY + (index + 1) * DAYS_PER_SEGMENT - 1);
+            for (int day = start; day <= end; day++) {
+                for (int timeslot = 0; timeslot < TIMESLOTS.length; timeslot++) {
+                    int first = cellOf(day, timeslot, 0);
+                    for (int provider : providers) {
+                        int stored = segment.getInt(offsetOf(first + provider));
+                        if (stored != EMPTY && !page.offer(first + provider, stored - 1)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to walk a patient's booked cells over a query's date range, in date and timeslot order,
+     * offering each to a page.
+     *
+     * @param patient the patient id, or -1 if the patient is not enrolled.
+     * @param page the page to offer the cells to.
+     * @return true if the page can take more cells, false if it is full.
+     */
+    private boolean walkPatient(int patient, Page page) {
+        if (page.isFull()) {
+            return false;
+        }
+        PatientCells cells = patient < 0 ? null : cellsOf(patient, false);
+        if (cells == null) {
+            return true;
+        }
+        Date from = page.query.getFrom();
+        Date to = page.query.getTo();
+        int firstDay = from == null ? FIRST_DAY : Math.max(FIRST_DAY, from.toEpochDay());
+        int lastDay = to == null ? LAST_DAY : Math.min(LAST_DAY, to.toEpochDay());
+        if (firstDay > lastDay) {
+            return true;
+        }
+        int lastCell = cellOf(lastDay, TIMESLOTS.length - 1, PROVIDERS.length - 1);
+        synchronized (cells) {
+            for (int i = cells.lowerBound(cellOf(firstDay, 0, 0)); i < cells.count && cells.cells[i] <= lastCell; i++) {
+                if (!page.offer(cells.cells[i], patient)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Page class - The cells of a report page, collected as a walk offers them in order. Cells failing the
+     * query's filters and the first skip matches are dropped, and the page grows with the cells it keeps.
+     */
+    private static class Page {
+
+        private final AppointmentQuery query;  // The filters to match
+        private final int skip;                // Number of matches to drop first
+        private final int max;                 // Most cells to keep
+        private int skipped;                   // Matches dropped so far
+        private int[] cells;                   // Cells kept, in order
+        private int count;                     // Number of cells kept
+
+        /**
+         * Constructor to create an empty page.
+         *
+         * @param query the filters to match.
+         * @param skip the number of matches to drop first.
+         * @param max the most cells to keep.
+         */
+        Page(AppointmentQuery query, int skip, int max) {
+            this.query = query;
+            this.skip = skip;
+            this.max = max;
+            this.cells = new int[Math.min(max, INITIAL_PAGE_CAPACITY)];
+        }
+
+        /**
+         * Offers the next booked cell of the walk.
+         *
+         * @param cell the number of the cell.
+         * @param patient the patient id it holds.
+         * @return true if the page can take more cells, false if it is full.
+         */
+        boolean offer(int cell, int patient) {
+            if (!query.matches(dayOf(cell), PROVIDERS[providerOf(cell)], patient)) {
+                return true;
+            }
+            if (skipped < skip) {
+                skipped++;
+                return true;
+            }
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, (int) Math.min((long) count * 2, max));  // Grows with the cells found
+            }
+            cells[count++] = cell;
+            return count < max;
+        }
+
+        /**
+         * Checks if the page holds as many cells as it may.
+         *
+         * @return true if the page is full.
+         */
+        boolean isFull() {
+            return count >= max;
+        }
+
+        /**
+         * Gets the cells kept.
+         *
+         * @return a new array of the cells, in the order they were offered.
+         */
+        int[] cells() {
+            return Arrays.copyOf(cells, count);
+        }
+    }
+
+    /**
+     * PatientCells class - The numbers of one patient's booked cells, kept sorted, so in date and timeslot
+     * order. Changed and read under its own monitor.
+     */
+    private static class PatientCells {
+
+        private int[] cells = new int[INITIAL_CELLS];  // Booked cell numbers, in order
+        private int count;                              // Number of booked cells
+
+        private static final int INITIAL_CELLS = 4;
+
+        /**
+         * Finds the first position whose cell is not before a cell number.
+         *
+         * @param cell the cell number.
+         * @return the position, or count if every cell is before it.
+         */
+        int lowerBound(int cell) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cells[mid] < cell) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Inserts a cell at its sorted position.
+         *
+         * @param cell the cell number.
+         */
+        synchronized void add(int cell) {
+            int position = lowerBound(cell);
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+            }
+            System.arraycopy(cells, position, cells, position + 1, count - position);
+            cells[position] = cell;
+            count++;
+        }
+
+        /**
+         * Removes a cell.
+         *
+         * @param cell the cell number, which must be in the list.
+         */
+        synchronized void remove(int cell) {
+            int position = lowerBound(cell);
+            System.arraycopy(cells, position + 1, cells, position, count - position - 1);
+            count--;
+        }
+    }
+}
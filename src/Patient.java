@@ -1,13 +1,14 @@
 /**
  * Represents a patient in the RU Clinic Scheduler.
- * Each patient has a profile and a linked list of completed visits (appointments).
+ * Each patient has a profile and a history of completed visits (appointments).
  *
  * @author Your Name
  */
 public class Patient implements Comparable<Patient> {
     // Fields
     private Profile profile;   // Profile containing patient's first name, last name, and date of birth
-    private Visit visits;      // Head of the linked list of visits (completed appointments)
+    private VisitHistory visits;  // Completed visits (appointments), in date order
+    private BillingStatement statement;  // Running statement of the patient's booked appointments, if any
 
     /**
      * Constructor to create a new patient with a given profile.
@@ -17,7 +18,7 @@ public class Patient implements Comparable<Patient> {
      */
     public Patient(Profile profile) {
         this.profile = profile;
-        this.visits = null;  // Initially, no visits are completed
+        this.visits = new VisitHistory();  // Initially, no visits are completed
     }
 
     /**
@@ -30,34 +31,49 @@ public class Patient implements Comparable<Patient> {
     }
 
     /**
-     * Adds a completed visit (appointment) to the linked list of visits.
-     * The visit is added to the beginning of the list.
+     * Gets the patient's running billing statement.
+     *
+     * @return the billing statement, or null if the patient has no booked appointments
+     */
+    public BillingStatement getStatement() {
+        return statement;
+    }
+
+    /**
+     * Sets the patient's running billing statement.
+     *
+     * @param statement the billing statement, or null to clear it
+     */
+    public void setStatement(BillingStatement statement) {
+        this.statement = statement;
+    }
+
+    /**
+     * Adds a completed visit (appointment) to the patient's visit history.
      *
      * @param appointment the appointment representing the completed visit
      */
     public void addVisit(Appointment appointment) {
-        Visit newVisit = new Visit(appointment);
-        newVisit.setNext(visits);  // Insert the new visit at the beginning of the linked list
-        visits = newVisit;         // Update the head of the list
+        visits.add(appointment.getDate(), appointment.getTimeslot(), appointment.getProvider());
+    }
+
+    /**
+     * Gets the patient's history of completed visits.
+     *
+     * @return the visit history, in date order
+     */
+    public VisitHistory getVisits() {
+        return visits;
     }
 
     /**
      * Calculates the total charge based on all completed visits.
-     * Each visit is charged according to the provider's specialty.
+     * Each visit is charged according to the provider's specialty; the history keeps the running total.
      *
      * @return the total charge for all completed visits
      */
     public int charge() {
-        int totalCharge = 0;
-        Visit current = visits;
-
-        // Traverse the linked list of visits and sum up the charges
-        while (current != null) {
-            totalCharge += current.getAppointment().getProvider().getSpecialty().getCharge();
-            current = current.getNext();  // Move to the next visit in the list
-        }
-
-        return totalCharge;
+        return visits.getTotalCharge();
     }
 
     /**
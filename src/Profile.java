@@ -1,6 +1,10 @@
 /**
  * Represents a profile in the RU Clinic Scheduler.
  * A profile contains a patient's first name, last name, and date of birth.
+ * A canonical key (case-folded names plus the packed date of birth) is computed once on construction
+ * and used for equality and hashing. The MedicalRecord interns one profile per patient and gives it the
+ * patient's id, which the patient's appointments carry and compare. Profiles themselves are compared by key,
+ * since profiles interned by different medical records may share an id.
  *
  * @authors Rithi and Shaili
  */
@@ -8,6 +12,12 @@ public class Profile implements Comparable<Profile> {
     private String fname;  // First name of the patient
     private String lname;  // Last name of the patient
     private Date dob;      // Date of birth of the patient
+    private String key;    // Canonical key: folded first name, folded last name, and packed dob
+    private int id = NO_ID; // Patient id given by the MedicalRecord that interned the profile
+
+    static final int NO_ID = -1;
+
+    private static final char SEPARATOR = '\u0000';  // Separates the parts of the canonical key
 
     /**
      * Constructor to create a profile with a first name, last name, and date of birth.
@@ -20,6 +30,91 @@ public class Profile implements Comparable<Profile> {
         this.fname = fname;
         this.lname = lname;
         this.dob = dob;
+        this.key = canonicalKey(fname, lname, dob);
+    }
+
+    /**
+     * Builds the canonical key of a profile. Two profiles have the same key exactly when their names
+     * are equal ignoring case and their dates of birth are equal.
+     *
+     * @param fname the first name of the patient
+     * @param lname the last name of the patient
+     * @param dob the date of birth of the patient
+     * @return the canonical key
+     */
+    private static String canonicalKey(String fname, String lname, Date dob) {
+        StringBuilder builder = new StringBuilder(fname.length() + lname.length() + 4);
+        for (int i = 0; i < fname.length(); i++) {
+            builder.append(fold(fname.charAt(i)));
+        }
+        builder.append(SEPARATOR);
+        for (int i = 0; i < lname.length(); i++) {
+            builder.append(fold(lname.charAt(i)));
+        }
+        int packedDob = dob.pack();
+        return builder.append(SEPARATOR).append((char) (packedDob >>> 16)).append((char) packedDob).toString();
+    }
+
+    /**
+     * Computes the hash code of the canonical key of a profile whose names are ranges of a character array,
+     * without building the key. It equals getKey().hashCode() of the same profile.
+     *
+     * @param chars the characters holding the names
+     * @param firstStart the index of the first character of the first name
+     * @param firstEnd the index just past the first name
+     * @param lastStart the index of the first character of the last name
+     * @param lastEnd the index just past the last name
+     * @param dob the date of birth of the patient
+     * @return the hash code of the canonical key
+     */
+    public static int keyHash(char[] chars, int firstStart, int firstEnd, int lastStart, int lastEnd, Date dob) {
+        int hash = 0;
+        for (int i = firstStart; i < firstEnd; i++) {
+            hash = 31 * hash + fold(chars[i]);
+        }
+        hash = 31 * hash + SEPARATOR;
+        for (int i = lastStart; i < lastEnd; i++) {
+            hash = 31 * hash + fold(chars[i]);
+        }
+        int packedDob = dob.pack();
+        hash = 31 * hash + SEPARATOR;
+        hash = 31 * hash + (char) (packedDob >>> 16);
+        return 31 * hash + (char) packedDob;
+    }
+
+    /**
+     * Checks if this profile has the names in two ranges of a character array, ignoring case, and a date of birth.
+     *
+     * @param chars the characters holding the names
+     * @param firstStart the index of the first character of the first name
+     * @param firstEnd the index just past the first name
+     * @param lastStart the index of the first character of the last name
+     * @param lastEnd the index just past the last name
+     * @param dob the date of birth of the patient
+     * @return true if the profile matches, false otherwise
+     */
+    public boolean matches(char[] chars, int firstStart, int firstEnd, int lastStart, int lastEnd, Date dob) {
+        int firstLength = firstEnd - firstStart;
+        if (key.length() != firstLength + lastEnd - lastStart + 4 || !this.dob.equals(dob)) {
+            return false;
+        }
+        for (int i = 0; i < firstLength; i++) {
+            if (key.charAt(i) != fold(chars[firstStart + i])) return false;
+        }
+        for (int i = lastStart; i < lastEnd; i++) {
+            if (key.charAt(firstLength + 1 + i - lastStart) != fold(chars[i])) return false;
+        }
+        return key.charAt(firstLength) == SEPARATOR;
+    }
+
+    /**
+     * Case-folds a character the same way equalsIgnoreCase() compares characters.
+     *
+     * @param c the character to fold
+     * @return the folded character
+     */
+    public static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
     }
 
     /**
@@ -46,9 +141,26 @@ public class Profile implements Comparable<Profile> {
         return dob;
     }
 
+    /**
+     * Gets the patient id given to the profile when a MedicalRecord interned it.
+     * @return the patient id, or NO_ID if the profile is not interned
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the patient id of a profile being interned by a MedicalRecord.
+     * @param id the patient id
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Checks if two Profile objects are equal.
      * Profiles are considered equal if the first name, last name, and date of birth match (case insensitive for names).
+     * Ids are not compared, since profiles interned by different medical records may share an id.
      * @param obj the object to compare
      * @return true if the profiles are equal, false otherwise
      */
@@ -56,10 +168,24 @@ public class Profile implements Comparable<Profile> {
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
-        Profile other = (Profile) obj;
-        return fname.equalsIgnoreCase(other.fname) &&
-                lname.equalsIgnoreCase(other.lname) &&
-                dob.equals(other.dob);
+        return key.equals(((Profile) obj).key);
+    }
+
+    /**
+     * Gets the canonical key of the profile.
+     * @return the canonical key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns a hash code consistent with equals(), taken from the canonical key.
+     * @return the hash code of the profile
+     */
+    @Override
+    public int hashCode() {
+        return key.hashCode();
     }
 
     /**
@@ -70,6 +196,8 @@ public class Profile implements Comparable<Profile> {
      */
     @Override
     public int compareTo(Profile other) {
+        if (this == other) return 0;  // The same interned patient
+
         int lnameComparison = this.lname.compareToIgnoreCase(other.lname);
         if (lnameComparison != 0) return lnameComparison;
 
@@ -0,0 +1,216 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * ProviderCalendar class - Tracks which timeslots each provider has booked on each day.
+ * Every (provider, day) pair has an 8-bit lane holding one bit per Timeslot, and eight days are packed
+ * into each long, so checking or updating a provider's availability takes constant time no matter how
+ * many appointments are on the calendar.
+ * The words are kept in segments of SEGMENT_DAYS days, each holding every provider's words for its days.
+ * A segment is created the first time one of its days is booked and never moves, so the calendar grows
+ * without copying words other threads may be updating.
+ * Finding a provider's next free timeslot masks off booked bits, weekend lanes, and days out of range a whole
+ * word at a time, so a six-month search reads a few dozen longs.
+ * Nothing is synchronized: the Scheduler's lock stripe for a (provider, day) pair guards that pair's lane, and
+ * a word is updated with a compare-and-set, since lanes of one word belong to different days and so to
+ * different stripes. Threads booking different providers or days never wait on each other here.
+ *
+ * @ Rithi and Shaili
+ */
+public class ProviderCalendar {
+
+    private final AtomicReferenceArray<AtomicLongArray> segments;  // Words of each segment, or null if none booked
+
+    private static final int DAYS_PER_WORD = 8;
+    private static final int BITS_PER_DAY = 8;
+    private static final int WORDS_PER_SEGMENT = 64;
+    private static final int SEGMENT_DAYS = WORDS_PER_SEGMENT * DAYS_PER_WORD;
+    private static final int PROVIDERS = Provider.values().length;
+    private static final int DAYS_PER_WEEK = 7;
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+    // First day of segment 0 and the number of segments, covering the first to the last date a Date can hold
+    private static final int FIRST_DAY = Math.floorDiv(new Date(1, 1, 1).toEpochDay(), SEGMENT_DAYS) * SEGMENT_DAYS;
+    private static final int SEGMENTS = (new Date(9999, 12, 31).toEpochDay() - FIRST_DAY) / SEGMENT_DAYS + 1;
+
+    /** The value nextFree returns when the provider has no free timeslot in the range. */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final long TIMESLOT_BITS = lanes((1L << TIMESLOTS.length) - 1);  // Every timeslot bit
+    private static final long[] WEEKDAY_LANES = new long[DAYS_PER_WEEK];  // Weekday lanes of a word, by its first day mod 7
+
+    static {
+        for (int start = 0; start < DAYS_PER_WEEK; start++) {
+            for (int lane = 0; lane < DAYS_PER_WORD; lane++) {
+                Date date = new Date(start + lane);
+                if (!date.isWeekend(date)) {
+                    WEEKDAY_LANES[start] |= 0xFFL << (lane * BITS_PER_DAY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor to create an empty calendar with no booked timeslots.
+     */
+    public ProviderCalendar() {
+        segments = new AtomicReferenceArray<>(SEGMENTS);
+    }
+
+    /**
+     * Checks if a provider has no appointment at a timeslot on a date.
+     *
+     * @param provider the provider to check.
+     * @param date the date to check.
+     * @param timeslot the timeslot to check.
+     * @return true if the provider is free, false otherwise.
+     */
+    public boolean isFree(Provider provider, Date date, Timeslot timeslot) {
+        int day = date.toEpochDay();
+        AtomicLongArray words = segment(day);
+        return words == null || (words.get(wordOf(provider, day)) & bit(day, timeslot)) == 0;
+    }
+
+    /**
+     * Marks a provider as booked at a timeslot on a date.
+     *
+     * @param provider the provider being booked.
+     * @param date the date of the appointment.
+     * @param timeslot the timeslot of the appointment.
+     */
+    public void book(Provider provider, Date date, Timeslot timeslot) {
+        int day = date.toEpochDay();
+        AtomicLongArray words = segment(day);
+        if (words == null) {
+            words = createSegment(day);
+        }
+        words.getAndAccumulate(wordOf(provider, day), bit(day, timeslot), (word, bit) -> word | bit);
+    }
+
+    /**
+     * Marks a provider as free again at a timeslot on a date.
+     *
+     * @param provider the provider whose appointment was removed.
+     * @param date the date of the appointment.
+     * @param timeslot the timeslot of the appointment.
+     */
+    public void release(Provider provider, Date date, Timeslot timeslot) {
+        int day = date.toEpochDay();
+        AtomicLongArray words = segment(day);
+        if (words != null) {
+            words.getAndAccumulate(wordOf(provider, day), bit(day, timeslot), (word, bit) -> word & ~bit);
+        }
+    }
+
+    /**
+     * Finds a provider's earliest free timeslot on a weekday in a range of days.
+     * Days in segments never booked have nothing booked, so their first timeslot is free.
+     *
+     * @param provider the provider to search.
+     * @param fromDay the epoch day to start searching from.
+     * @param toDay the last epoch day to search, inclusive.
+     * @return the free timeslot as epochDay * 8 + timeslot ordinal, decoded with dayOf and timeslotOf,
+     *         or NONE if every weekday timeslot in the range is booked.
+     */
+    public int nextFree(Provider provider, int fromDay, int toDay) {
+        int day = fromDay;
+        while (day <= toDay) {
+            int wordStart = Math.floorDiv(day, DAYS_PER_WORD) * DAYS_PER_WORD;
+            AtomicLongArray words = segment(wordStart);
+            long booked = words == null ? 0 : words.get(wordOf(provider, wordStart));
+            long free = ~booked & TIMESLOT_BITS & WEEKDAY_LANES[Math.floorMod(wordStart, DAYS_PER_WEEK)];
+            free &= -1L << ((day - wordStart) * BITS_PER_DAY);  // Drop lanes before the start day
+            int lastLane = toDay - wordStart;
+            if (lastLane < DAYS_PER_WORD - 1) {
+                free &= -1L >>> ((DAYS_PER_WORD - 1 - lastLane) * BITS_PER_DAY);  // Drop lanes after the last day
+            }
+            if (free != 0) {
+                return wordStart * BITS_PER_DAY + Long.numberOfTrailingZeros(free);
+            }
+            day = wordStart + DAYS_PER_WORD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Gets the epoch day of a timeslot found by nextFree.
+     *
+     * @param found a value returned by nextFree other than NONE.
+     * @return the epoch day.
+     */
+    public static int dayOf(int found) {
+        return Math.floorDiv(found, BITS_PER_DAY);
+    }
+
+    /**
+     * Gets the timeslot of a timeslot found by nextFree.
+     *
+     * @param found a value returned by nextFree other than NONE.
+     * @return the timeslot.
+     */
+    public static Timeslot timeslotOf(int found) {
+        return TIMESLOTS[Math.floorMod(found, BITS_PER_DAY)];
+    }
+
+    /**
+     * Helper method to repeat an 8-bit lane pattern across every day of a word.
+     *
+     * @param lane the pattern of one day.
+     * @return the pattern repeated in every lane.
+     */
+    private static long lanes(long lane) {
+        long word = 0;
+        for (int i = 0; i < DAYS_PER_WORD; i++) {
+            word |= lane << (i * BITS_PER_DAY);
+        }
+        return word;
+    }
+
+    /**
+     * Helper method to get the segment holding a day.
+     *
+     * @param epochDay the day.
+     * @return the words of the day's segment, or null if nothing was ever booked in it.
+     */
+    private AtomicLongArray segment(int epochDay) {
+        int segment = Math.floorDiv(epochDay - FIRST_DAY, SEGMENT_DAYS);
+        return segment < 0 || segment >= SEGMENTS ? null : segments.get(segment);
+    }
+
+    /**
+     * Helper method to create the segment holding a day, unless another thread just did.
+     *
+     * @param epochDay the day.
+     * @return the words of the day's segment.
+     * @throws IllegalArgumentException if the day is outside the dates a Date can hold.
+     */
+    private AtomicLongArray createSegment(int epochDay) {
+        int segment = Math.floorDiv(epochDay - FIRST_DAY, SEGMENT_DAYS);
+        if (segment < 0 || segment >= SEGMENTS) {
+            throw new IllegalArgumentException("Epoch day " + epochDay + " is not a calendar date");
+        }
+        segments.compareAndSet(segment, null, new AtomicLongArray(PROVIDERS * WORDS_PER_SEGMENT));
+        return segments.get(segment);
+    }
+
+    /**
+     * Helper method to find the word of a provider's segment holding a day.
+     *
+     * @param provider the provider.
+     * @param epochDay the day.
+     * @return the position of the word in the day's segment.
+     */
+    private static int wordOf(Provider provider, int epochDay) {
+        return provider.ordinal() * WORDS_PER_SEGMENT + (epochDay - FIRST_DAY) % SEGMENT_DAYS / DAYS_PER_WORD;
+    }
+
+    /**
+     * Helper method to get the bit of a timeslot within the word holding a day.
+     *
+     * @param epochDay the day.
+     * @param timeslot the timeslot.
+     * @return the single-bit mask of the timeslot on that day.
+     */
+    private static long bit(int epochDay, Timeslot timeslot) {
+        return 1L << ((epochDay - FIRST_DAY) % DAYS_PER_WORD * BITS_PER_DAY + timeslot.ordinal());
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * ReportBuffer class - A reusable, growable buffer of encoded report text.
+ * The parts of a report row that never change are encoded once: the time of each Timeslot, and the
+ * bracket naming each Provider's city, county, zip, and specialty. Dates and amounts are written digit by
+ * digit, and names byte by byte, so appending a row allocates nothing and parses no format string; once the
+ * buffer has grown to fit its rows, filling it again produces no garbage at all. The text is byte-for-byte
+ * what String.format and println() would print with the default charset and the default locale's grouping
+ * separator.
+ *
+ * @ Rithi and Shaili
+ */
+public class ReportBuffer {
+
+    private byte[] bytes;  // Encoded text, from index 0
+    private int length;    // Number of bytes of text
+
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final byte[][] TIMESLOTS = new byte[Timeslot.values().length][];
+    private static final byte[][] PROVIDERS = new byte[Provider.values().length][];
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+    private static final byte[] GROUPING_SEPARATOR = String.valueOf(
+            DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getGroupingSeparator()).getBytes(CHARSET);
+    private static final int CENTS_PER_DOLLAR = 100;
+    private static final int MAX_DIGITS = 20;  // Digits and sign of the longest long
+
+    static {
+        for (Timeslot timeslot : Timeslot.values()) {
+            TIMESLOTS[timeslot.ordinal()] = Appointment.forTimeslot(timeslot).getBytes(CHARSET);
+        }
+        for (Provider provider : Provider.values()) {
+            PROVIDERS[provider.ordinal()] = String.format("[%s, %s, %s %s, %s]",
+                    provider.getName(),
+                    provider.getLocation().getCity(),
+                    provider.getLocation().getCounty(),
+                    provider.getLocation().getZip(),
+                    provider.getSpecialty()).getBytes(CHARSET);
+        }
+    }
+
+    /**
+     * Constructor to create an empty buffer.
+     *
+     * @param capacity the number of bytes to make room for at first.
+     */
+    public ReportBuffer(int capacity) {
+        bytes = new byte[Math.max(capacity, MAX_DIGITS)];
+    }
+
+    /**
+     * Empties the buffer, keeping its room.
+     */
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * Gets the number of bytes in the buffer.
+     *
+     * @return the length of the text.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Writes the text to a stream. The bytes pass through as they are, already encoded.
+     *
+     * @param out the stream to write to.
+     */
+    public void writeTo(PrintStream out) {
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * Appends a row as Appointment.toString() formats it.
+     *
+     * @param appointment the appointment.
+     * @return this buffer.
+     */
+    public ReportBuffer appendAppointment(Appointment appointment) {
+        return appendAppointment(appointment.getDate(), appointment.getTimeslot(), appointment.getPatient(),
+                appointment.getProvider());
+    }
+
+    /**
+     * Appends a row as Appointment.toString() formats it, from the appointment's fields, so a store that
+     * keeps appointments as records can print one without building it.
+     *
+     * @param date the date of the appointment.
+     * @param timeslot the timeslot of the appointment.
+     * @param patient the patient's profile.
+     * @param provider the provider of the appointment.
+     * @return this buffer.
+     */
+    public ReportBuffer appendAppointment(Date date, Timeslot timeslot, Profile patient, Provider provider) {
+        appendDate(date).appendAscii(' ');
+        append(TIMESLOTS[timeslot.ordinal()]).appendAscii(' ');
+        appendProfile(patient).appendAscii(' ');
+        return append(PROVIDERS[provider.ordinal()]);
+    }
+
+    /**
+     * Appends a patient as Profile.toString() formats it: first name, last name, and date of birth.
+     *
+     * @param profile the patient's profile.
+     * @return this buffer.
+     */
+    public ReportBuffer appendProfile(Profile profile) {
+        append(profile.getFirstName()).appendAscii(' ');
+        append(profile.getLastName()).appendAscii(' ');
+        return appendDate(profile.getDateOfBirth());
+    }
+
+    /**
+     * Appends a date as Date.toString() formats it, mm/dd/yyyy without leading zeros on the month and day.
+     *
+     * @param date the date.
+     * @return this buffer.
+     */
+    public ReportBuffer appendDate(Date date) {
+        appendLong(date.getMonth()).appendAscii('/');
+        appendLong(date.getDay()).appendAscii('/');
+        int year = date.getYear();
+        for (int digits = year < 10 ? 1 : year < 100 ? 2 : year < 1000 ? 3 : 4; digits < 4; digits++) {
+            appendAscii('0');
+        }
+        return appendLong(year);
+    }
+
+    /**
+     * Appends an amount of cents as BillingStatement.formatDollars() formats it, with thousands separators.
+     *
+     * @param cents the amount in cents.
+     * @return this buffer.
+     */
+    public ReportBuffer appendDollars(long cents) {
+        long dollars = cents / CENTS_PER_DOLLAR;
+        int fraction = (int) Math.abs(cents % CENTS_PER_DOLLAR);
+        if (dollars < 0) {
+            appendAscii('-');
+        }
+        long rest = Math.abs(dollars);  // Never Long.MIN_VALUE, which is a hundred times larger than any dollars
+        int digits = 1;
+        long power = 1;
+        while (power <= rest / 10) {
+            power *= 10;
+            digits++;
+        }
+        for (; digits > 0; digits--, power /= 10) {
+            appendAscii((char) ('0' + rest / power % 10));
+            if (digits > 1 && (digits - 1) % 3 == 0) {
+                append(GROUPING_SEPARATOR);
+            }
+        }
+        return appendAscii('.').appendAscii((char) ('0' + fraction / 10)).appendAscii((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Appends a number in decimal.
+     *
+     * @param value the number.
+     * @return this buffer.
+     */
+    public ReportBuffer appendLong(long value) {
+        ensureRoom(MAX_DIGITS);
+        if (value < 0) {
+            bytes[length++] = '-';
+        }
+        int start = length;
+        do {
+            bytes[length++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        reverse(start, length);
+        return this;
+    }
+
+    /**
+     * Appends text. ASCII characters are copied byte by byte; text with any other character is encoded with
+     * the default charset.
+     *
+     * @param text the text.
+     * @return this buffer.
+     */
+    public ReportBuffer append(String text) {
+        int count = text.length();
+        ensureRoom(count);
+        for (int i = 0; i < count; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                length -= i;  // Start over and let the charset encode the whole text
+                return append(text.getBytes(CHARSET));
+            }
+            bytes[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    /**
+     * Appends bytes that are already encoded.
+     *
+     * @param encoded the bytes.
+     * @return this buffer.
+     */
+    public ReportBuffer append(byte[] encoded) {
+        ensureRoom(encoded.length);
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+        return this;
+    }
+
+    /**
+     * Appends one ASCII character.
+     *
+     * @param c the character.
+     * @return this buffer.
+     */
+    public ReportBuffer appendAscii(char c) {
+        ensureRoom(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Appends the line separator.
+     *
+     * @return this buffer.
+     */
+    public ReportBuffer appendLineSeparator() {
+        return append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Helper method to reverse a range of the buffer, for digits written lowest first.
+     *
+     * @param from the first index of the range.
+     * @param to the index just past the range.
+     */
+    private void reverse(int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            byte swap = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = swap;
+        }
+    }
+
+    /**
+     * Helper method to grow the buffer until it has room for more bytes.
+     *
+     * @param count the number of bytes to be appended.
+     */
+    private void ensureRoom(int count) {
+        if (bytes.length - length < count) {
+            byte[] larger = new byte[Math.max(bytes.length * 2, length + count)];
+            System.arraycopy(bytes, 0, larger, 0, length);
+            bytes = larger;
+        }
+    }
+}
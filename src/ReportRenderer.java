@@ -0,0 +1,138 @@
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ReportRenderer class - Formats the rows of a report in parallel and prints them in order.
+ * Rows are split into chunks of CHUNK_ROWS, and each chunk is formatted into its own ReportBuffer by a task on
+ * the common ForkJoinPool. The buffers are then written in chunk order, so the output is byte-for-byte what
+ * printing each row with println() would give. At most WINDOW_CHUNKS chunks are held at once, which bounds the
+ * memory used for a large report. Reports with fewer than CHUNK_ROWS rows are formatted on the calling thread.
+ * Each calling thread keeps its window of buffers from one report to the next, so once they have grown to fit
+ * their chunks, rendering a report allocates nothing per row.
+ * The rows must not change while a report is printed; the Scheduler holds every lock stripe meanwhile.
+ *
+ * @ Rithi and Shaili
+ */
+public class ReportRenderer {
+
+    /**
+     * Formats one row of a report.
+     */
+    public interface RowFormatter {
+
+        /**
+         * Appends the text of a row, without a line separator.
+         *
+         * @param row the position of the row in the report.
+         * @param line the buffer to append to.
+         */
+        void format(int row, ReportBuffer line);
+    }
+
+    private static final int CHUNK_ROWS = 1024;    // Rows formatted by one task
+    private static final int WINDOW_CHUNKS = 64;   // Chunks formatted before any are printed
+    private static final int ROW_LENGTH = 96;      // Typical length of a row, to size the buffers
+    // The window of buffers of each thread that prints reports; a buffer is created when first needed
+    private static final ThreadLocal<ReportBuffer[]> WINDOWS =
+            ThreadLocal.withInitial(() -> new ReportBuffer[WINDOW_CHUNKS]);
+
+    /**
+     * Prints every row of a report, each followed by a line separator.
+     *
+     * @param rows the number of rows.
+     * @param formatter the formatter of each row; it is called from pool threads, so it must only read.
+     * @param out the stream to print to.
+     */
+    public static void print(int rows, RowFormatter formatter, PrintStream out) {
+        ReportBuffer[] window = WINDOWS.get();
+        if (rows < CHUNK_ROWS) {
+            render(formatter, 0, rows, buffer(window, 0));
+            window[0].writeTo(out);
+            return;
+        }
+        int chunks = (rows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        for (int first = 0; first < chunks; first += WINDOW_CHUNKS) {
+            int last = Math.min(chunks, first + WINDOW_CHUNKS);
+            ForkJoinPool.commonPool().invoke(new RenderTask(formatter, rows, first, last, window));
+            for (int chunk = first; chunk < last; chunk++) {
+                window[chunk - first].writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Helper method to get a buffer of a window, creating it if it is the first time it is needed.
+     *
+     * @param window the window.
+     * @param i the position of the buffer in the window.
+     * @return the buffer.
+     */
+    private static ReportBuffer buffer(ReportBuffer[] window, int i) {
+        if (window[i] == null) {
+            window[i] = new ReportBuffer(CHUNK_ROWS * ROW_LENGTH);
+        }
+        return window[i];
+    }
+
+    /**
+     * Helper method to format a range of rows into a buffer, each followed by a line separator, replacing
+     * what the buffer held.
+     *
+     * @param formatter the formatter of each row.
+     * @param from the first row.
+     * @param to the row just past the last.
+     * @param text the buffer to fill.
+     */
+    private static void render(RowFormatter formatter, int from, int to, ReportBuffer text) {
+        text.clear();
+        for (int row = from; row < to; row++) {
+            formatter.format(row, text);
+            text.appendLineSeparator();
+        }
+    }
+
+    /**
+     * Task that formats a range of chunks, splitting it in half until one chunk is left.
+     */
+    private static class RenderTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RowFormatter formatter;  // Formatter of each row
+        private final int rows;                // Number of rows in the report
+        private final int first;               // First chunk of the task
+        private final int last;                // Chunk just past the task's last
+        private final ReportBuffer[] buffers;  // Buffers of the window, by chunk minus its first chunk
+
+        /**
+         * Constructor to create a task for a range of chunks.
+         *
+         * @param formatter the formatter of each row.
+         * @param rows the number of rows in the report.
+         * @param first the first chunk; the window starts at a multiple of WINDOW_CHUNKS.
+         * @param last the chunk just past the last.
+         * @param buffers the buffers of the window the chunks are in.
+         */
+        RenderTask(RowFormatter formatter, int rows, int first, int last, ReportBuffer[] buffers) {
+            this.formatter = formatter;
+            this.rows = rows;
+            this.first = first;
+            this.last = last;
+            this.buffers = buffers;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                invokeAll(new RenderTask(formatter, rows, first, middle, buffers),
+                        new RenderTask(formatter, rows, middle, last, buffers));
+                return;
+            }
+            int from = first * CHUNK_ROWS;
+            int to = Math.min(rows, from + CHUNK_ROWS);
+            render(formatter, from, to, buffer(buffers, first % WINDOW_CHUNKS));
+        }
+    }
+}
@@ -1,16 +1,78 @@
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Scanner;
+import java.util.concurrent.locks.ReentrantLock;
 
+// Safe to call from many threads at once. A command that changes the calendar locks only the stripe of the
+// provider and day it touches, and reports lock every stripe so they see no change half-applied.
+// Under the stripe, the duplicate check and the journal record are one atomic step on the store's mutex, which
+// is striped by patient and day. The provider calendar, the medical record, and the ledger take no lock shared
+// by every command, except to enroll a new patient or open a new billing statement; a kept journal appends
+// each record under its own lock.
 public class Scheduler {
     private MedicalRecord medicalRecord;
-    private List appointmentList;
+    private AppointmentStore appointmentList;
+    private ProviderCalendar providerCalendar;
+    private Ledger ledger;
+    private LockStripes locks;
+    private Journal journal;          // Log of successful S, C, and R commands, or null if none is kept
+    private boolean syncEachCommand;  // True to wait for each command's journal record to reach the disk
+    private final CommandStats stats; // Latency and outcome of every command run
+    private int visitsRecordedBefore = Integer.MIN_VALUE;  // Epoch day before which visits are recorded
+    // Each thread reuses its own parser and command for the lines it passes to execute()
+    private final ThreadLocal<CommandParser> parser = ThreadLocal.withInitial(CommandParser::new);
+    private final ThreadLocal<Command> command = ThreadLocal.withInitial(Command::new);
+
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Specialty[] SPECIALTIES = Specialty.values();
+    private static final Location[] LOCATIONS = Location.values();
+    private static final int LOCK_STRIPES = 256;
+    private static final long NOT_MOVED = -1;
+    private static final int VISIT_CHUNK = 1024;  // Most appointments recordVisits() holds at once
 
 
     // Constructor
     public Scheduler() {
-        this.medicalRecord = new MedicalRecord();
-        this.appointmentList = new List();
+        this(new MedicalRecord(), null);
+    }
+
+    // Create a scheduler whose appointments live in fixed-width records off the heap: in direct memory, or in
+    // a memory-mapped scratch file if storeFile is not null
+    public static Scheduler offHeap(Path storeFile) throws IOException {
+        MedicalRecord medicalRecord = new MedicalRecord();
+        return new Scheduler(medicalRecord, storeFile == null ? new OffHeapAppointmentStore(medicalRecord)
+                : new OffHeapAppointmentStore(medicalRecord, storeFile));
+    }
+
+    // Create a scheduler whose calendar is split into one store per location, so commands for providers at
+    // different locations change different stores and reports merge them. Each location's appointments live
+    // in direct memory if offHeap is true, or in a List otherwise.
+    public static Scheduler sharded(boolean offHeap) {
+        MedicalRecord medicalRecord = new MedicalRecord();
+        return new Scheduler(medicalRecord, new ShardedAppointmentStore(
+                offHeap ? () -> new OffHeapAppointmentStore(medicalRecord) : List::new));
+    }
+
+    // Constructor for a scheduler keeping its appointments in a given store, or in a List if it is null
+    private Scheduler(MedicalRecord medicalRecord, AppointmentStore appointmentStore) {
+        this.medicalRecord = medicalRecord;
+        this.appointmentList = appointmentStore == null ? new List() : appointmentStore;
+        this.providerCalendar = new ProviderCalendar();
+        this.ledger = new Ledger();
+        this.locks = new LockStripes(LOCK_STRIPES);
+        this.stats = new CommandStats(appointmentList, medicalRecord, ledger);
+    }
 
+    // Log every successful S, C, and R command to a journal. If syncEachCommand is true, a command's result is
+    // only reported once its record is on disk; otherwise the caller syncs the journal when it needs to.
+    public void setJournal(Journal journal, boolean syncEachCommand) {
+        this.journal = journal;
+        this.syncEachCommand = syncEachCommand;
     }
 
     // Entry point for running the scheduler and handling commands
@@ -30,208 +92,610 @@ public class Scheduler {
                 break;  // Quit the loop and stop execution
             }
 
-            handleCommand(input);  // Process user commands
+            execute(input, System.out);  // Process user commands
         }
 
         scanner.close();
     }
 
-    // Main handler for routing the commands
-    private void handleCommand(String input) {
-        String[] tokens = input.split(",");
-        if (tokens.length == 0) {
-            System.out.println("Invalid command.");
-            return;
+    // Process one command line, writing its results to the given stream
+    public void execute(String input, PrintStream out) {
+        Command command = this.command.get();
+        parser.get().parse(input, command);
+        execute(command, out);
+    }
+
+    // Process one parsed command, writing its results to the given stream, and record how long it took
+    public void execute(Command command, PrintStream out) {
+        long start = System.nanoTime();
+        try {
+            dispatch(command, out);
+        } finally {
+            stats.record(command.getType(), System.nanoTime() - start);
         }
-        String command = tokens[0].trim();
-        switch (command) {
-            case "S":
-                if (tokens.length < 7) {
-                    System.out.println("Invalid command.");
+    }
+
+    // Process a batch of parsed commands in order, each writing its results to its own stream, with the same
+    // results as calling execute() on each in turn. The timeslots and dates of every S command are checked in
+    // one pass first, and the patients they name are looked up in one pass over the medical record; a patient
+    // not found is enrolled when its command runs, so patients still get their ids in command order. The batch
+    // stops at the first command that throws, as a loop of execute() calls would: what it threw is stored in
+    // failures at its position, and the commands after it are not run. Returns the index just past the last
+    // command run, so a caller can run the rest with another call.
+    public int executeBatch(Command[] commands, PrintStream[] outs, RuntimeException[] failures, int from, int to) {
+        CommandStats.Reject[] invalid = new CommandStats.Reject[to];
+        Patient[] patients = new Patient[to];
+        boolean anyValid = false;
+        for (int i = from; i < to; i++) {
+            if (isSchedule(commands[i])) {
+                invalid[i] = checkSchedule(commands[i]);
+                anyValid |= invalid[i] == null;
+            }
+        }
+        if (anyValid) {
+            for (int i = from; i < to; i++) {
+                Command sInput = commands[i];
+                if (isSchedule(sInput) && invalid[i] == null) {
+                    patients[i] = sInput.findPatient(medicalRecord,
+                            new Date(sInput.getDobYear(), sInput.getDobMonth(), sInput.getDobDay()));
+                }
+            }
+        }
+        for (int i = from; i < to; i++) {
+            Command command = commands[i];
+            long start = System.nanoTime();
+            try {
+                if (!isSchedule(command)) {
+                    dispatch(command, outs[i]);
+                } else if (invalid[i] != null) {
+                    rejectSchedule(command, invalid[i], outs[i]);
+                } else {
+                    bookAppointment(command, patients[i], outs[i]);
+                }
+            } catch (RuntimeException e) {
+                failures[i] = e;
+                return i + 1;
+            } finally {
+                stats.record(command.getType(), System.nanoTime() - start);
+            }
+        }
+        return to;
+    }
+
+    // Check if a command is an S command with every token the handler needs
+    private static boolean isSchedule(Command command) {
+        return command.getType() == Command.Type.SCHEDULE && command.getTokenCount() > Command.PROVIDER;
+    }
+
+    // Run the handler of a parsed command
+    private void dispatch(Command command, PrintStream out) {
+        switch (command.getType()) {
+            case SCHEDULE:
+                if (command.getTokenCount() <= Command.PROVIDER) {
+                    reject(command, CommandStats.Reject.INVALID_COMMAND);
+                    out.println("Invalid command.");
+                    return;
+                }
+                scheduleAppointment(command, out);
+                break;
+            case CANCEL:
+                if (command.getTokenCount() <= Command.PROVIDER) {
+                    reject(command, CommandStats.Reject.INVALID_COMMAND);
+                    out.println("Invalid command.");
                     return;
                 }
-                scheduleAppointment(tokens);
+                cancelAppointment(command, out);
                 break;
-            case "C":
-                cancelAppointment(tokens);
+            case RESCHEDULE:
+                if (command.getTokenCount() <= Command.NEW_TIMESLOT) {
+                    reject(command, CommandStats.Reject.INVALID_COMMAND);
+                    out.println("Invalid command.");
+                    return;
+                }
+                rescheduleAppointment(command, out);
                 break;
-            case "R":
-                rescheduleAppointment(tokens);
+            case PRINT_BY_APPOINTMENT:
+            case PRINT_BY_PATIENT:
+            case PRINT_BY_LOCATION:
+                printReport(command, out);
                 break;
-            case "PA":
-                printByAppointment();
+            case PRINT_BILLING:
+                printBillingStatements(out);
                 break;
-            case "PP":
-                printByPatient();
+            case NEXT_AVAILABLE:
+                findNextAvailable(command, out);
                 break;
-            case "PL":
-                printByLocation();
+            case STATS:
+                out.print(stats.getReport());
                 break;
-            case "PS":
-                printBillingStatements();
+            case EMPTY:
+                break;  // Ignore empty input
+            case TOO_LONG:
+                reject(command, CommandStats.Reject.LINE_TOO_LONG);
+                out.println("Command is longer than " + Command.MAX_LENGTH + " characters.");
                 break;
             default:
-                System.out.println("Invalid command!");
+                reject(command, CommandStats.Reject.INVALID_COMMAND);
+                out.println("Invalid command!");
         }
     }
 
+    // Count a command as rejected for a reason
+    private void reject(Command command, CommandStats.Reject reason) {
+        stats.reject(command.getType(), reason);
+    }
+
+    // Get the latency histograms, reject counters, and structure sizes of the commands run so far
+    public CommandStats getStats() {
+        return stats;
+    }
+
     // Method to process the scheduling of an appointment ("S" command)
-    private void scheduleAppointment(String[] sInput) {
-        String dateInput = sInput[1].trim();
-        String timeslotInput = sInput[2].trim();
-        String firstName = sInput[3].trim();
-        String lastName = sInput[4].trim();
-        String dobInput = sInput[5].trim();
-        String providerLastName = sInput[6].trim();
-
-        Date appointmentDate = parseDate(dateInput);
-        boolean validAppDate = appointmentDate.isValid();
-        Date dob = parseDate(dobInput);
-        boolean validDob = dob.isValid();
-        Timeslot timeslot = parseTimeslot(timeslotInput);
-        if (timeslot == null) {
-            System.out.println(timeslotInput +" is not a valid time slot.");
+    private void scheduleAppointment(Command sInput, PrintStream out) {
+        CommandStats.Reject invalid = checkSchedule(sInput);
+        if (invalid != null) {
+            rejectSchedule(sInput, invalid, out);
             return;
         }
+        bookAppointment(sInput, null, out);
+    }
 
-        if (!validAppDate || !validDob) {
-            if (!validAppDate) System.out.println("Appointment date: "+ dateInput+" is not a valid calendar date.");
-            if (!validDob) System.out.println("Patient dob: " +dobInput+" is not a valid calendar date.");
-            return;
+    // Check the timeslot and dates of an S command, in the order their errors are reported. Returns null if
+    // they are all valid, or the reason the command is rejected.
+    private CommandStats.Reject checkSchedule(Command sInput) {
+        if (toTimeslot(sInput.getSlot()) == null) {
+            return CommandStats.Reject.INVALID_TIMESLOT;
+        }
+        Date appointmentDate = new Date(sInput.getYear(), sInput.getMonth(), sInput.getDay());
+        Date dob = new Date(sInput.getDobYear(), sInput.getDobMonth(), sInput.getDobDay());
+        if (!appointmentDate.isValid() || !dob.isValid()) {
+            return CommandStats.Reject.INVALID_DATE;
         }
         if(dob.isAfterToday()){
-            System.out.println("Patient dob: " +dobInput+" is a date after today.");
-            return;
+            return CommandStats.Reject.DOB_AFTER_TODAY;
         }
         if(appointmentDate.isBeforeToday()){
-            System.out.println("Appointment date: "+ dateInput+" is today or a date before today.");
-            return;
+            return CommandStats.Reject.DATE_NOT_AFTER_TODAY;
         }
         if(!appointmentDate.isWithinSixMonths(appointmentDate)){
-            System.out.println("Appointment date: "+ dateInput+" is not within six months.");
-            return;
+            return CommandStats.Reject.DATE_BEYOND_SIX_MONTHS;
         }
         if(appointmentDate.isWeekend(appointmentDate)){
-            System.out.println("Appointment date: "+ dateInput+" is Saturday or Sunday.");
-            return;
+            return CommandStats.Reject.WEEKEND;
+        }
+        return null;
+    }
+
+    // Count an S command as rejected by checkSchedule() and print why
+    private void rejectSchedule(Command sInput, CommandStats.Reject reason, PrintStream out) {
+        reject(sInput, reason);
+        switch (reason) {
+            case INVALID_TIMESLOT:
+                out.println(sInput.token(Command.TIMESLOT) +" is not a valid time slot.");
+                break;
+            case INVALID_DATE:
+                if (!new Date(sInput.getYear(), sInput.getMonth(), sInput.getDay()).isValid()) {
+                    out.println("Appointment date: "+ sInput.token(Command.DATE)+" is not a valid calendar date.");
+                }
+                if (!new Date(sInput.getDobYear(), sInput.getDobMonth(), sInput.getDobDay()).isValid()) {
+                    out.println("Patient dob: " +sInput.token(Command.DOB)+" is not a valid calendar date.");
+                }
+                break;
+            case DOB_AFTER_TODAY:
+                out.println("Patient dob: " +sInput.token(Command.DOB)+" is a date after today.");
+                break;
+            case DATE_NOT_AFTER_TODAY:
+                out.println("Appointment date: "+ sInput.token(Command.DATE)+" is today or a date before today.");
+                break;
+            case DATE_BEYOND_SIX_MONTHS:
+                out.println("Appointment date: "+ sInput.token(Command.DATE)+" is not within six months.");
+                break;
+            default:
+                out.println("Appointment date: "+ sInput.token(Command.DATE)+" is Saturday or Sunday.");
+        }
+    }
+
+    // Book an S command that passed checkSchedule(). The patient may have been looked up already; if it is
+    // null, the patient is looked up here, and enrolled if new.
+    private void bookAppointment(Command sInput, Patient patient, PrintStream out) {
+        Date appointmentDate = new Date(sInput.getYear(), sInput.getMonth(), sInput.getDay());
+        Date dob = new Date(sInput.getDobYear(), sInput.getDobMonth(), sInput.getDobDay());
+        Timeslot timeslot = toTimeslot(sInput.getSlot());
+        Profile patientProfile = new Profile(sInput.token(Command.FIRST_NAME), sInput.token(Command.LAST_NAME), dob);
+        if (patient == null) {
+            patient = getOrCreatePatient(patientProfile);
         }
-        Profile patientProfile = new Profile(firstName, lastName, dob);
-        Patient patient = getOrCreatePatient(patientProfile);
-        Provider provider = findProvider(providerLastName);
+        Provider provider = sInput.getProvider();
         if (provider == null) {
-            System.out.println(providerLastName+ " - provider doesn't exist.");
+            reject(sInput, CommandStats.Reject.UNKNOWN_PROVIDER);
+            out.println(sInput.token(Command.PROVIDER)+ " - provider doesn't exist.");
             return;
         }
-        if (!isProviderFreeForTimeslot(provider, timeslot)) {
-            System.out.println(provider.toString() + " is not available at slot "+ timeslotInput+ ".");
-            return;
+        // Store the patient's interned profile, shared by all of the patient's appointments
+        Appointment newAppointment = new Appointment(appointmentDate, timeslot, patient.getProfile(), provider);
+        long journaled;
+        ReentrantLock stripe = locks.stripe(provider, appointmentDate);
+        stripe.lock();
+        try {
+            if (!isProviderFreeForTimeslot(provider, appointmentDate, timeslot)) {
+                reject(sInput, CommandStats.Reject.PROVIDER_BUSY);
+                out.println(provider.toString() + " is not available at slot "+ sInput.token(Command.TIMESLOT)+ ".");
+                return;
+            }
+            synchronized (appointmentList.mutex(newAppointment)) {  // Journal the add in the order the list made it
+                if (!appointmentList.addIfAbsent(newAppointment)) {
+                    reject(sInput, CommandStats.Reject.DUPLICATE);
+                    out.println(patientProfile.toString()+ " has an existing appointment at the same time slot.");
+                    return;
+                }
+                journaled = journal == null ? 0 : journal.schedule(newAppointment);
+            }
+            charge(newAppointment, patient);
+        } finally {
+            stripe.unlock();
         }
-        Appointment newAppointment = new Appointment(appointmentDate, timeslot, patientProfile, provider);
-        if (appointmentList.contains(newAppointment)) {
-            System.out.println(patientProfile.toString()+ " has an existing appointment at the same time slot.");
+        awaitDurable(journaled);
+
+        out.println( new Appointment(appointmentDate, timeslot, patientProfile, provider).toString()+ " booked.");
+    }
+
+    // Method to process the 'N' command: find the earliest timeslot an S command could book, optionally
+    // narrowed by a provider, a specialty, and a county, each given at most once in any order
+    private void findNextAvailable(Command nInput, PrintStream out) {
+        Provider provider = null;
+        Specialty specialty = null;
+        String county = null;
+        for (int i = 1; i < nInput.getTokenCount(); i++) {
+            Provider namedProvider = null;
+            for (Provider p : PROVIDERS) {
+                if (nInput.tokenEquals(i, p.getName())) namedProvider = p;
+            }
+            Specialty namedSpecialty = null;
+            for (Specialty sp : SPECIALTIES) {
+                if (nInput.tokenEquals(i, sp.name())) namedSpecialty = sp;
+            }
+            String namedCounty = null;
+            for (Location location : LOCATIONS) {
+                if (nInput.tokenEquals(i, location.getCounty())) namedCounty = location.getCounty();
+            }
+            if (namedProvider != null && provider == null) {
+                provider = namedProvider;
+            } else if (namedSpecialty != null && specialty == null) {
+                specialty = namedSpecialty;
+            } else if (namedCounty != null && county == null) {
+                county = namedCounty;
+            } else if (namedProvider == null && namedSpecialty == null && namedCounty == null) {
+                reject(nInput, CommandStats.Reject.INVALID_FILTER);
+                out.println(nInput.token(i) + " - not a provider, specialty, or county.");
+                return;
+            } else {
+                reject(nInput, CommandStats.Reject.INVALID_COMMAND);
+                out.println("Invalid command.");  // The same kind of filter was given twice
+                return;
+            }
+        }
+        Appointment available = nextAvailable(provider, specialty, county);
+        if (available == null) {
+            reject(nInput, CommandStats.Reject.NO_AVAILABILITY);
+            out.println("No available time slot within six months.");
             return;
         }
-        appointmentList.add(newAppointment);
-
-        System.out.println( new Appointment(appointmentDate, timeslot, patientProfile, provider).toString()+ " booked.");
+        Provider found = available.getProvider();
+        out.printf("Next available: %s %s [%s, %s, %s %s, %s]%n",
+                available.getDate(),
+                Appointment.forTimeslot(available.getTimeslot()),
+                found.getName(),
+                found.getLocation().getCity(),
+                found.getLocation().getCounty(),
+                found.getLocation().getZip(),
+                found.getSpecialty());
     }
 
-    // Validate and parse a date string in MM/DD/YYYY format
-    private Date parseDate(String dateString) {
-        String[] parts = dateString.split("/");
+    // Find the earliest free timeslot an S command could book: a weekday after today and within six months.
+    // A null provider, specialty, or county matches every provider; ties go to the provider listed first.
+    // Returns an appointment with no patient holding the date, timeslot, and provider, or null if every
+    // matching provider is booked through the horizon. Nothing is reserved, so a later S command may still lose
+    // the timeslot to another booking.
+    public Appointment nextAvailable(Provider provider, Specialty specialty, String county) {
+        int fromDay = Date.today().toEpochDay() + 1;
+        int toDay = Date.sixMonthsFromNow().toEpochDay();
+        int best = ProviderCalendar.NONE;
+        Provider bestProvider = null;
+        for (Provider p : PROVIDERS) {
+            if ((provider != null && p != provider) || (specialty != null && p.getSpecialty() != specialty)
+                    || (county != null && !p.getLocation().getCounty().equalsIgnoreCase(county))) {
+                continue;
+            }
+            int found = providerCalendar.nextFree(p, fromDay, toDay);
+            if (found != ProviderCalendar.NONE && (best == ProviderCalendar.NONE || found < best)) {
+                best = found;
+                bestProvider = p;
+                toDay = ProviderCalendar.dayOf(found);  // Later providers only matter if they are free sooner
+            }
+        }
+        if (best == ProviderCalendar.NONE) {
+            return null;
+        }
+        return new Appointment(new Date(ProviderCalendar.dayOf(best)), ProviderCalendar.timeslotOf(best), null,
+                bestProvider);
+    }
 
-        int month = Integer.parseInt(parts[0].trim());
-        int day = Integer.parseInt(parts[1].trim());
-        int year = Integer.parseInt(parts[2].trim());
+    // Add an appointment without the date checks of the S command, such as when loading a calendar built earlier.
+    // Returns false if the provider is booked or the patient already has an appointment at that date and timeslot.
+    public boolean restore(Appointment appointment) {
+        ReentrantLock stripe = locks.stripe(appointment.getProvider(), appointment.getDate());
+        stripe.lock();
+        try {
+            if (!isProviderFreeForTimeslot(appointment.getProvider(), appointment.getDate(), appointment.getTimeslot())) {
+                return false;
+            }
+            Patient patient = getOrCreatePatient(appointment.getPatient());
+            if (appointment.getPatientId() != patient.getProfile().getId()) {
+                appointment.intern(patient.getProfile());  // Carry the patient's id like every stored appointment
+            }
+            return book(appointment, patient);
+        } finally {
+            stripe.unlock();
+        }
+    }
 
-        return new Date(year, month, day);
+    // Restore many appointments at once, sorting the print and billing orders once at the end instead of
+    // inserting each appointment into them. Returns the number of appointments restored.
+    public int restoreAll(Appointment[] appointments, int count) {
+        beginRestore(count);
+        int restored = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                if (restore(appointments[i])) {
+                    restored++;
+                }
+            }
+        } finally {
+            endRestore();
+        }
+        return restored;
     }
 
+    // Start a bulk restore of about count appointments, for loaders that read appointments one at a time and
+    // hand each to restore() or discard(), such as a snapshot or journal replay. Every stripe is held and the
+    // print and billing orders are sorted once in endRestore(), which must follow.
+    public void beginRestore(int count) {
+        locks.lockAll();
+        try {
+            appointmentList.ensureCapacity(appointmentList.size() + count);
+            appointmentList.beginBulkLoad();
+        } catch (RuntimeException e) {
+            locks.unlockAll();
+            throw e;
+        }
+    }
 
-    // Parse timeslot from string to enum
-    private Timeslot parseTimeslot(String timeslotInput) {
+    // End a bulk restore started by beginRestore()
+    public void endRestore() {
         try {
-            Integer.parseInt(timeslotInput);
-        } catch (NumberFormatException e) {
+            appointmentList.endBulkLoad();
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    // Remove a stored appointment without the checks of the C command, such as when replaying a journal,
+    // releasing its provider's timeslot and crediting its patient. The probe's provider may be null.
+    // Returns the removed appointment, or null if none was stored.
+    public Appointment discard(Appointment probe) {
+        Appointment stored = lockStored(probe);
+        if (stored == null) {
             return null;
         }
+        try {
+            appointmentList.remove(stored);
+            providerCalendar.release(stored.getProvider(), stored.getDate(), stored.getTimeslot());
+            ledger.credit(medicalRecord.findPatient(stored.getPatient()), stored.getProvider().getSpecialty());
+        } finally {
+            locks.stripe(stored.getProvider(), stored.getDate()).unlock();
+        }
+        return stored;
+    }
+
+    // Record an appointment whose provider is free in the list, the provider calendar, and the patient's
+    // billing statement. The caller holds the provider's stripe for the day. Returns false, changing nothing,
+    // if the patient already has an appointment at that date and timeslot.
+    private boolean book(Appointment appointment, Patient patient) {
+        if (!appointmentList.addIfAbsent(appointment)) {
+            return false;
+        }
+        charge(appointment, patient);
+        return true;
+    }
+
+    // Mark the provider of a listed appointment as booked and charge the patient for it
+    private void charge(Appointment appointment, Patient patient) {
+        providerCalendar.book(appointment.getProvider(), appointment.getDate(), appointment.getTimeslot());
+        ledger.charge(patient, appointment.getProvider().getSpecialty());
+    }
 
-        switch (Integer.parseInt(timeslotInput)) {
-            case 1: return Timeslot.SLOT1;
-            case 2: return Timeslot.SLOT2;
-            case 3: return Timeslot.SLOT3;
-            case 4: return Timeslot.SLOT4;
-            case 5: return Timeslot.SLOT5;
-            case 6: return Timeslot.SLOT6;
-            default: return null;
+    // Wait until a journal record is on disk before its command's result is reported, if the journal is synced
+    // for each command
+    private void awaitDurable(long journaled) {
+        if (journal == null || !syncEachCommand) {
+            return;
         }
+        try {
+            journal.awaitDurable(journaled);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the journal", e);
+        }
+    }
 
+    // Force every journaled command to disk, for callers that do not sync the journal after each command
+    // and must before reporting results, such as a server answering a round of commands at once
+    public void syncJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the journal", e);
+        }
     }
 
-    // Retrieve a provider by their last name
-    private Provider findProvider(String providerLastName) {
-        for (Provider provider : Provider.values()) {
-            if (provider.getName().equalsIgnoreCase(providerLastName)) {
-                return provider;
+    // Capture the calendar and patient registry with no command half-applied, along with the journal position
+    // they match
+    public Snapshot snapshot() {
+        locks.lockAll();
+        try {
+            synchronized (medicalRecord) {  // No patient is enrolled between reading the patients and the journal
+                // The rows go straight from the store to an off-heap buffer, never through Appointment objects
+                ByteBuffer rows = ByteBuffer.allocateDirect(appointmentList.size() * Snapshot.ROW_SIZE);
+                appointmentList.writeRows(rows);
+                rows.flip();
+                return new Snapshot(medicalRecord.getProfiles(), rows, journal == null ? 0 : journal.position());
             }
+        } finally {
+            locks.unlockAll();
         }
-        return null;  // Provider not found
     }
 
-    // Get an existing patient or create a new one if they don't exist
-    private Patient getOrCreatePatient(Profile profile) {
-        Patient existingPatient = medicalRecord.findPatient(profile);
-        if (existingPatient != null) {
-            return existingPatient;
+    // Add the appointments dated before a day to their patients' visit histories, as completed visits. Each
+    // appointment is added once: a later call only adds the ones dated on or after the day of the call before
+    // it. Main calls this when the calendar is loaded and again at each midnight. Once recorded, an appointment
+    // can no longer be canceled or rescheduled, so its visit stays in step with the calendar.
+    public void recordVisits(Date before) {
+        locks.lockAll();
+        try {
+            if (before.toEpochDay() <= visitsRecordedBefore) {
+                return;
+            }
+            Date from = visitsRecordedBefore == Integer.MIN_VALUE ? null : new Date(visitsRecordedBefore);
+            Date to = new Date(before.toEpochDay() - 1);
+            // Walk the past in date order, so each history only ever appends, VISIT_CHUNK appointments at a
+            // time. A day holds fewer appointments than a chunk, so each chunk but the last ends with a whole
+            // day before its last one, and the next chunk starts on that last day.
+            while (true) {
+                AppointmentQuery past = new AppointmentQuery(from, to, null, null, null, 0, VISIT_CHUNK);
+                Appointment[] visits = appointmentList.select(AppointmentIndex.BY_APPOINTMENT, past, VISIT_CHUNK);
+                int count = visits.length;
+                if (count == VISIT_CHUNK) {
+                    from = visits[count - 1].getDate();
+                    while (visits[count - 1].getDate().equals(from)) {
+                        count--;
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    medicalRecord.findPatient(visits[i].getPatient()).addVisit(visits[i]);
+                }
+                if (visits.length < VISIT_CHUNK) {
+                    break;
+                }
+            }
+            visitsRecordedBefore = before.toEpochDay();
+        } finally {
+            locks.unlockAll();
         }
+    }
 
-        // Create and add a new patient
-        Patient newPatient = new Patient(profile);
-        medicalRecord.add(newPatient);
-        return newPatient;
+    // Check if an appointment date is before the day recordVisits() last recorded up to, so it is a visit
+    // already made. The caller holds a stripe, which recordVisits() also takes.
+    private boolean isVisitMade(Date date) {
+        return date.toEpochDay() < visitsRecordedBefore;
     }
 
-    // Check if the provider is available for a given timeslot
-    private boolean isProviderFreeForTimeslot(Provider provider, Timeslot timeslot) {
-        // Add specific logic here if necessary; assuming providers are always free
-        return true;
+    // Get the medical record of every patient the scheduler has seen
+    public MedicalRecord getMedicalRecord() {
+        return medicalRecord;
     }
 
-    // Method to process the 'C' command to cancel an appointment
-    private void cancelAppointment(String[] tokens) {
+    // Get the number of appointments on the calendar
+    public int size() {
+        return appointmentList.size();
+    }
 
-        // Extract and parse the data tokens
-        String dateInput = tokens[1].trim();   // Appointment date
-        String timeslotInput = tokens[2].trim();  // Timeslot
-        String firstName = tokens[3].trim();   // Patient's first name
-        String lastName = tokens[4].trim();    // Patient's last name
-        String dobInput = tokens[5].trim();    // Patient's date of birth
-        String providerLastName = tokens[6].trim();  // Provider's last name
+    // Map a timeslot number from 1 to 6 to its enum, or null if there is no such timeslot
+    private Timeslot toTimeslot(int number) {
+        if (number < 1 || number > TIMESLOTS.length) {
+            return null;
+        }
+        return TIMESLOTS[number - 1];
+    }
 
-        // Step 1: Parse the appointment date and patient's date of birth
-        Date appointmentDate = parseDate(dateInput);
-        Date dob = parseDate(dobInput);
+    // Get an existing patient or create a new one if they don't exist. New patients are journaled in id order,
+    // so replaying the journal gives every patient the same id again.
+    private Patient getOrCreatePatient(Profile profile) {
+        if (journal == null) {
+            return medicalRecord.getOrCreate(profile);
+        }
+        Patient existing = medicalRecord.findPatient(profile);
+        if (existing != null) {
+            return existing;  // Only enrolling a new patient waits for the record's monitor
+        }
+        synchronized (medicalRecord) {
+            int enrolled = medicalRecord.size();
+            Patient patient = medicalRecord.getOrCreate(profile);
+            if (medicalRecord.size() > enrolled) {
+                journal.enroll(patient.getProfile());
+            }
+            return patient;
+        }
+    }
+
+    // Check if the provider is available for a given timeslot on a date
+    private boolean isProviderFreeForTimeslot(Provider provider, Date date, Timeslot timeslot) {
+        return providerCalendar.isFree(provider, date, timeslot);
+    }
+
+    // Method to process the 'C' command to cancel an appointment
+    private void cancelAppointment(Command tokens, PrintStream out) {
 
-        // Step 2: Parse the timeslot (index from 1 to 6)
-        Timeslot timeslot = parseTimeslot(timeslotInput);
+        // Step 1: Build the appointment date and patient's date of birth
+        Date appointmentDate = new Date(tokens.getYear(), tokens.getMonth(), tokens.getDay());
+        Date dob = new Date(tokens.getDobYear(), tokens.getDobMonth(), tokens.getDobDay());
 
-        // Step 4: Create the patient's profile using the provided details
-        Profile patientProfile = new Profile(firstName, lastName, dob);
-        Provider provider= findProvider(providerLastName);
+        // Step 2: Look up the timeslot (index from 1 to 6)
+        Timeslot timeslot = toTimeslot(tokens.getSlot());
+        if (timeslot == null) {
+            reject(tokens, CommandStats.Reject.INVALID_TIMESLOT);
+            out.println(tokens.token(Command.TIMESLOT) + " is not a valid time slot.");
+            return;
+        }
 
-        // Step 5: Search for the appointment in the appointment list
-        Appointment appointmentToCancel = new Appointment(appointmentDate, timeslot, patientProfile, provider);
-        boolean listContains= appointmentList.contains(appointmentToCancel);
+        // Step 4: Look up the patient from the name tokens; a patient never enrolled has no appointments
+        String firstName = tokens.token(Command.FIRST_NAME);
+        String lastName = tokens.token(Command.LAST_NAME);
+        Patient patient = tokens.findPatient(medicalRecord, dob);
+        Provider provider= tokens.getProvider();
+
+        // Step 5: Search for the appointment in the appointment list and remove it under its provider's stripe
+        Appointment storedAppointment = patient == null ? null
+                : lockStored(new Appointment(appointmentDate, timeslot, patient.getProfile(), provider));
 
         String forTime= Appointment.forTimeslot(timeslot);
 
-        if (listContains) {
-            appointmentList.remove(appointmentToCancel);  // Remove the appointment
-            System.out.printf("%s %s %s %s has been canceled.%n",
+        if (storedAppointment != null && isVisitMade(appointmentDate)) {
+            locks.stripe(storedAppointment.getProvider(), appointmentDate).unlock();
+            reject(tokens, CommandStats.Reject.VISIT_MADE);
+            out.printf("%s %s %s %s is a visit already made and cannot be canceled.%n",
                     formatDate(appointmentDate), forTime, firstName + " " + lastName, formatDate(dob));
-        } else {
-            System.out.printf("%s %s %s %s does not exist.%n",
+        } else if (storedAppointment != null) {
+            long journaled;
+            try {
+                synchronized (appointmentList.mutex(storedAppointment)) {  // Journal the removal in the order the list made it
+                    appointmentList.remove(storedAppointment);  // Remove the appointment
+                    journaled = journal == null ? 0 : journal.cancel(storedAppointment);
+                }
+                providerCalendar.release(storedAppointment.getProvider(), appointmentDate, timeslot);
+                ledger.credit(patient, storedAppointment.getProvider().getSpecialty());
+            } finally {
+                locks.stripe(storedAppointment.getProvider(), appointmentDate).unlock();
+            }
+            awaitDurable(journaled);
+            out.printf("%s %s %s %s has been canceled.%n",
                     formatDate(appointmentDate), forTime, firstName + " " + lastName, formatDate(dob));
+        } else {
+            reject(tokens, CommandStats.Reject.NOT_FOUND);
+            out.printf("%s %s %s %s does not exist.%n",
+                    formatDate(appointmentDate, tokens.token(Command.DATE)), forTime, firstName + " " + lastName,
+                    formatDate(dob, tokens.token(Command.DOB)));
         }
     }
 
@@ -239,141 +703,339 @@ public class Scheduler {
     private String formatDate(Date date) {
         return String.format("%d/%d/%d", date.getMonth(), date.getDay(), date.getYear());
     }
-    public void rescheduleAppointment(String[] sInput) {
-        String dateInput = sInput[1].trim();
-        String originalTimeslotInput = sInput[2].trim();
-        String firstName = sInput[3].trim();
-        String lastName = sInput[4].trim();
-        String dobInput = sInput[5].trim();
-        String newTimeslotInput = sInput[6].trim();
 
-        Date appointmentDate = parseDate(dateInput);
-        Timeslot originalTimeslot = parseTimeslot(originalTimeslotInput);
-        Timeslot newTimeslot = parseTimeslot(newTimeslotInput);
-        Date dob = parseDate(dobInput);
+    // Format a date as MM/DD/YYYY, falling back to the text it was typed as if it is not a calendar date
+    private String formatDate(Date date, String input) {
+        return date.isValid() ? formatDate(date) : input;
+    }
+    public void rescheduleAppointment(Command sInput, PrintStream out) {
+        String dateInput = sInput.token(Command.DATE);
+        String firstName = sInput.token(Command.FIRST_NAME);
+        String lastName = sInput.token(Command.LAST_NAME);
+        String dobInput = sInput.token(Command.DOB);
 
-        Profile patientProfile = new Profile(firstName, lastName, dob);
-        Appointment existingAppointment = findAppointment(appointmentDate, originalTimeslot, patientProfile);
+        Date appointmentDate = new Date(sInput.getYear(), sInput.getMonth(), sInput.getDay());
+        Timeslot originalTimeslot = toTimeslot(sInput.getSlot());
+        Timeslot newTimeslot = toTimeslot(sInput.getNewSlot());
+        Date dob = new Date(sInput.getDobYear(), sInput.getDobMonth(), sInput.getDobDay());
+        if (originalTimeslot == null) {
+            reject(sInput, CommandStats.Reject.INVALID_TIMESLOT);
+            out.println(sInput.token(Command.TIMESLOT) + " is not a valid time slot.");
+            return;
+        }
+
+        Patient patient = sInput.findPatient(medicalRecord, dob);
+        Appointment existingAppointment = patient == null ? null
+                : lockStored(new Appointment(appointmentDate, originalTimeslot, patient.getProfile(), null));
 
         if (existingAppointment == null) {
-            System.out.printf("%s %s %s %s does not exist.%n", dateInput, Appointment.forTimeslot(originalTimeslot), firstName + " " + lastName, dobInput);
+            reject(sInput, CommandStats.Reject.NOT_FOUND);
+            out.printf("%s %s %s %s does not exist.%n", dateInput, Appointment.forTimeslot(originalTimeslot), firstName + " " + lastName, dobInput);
+            return;
+        }
+        ReentrantLock stripe = locks.stripe(existingAppointment.getProvider(), appointmentDate);
+        long journaled;
+        try {
+            journaled = moveAppointment(existingAppointment, newTimeslot, dob, sInput, out);
+        } finally {
+            stripe.unlock();
+        }
+        if (journaled == NOT_MOVED) {
             return;
         }
+        awaitDurable(journaled);
+        Provider provider = existingAppointment.getProvider();
+        out.printf("Rescheduled to %s %s %s [%s, %s, %s %s, %s]%n",
+                dateInput,
+                Appointment.forTimeslot(newTimeslot),
+                firstName + " " + lastName,
+                provider.getName(),
+                provider.getLocation().getCity(),
+                provider.getLocation().getCounty(),
+                provider.getLocation().getZip(),
+                provider.getSpecialty());
+    }
 
+    // Move a stored appointment to a new timeslot on the same day; the caller holds its provider's stripe.
+    // Returns the journal position of the move, or NOT_MOVED after reporting why it could not be made.
+    private long moveAppointment(Appointment existingAppointment, Timeslot newTimeslot, Date dob,
+                                 Command sInput, PrintStream out) {
+        Date appointmentDate = existingAppointment.getDate();
+        Timeslot originalTimeslot = existingAppointment.getTimeslot();
+        if (isVisitMade(appointmentDate)) {
+            reject(sInput, CommandStats.Reject.VISIT_MADE);
+            out.printf("%s %s %s %s is a visit already made and cannot be rescheduled.%n",
+                    sInput.token(Command.DATE), Appointment.forTimeslot(originalTimeslot),
+                    sInput.token(Command.FIRST_NAME) + " " + sInput.token(Command.LAST_NAME), sInput.token(Command.DOB));
+            return NOT_MOVED;
+        }
         if (newTimeslot == null) {
-            System.out.println(newTimeslotInput + " is not a valid time slot.");
-            return;
+            reject(sInput, CommandStats.Reject.INVALID_TIMESLOT);
+            out.println(sInput.token(Command.NEW_TIMESLOT) + " is not a valid time slot.");
+            return NOT_MOVED;
         }
 
         Provider provider = existingAppointment.getProvider();
 
-        if (!isProviderFreeForTimeslot(provider, newTimeslot)) {
-            System.out.printf("[%s, %s, %s %s, %s] is not available at slot %s.%n",
+        if (!isProviderFreeForTimeslot(provider, appointmentDate, newTimeslot)) {
+            reject(sInput, CommandStats.Reject.PROVIDER_BUSY);
+            out.printf("[%s, %s, %s %s, %s] is not available at slot %s.%n",
                     provider.getName(),
                     provider.getLocation().getCity(),
                     provider.getLocation().getCounty(),
                     provider.getLocation().getZip(),
                     provider.getSpecialty(),
                     Appointment.forTimeslot(newTimeslot));
-            return;
+            return NOT_MOVED;
         }
 
-        // Remove the old appointment and add the new one
-        appointmentList.remove(existingAppointment);
-        Appointment rescheduledAppointment = new Appointment(appointmentDate, newTimeslot, patientProfile, provider);
-        appointmentList.add(rescheduledAppointment);
+        Appointment rescheduledAppointment = new Appointment(appointmentDate, newTimeslot, existingAppointment.getPatient(), provider);
+        long journaled;
+        synchronized (appointmentList.mutex(existingAppointment)) {  // Journal the move in the order the list made it
+            if (!appointmentList.addIfAbsent(rescheduledAppointment)) {
+                reject(sInput, CommandStats.Reject.DUPLICATE);
+                out.println(sInput.token(Command.FIRST_NAME) + " " + sInput.token(Command.LAST_NAME) + " " + dob
+                        + " has an existing appointment at the same time slot.");
+                return NOT_MOVED;
+            }
+            // Remove the old appointment now that the new one is in
+            appointmentList.remove(existingAppointment);
+            journaled = journal == null ? 0 : journal.reschedule(existingAppointment, newTimeslot);
+        }
+        providerCalendar.release(provider, appointmentDate, originalTimeslot);
+        providerCalendar.book(provider, appointmentDate, newTimeslot);
+        // The provider stays the same, so the patient's billing statement does not change
+        return journaled;
+    }
 
-        System.out.printf("Rescheduled to %s %s %s [%s, %s, %s %s, %s]%n",
-                dateInput,
-                Appointment.forTimeslot(newTimeslot),
-                firstName + " " + lastName,
-                provider.getName(),
-                provider.getLocation().getCity(),
-                provider.getLocation().getCounty(),
-                provider.getLocation().getZip(),
-                provider.getSpecialty());
+    // Find the stored appointment equal to a probe and lock its provider's stripe for the day.
+    // The provider is not part of appointment equality, so a probe without one finds the stored appointment.
+    // Returns null, holding no lock, if there is no such appointment.
+    private Appointment lockStored(Appointment probe) {
+        while (true) {
+            Appointment stored = appointmentList.get(probe);
+            if (stored == null) {
+                return null;
+            }
+            ReentrantLock stripe = locks.stripe(stored.getProvider(), stored.getDate());
+            stripe.lock();
+            Appointment current = appointmentList.get(probe);
+            if (current != null && current.getProvider() == stored.getProvider()) {
+                return current;  // Nothing can change it while its stripe is held
+            }
+            stripe.unlock();  // It was canceled or replaced before the stripe was locked; look it up again
+        }
     }
 
-    private Appointment findAppointment(Date date, Timeslot timeslot, Profile patientProfile) {
-        for (int i = 0; i < appointmentList.size(); i++) {
-            Appointment appointment = appointmentList.get(i);
-            if (appointment.getDate().equals(date) &&
-                    appointment.getTimeslot().equals(timeslot) &&
-                    appointment.getPatient().equals(patientProfile)) {
-                return appointment;
+    // Method to process the PA, PP, and PL commands. Optional name=value tokens after the command narrow the
+    // report: from and to (an inclusive date range), county, provider, and patient (first name, last name, and
+    // date of birth separated by spaces), then offset and limit to print one page of what matches.
+    private void printReport(Command pInput, PrintStream out) {
+        AppointmentQuery query = AppointmentQuery.ALL;
+        if (pInput.getTokenCount() > 1) {
+            query = parseQuery(pInput, out);
+            if (query == null) {
+                return;
             }
         }
-        return null;
+        switch (pInput.getType()) {
+            case PRINT_BY_APPOINTMENT:
+                printByAppointment(out, query);
+                break;
+            case PRINT_BY_PATIENT:
+                printByPatient(out, query);
+                break;
+            default:
+                printByLocation(out, query);
+        }
     }
-    // Print appointments by date/time/provider
-    public void printByAppointment() {
-        if (appointmentList.size() == 0) {
-            System.out.println("The schedule calendar is empty.");
-            return;
+
+    // Build the query of a report command's filter tokens, or report the first bad token and return null
+    private AppointmentQuery parseQuery(Command pInput, PrintStream out) {
+        Date from = null;
+        Date to = null;
+        String county = null;
+        Provider provider = null;
+        Profile patient = null;
+        int offset = 0;
+        int limit = Integer.MAX_VALUE;
+        for (int i = 1; i < pInput.getTokenCount(); i++) {
+            String token = pInput.token(i);
+            int equals = token.indexOf('=');
+            String name = equals < 0 ? "" : token.substring(0, equals).trim().toLowerCase();
+            String value = token.substring(equals + 1).trim();
+            switch (name) {
+                case "from":
+                case "to":
+                    Date date = parseDate(value);
+                    if (!date.isValid()) {
+                        reject(pInput, CommandStats.Reject.INVALID_FILTER);
+                        out.println("Report date: " + value + " is not a valid calendar date.");
+                        return null;
+                    }
+                    if (name.equals("from")) from = date; else to = date;
+                    break;
+                case "county":
+                    county = null;
+                    for (Location location : LOCATIONS) {
+                        if (location.getCounty().equalsIgnoreCase(value)) county = location.getCounty();
+                    }
+                    if (county == null) {
+                        reject(pInput, CommandStats.Reject.INVALID_FILTER);
+                        out.println(value + " - county doesn't exist.");
+                        return null;
+                    }
+                    break;
+                case "provider":
+                    provider = null;
+                    for (Provider p : PROVIDERS) {
+                        if (p.getName().equalsIgnoreCase(value)) provider = p;
+                    }
+                    if (provider == null) {
+                        reject(pInput, CommandStats.Reject.INVALID_FILTER);
+                        out.println(value + " - provider doesn't exist.");
+                        return null;
+                    }
+                    break;
+                case "patient":
+                    String[] parts = value.split("\\s+");
+                    Date dob = parts.length == 3 ? parseDate(parts[2]) : new Date(0, 0, 0);
+                    if (!dob.isValid()) {
+                        reject(pInput, CommandStats.Reject.INVALID_FILTER);
+                        out.println(value + " is not a valid patient.");
+                        return null;
+                    }
+                    patient = new Profile(parts[0], parts[1], dob);
+                    Patient enrolled = medicalRecord.findPatient(patient);
+                    if (enrolled != null) {
+                        patient = enrolled.getProfile();  // Interned, so the filter compares the patient's id
+                    }
+                    break;
+                case "offset":
+                case "limit":
+                    int number = parseCount(value);
+                    if (number < 0) {
+                        reject(pInput, CommandStats.Reject.INVALID_FILTER);
+                        out.println(value + " is not a valid " + name + ".");
+                        return null;
+                    }
+                    if (name.equals("offset")) offset = number; else limit = number;
+                    break;
+                default:
+                    reject(pInput, CommandStats.Reject.INVALID_FILTER);
+                    out.println(token + " is not a valid report filter.");
+                    return null;
+            }
         }
-        appointmentList.printByAppointment();
+        return new AppointmentQuery(from, to, county, provider, patient, offset, limit);
+    }
 
+    // Parse a mm/dd/yyyy date, giving an invalid date if it is not three numbers
+    private Date parseDate(String text) {
+        String[] parts = text.split("/");
+        if (parts.length != 3) {
+            return new Date(0, 0, 0);
+        }
+        int[] numbers = new int[3];
+        for (int i = 0; i < 3; i++) {
+            numbers[i] = parseCount(parts[i].trim());
+            if (numbers[i] < 0) {
+                return new Date(0, 0, 0);
+            }
+        }
+        return new Date(numbers[2], numbers[0], numbers[1]);
     }
 
-    // Print appointments by patient/date/time
-    public void printByPatient() {
-        if (appointmentList.size() == 0) {
-            System.out.println("The schedule calendar is empty.");
-            return;
+    // Parse a non-negative decimal number, giving -1 if it is not one
+    private int parseCount(String text) {
+        if (text.isEmpty()) {
+            return -1;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < '0' || text.charAt(i) > '9') {
+                return -1;
+            }
         }
-        appointmentList.printByPatient();
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return -1;  // Too large for an int
+        }
+    }
 
+    // Print appointments by date/time/provider
+    public void printByAppointment(PrintStream out) {
+        printByAppointment(out, AppointmentQuery.ALL);
     }
 
-    // Print appointments by location/date/time
-    public void printByLocation() {
-        if (appointmentList.size() == 0) {
-            System.out.println("The schedule calendar is empty.");
-            return;
+    // Print a page of the appointments matching a query by date/time/provider
+    public void printByAppointment(PrintStream out, AppointmentQuery query) {
+        locks.lockAll();
+        try {
+            if (appointmentList.size() == 0) {
+                out.println("The schedule calendar is empty.");
+                return;
+            }
+            appointmentList.printByAppointment(out, query);
+        } finally {
+            locks.unlockAll();
         }
-        appointmentList.printByLocation();
-
     }
 
-    private void printBillingStatements() {
-        appointmentList.sortByPatient();
-        Appointment[] allAppointments = appointmentList.getAppointments();
+    // Print appointments by patient/date/time
+    public void printByPatient(PrintStream out) {
+        printByPatient(out, AppointmentQuery.ALL);
+    }
 
-        BillingStatement[] billingStatements = new BillingStatement[allAppointments.length];
-        int billingCount = 0;
+    // Print a page of the appointments matching a query by patient/date/time
+    public void printByPatient(PrintStream out, AppointmentQuery query) {
+        locks.lockAll();
+        try {
+            if (appointmentList.size() == 0) {
+                out.println("The schedule calendar is empty.");
+                return;
+            }
+            appointmentList.printByPatient(out, query);
+        } finally {
+            locks.unlockAll();
+        }
+    }
 
-        // Calculate the total amount due for each patient
-        for (Appointment appointment : allAppointments) {
-            Profile patientProfile = appointment.getPatient();
-            Specialty specialty = appointment.getProvider().getSpecialty();
-            double rate = specialty.getCharge();
+    // Print appointments by location/date/time
+    public void printByLocation(PrintStream out) {
+        printByLocation(out, AppointmentQuery.ALL);
+    }
 
-            // Check if the patient already has a billing statement
-            boolean found = false;
-            for (int i = 0; i < billingCount; i++) {
-                if (billingStatements[i].getPatientProfile().equals(patientProfile)) {
-                    billingStatements[i].addAmount(rate);
-                    found = true;
-                    break;
-                }
+    // Print a page of the appointments matching a query by location/date/time
+    public void printByLocation(PrintStream out, AppointmentQuery query) {
+        locks.lockAll();
+        try {
+            if (appointmentList.size() == 0) {
+                out.println("The schedule calendar is empty.");
+                return;
             }
+            appointmentList.printByLocation(out, query);
+        } finally {
+            locks.unlockAll();
+        }
+    }
 
-            // If not found, create a new billing statement
-            if (!found) {
-                billingStatements[billingCount++] = new BillingStatement(patientProfile, rate);
-            }
+    // Print the running billing statements in patient order
+    private void printBillingStatements(PrintStream out) {
+        locks.lockAll();
+        try {
+            out.println("** Billing statement ordered by patient **");
+            BillingStatement[] statements = ledger.getStatements();  // So the formatters never wait on the ledger
+            ReportRenderer.print(statements.length, (i, line) -> {
+                BillingStatement bs = statements[i];
+                line.appendAscii('(').appendLong(i + 1).append(") ")
+                        .appendProfile(bs.getPatientProfile())
+                        .append(" [amount due: $").appendDollars(bs.getTotalCents()).appendAscii(']');
+            }, out);
+            out.println("** end of list **");
+        } finally {
+            locks.unlockAll();
         }
-        System.out.println("** Billing statement ordered by patient **");
-        for (int i = 0; i < billingCount; i++) {
-            BillingStatement bs = billingStatements[i];
-            System.out.printf("(%d) %s %s %s [amount due: $%,.2f]%n",
-                    i + 1,
-                    bs.getPatientProfile().getFirstName(),
-                    bs.getPatientProfile().getLastName(),
-                    bs.getPatientProfile().getDateOfBirth(),
-                    bs.getTotalAmount());
-        }
-        System.out.println("** end of list **");
     }
 
 }
\ No newline at end of file
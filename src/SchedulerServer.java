@@ -0,0 +1,481 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SchedulerServer class - A TCP front end that lets many clients send scheduler commands at once.
+ * Clients speak the console protocol: one command per line, with each command's results written back as the
+ * lines the console would print. One thread runs a non-blocking selector over every connection and only moves
+ * bytes, so an idle connection costs only its buffers, never a thread, and a long report or a journal sync
+ * never holds up another client's reads and writes. Each connection reads into its own input buffer and may
+ * pipeline many commands. Once bytes arrive, the connection is handed to a pool of WORKERS threads: a worker
+ * parses the complete lines straight out of that buffer, runs them in the order they arrived, collects their
+ * results in the connection's output buffer, and syncs the journal once for all of them before handing the
+ * connection back to be written. A connection belongs to one thread at a time, so its buffers need no locks
+ * and its commands never reorder; commands of different connections run at once, as the Scheduler allows.
+ * Given a CommandPipeline, the workers publish their commands to it instead, so only its writer thread ever
+ * changes the calendar, and it syncs the journal once per batch.
+ * A line too long for the input buffer gets one error and is dropped up to its newline.
+ * A connection whose client is not reading its results stops being read from once OUTPUT_HIGH_WATER bytes are
+ * waiting, so a slow client cannot make the server buffer without bound. A Q command closes the connection,
+ * not the server.
+ * A command that throws gets an error reply and the connection goes on to its next line; only a journal or
+ * store write that fails stops the server, since no later command could be made durable.
+ *
+ * @ Rithi and Shaili
+ */
+public class SchedulerServer implements AutoCloseable {
+
+    private final Scheduler scheduler;          // The scheduler every connection's commands run on
+    private final CommandPipeline pipeline;     // Pipeline the commands are published to, or null to run them here
+    private final Selector selector;            // Selector over the listening channel and every connection
+    private final ServerSocketChannel listener; // Channel accepting new connections
+    private final ExecutorService workers;      // Threads that run the commands of connections handed to them
+    private final Queue<Connection> finished = new ConcurrentLinkedQueue<>();  // Handed back by the workers
+    private Connection[] dirty = new Connection[16];  // Connections to write at the end of the selector round
+    private int dirtyCount;                     // Number of connections in dirty
+    private volatile boolean running = true;    // False once shutdown() is called
+    private volatile RuntimeException failure;  // What a journal or store write threw on a worker, if anything
+    // Each worker reuses its own parser and command
+    private final ThreadLocal<CommandParser> parser = ThreadLocal.withInitial(CommandParser::new);
+    private final ThreadLocal<Command> command = ThreadLocal.withInitial(Command::new);
+
+    private static final int INPUT_BUFFER_SIZE = Command.MAX_LENGTH * 2;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 12;
+    private static final int OUTPUT_HIGH_WATER = 1 << 20;  // Pending bytes at which a connection stops being read
+    private static final int BACKLOG = 1024;
+    private static final int WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Constructor to create a server listening on a local address. Nothing is accepted until run() is called.
+     *
+     * @param scheduler the scheduler to run commands on.
+     * @param address the address to listen on; port 0 picks a free port.
+     * @throws IOException if the address cannot be bound.
+     */
+    public SchedulerServer(Scheduler scheduler, InetSocketAddress address) throws IOException {
+        this(scheduler, null, address);
+    }
+
+    /**
+     * Constructor to create a server that runs every command through a pipeline's single writer thread.
+     * Nothing is accepted until run() is called.
+     *
+     * @param scheduler the scheduler to run commands on.
+     * @param pipeline the pipeline to publish commands to, or null to run them on the workers.
+     * @param address the address to listen on; port 0 picks a free port.
+     * @throws IOException if the address cannot be bound.
+     */
+    public SchedulerServer(Scheduler scheduler, CommandPipeline pipeline, InetSocketAddress address)
+            throws IOException {
+        this.scheduler = scheduler;
+        this.pipeline = pipeline;
+        this.selector = Selector.open();
+        this.listener = ServerSocketChannel.open();
+        listener.bind(address, BACKLOG);
+        listener.configureBlocking(false);
+        listener.register(selector, SelectionKey.OP_ACCEPT);
+        this.workers = Executors.newFixedThreadPool(WORKERS, task -> {
+            Thread thread = new Thread(task, "scheduler-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return the local port.
+     * @throws IOException if the port cannot be read.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) listener.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Serves connections on the calling thread until shutdown() is called. Once it returns, every command
+     * handed to a worker has finished.
+     *
+     * @throws IOException if the selector or the listening channel fails.
+     * @throws UncheckedIOException what a journal or store write threw on a worker; the server stops.
+     */
+    public void run() throws IOException {
+        try {
+            while (running) {
+                selector.select();
+                if (failure != null) {
+                    throw failure;
+                }
+                Connection done;
+                while ((done = finished.poll()) != null) {
+                    markDirty(done);  // Its commands have run; send their results
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable() && read(connection)) {
+                        continue;  // A worker lists it to be written once its commands have run
+                    }
+                    markDirty(connection);  // Writable again, or at the end of its input
+                }
+                for (int i = 0; i < dirtyCount; i++) {
+                    write(dirty[i]);
+                    dirty[i].dirty = false;
+                    dirty[i] = null;
+                }
+                dirtyCount = 0;
+            }
+        } finally {
+            stopWorkers();
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    /**
+     * Makes run() stop and close every connection. Results not yet sent are dropped. Safe to call from any
+     * thread, such as a shutdown hook.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Stops the server, if run() has not already stopped, and releases the listening channel and the selector.
+     *
+     * @throws IOException if the listening channel or the selector cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        listener.close();
+        selector.close();
+    }
+
+    /**
+     * Helper method to stop the workers once the commands already handed to them have run.
+     */
+    private void stopWorkers() {
+        workers.shutdown();
+        boolean interrupted = false;
+        while (!workers.isTerminated()) {
+            try {
+                workers.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method to accept every pending connection.
+     *
+     * @throws IOException if the listening channel fails.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = listener.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(key));
+        }
+    }
+
+    /**
+     * Helper method to add a connection to the ones written at the end of the selector round.
+     *
+     * @param connection the connection with output to send or a new state to register.
+     */
+    private void markDirty(Connection connection) {
+        if (connection.dirty) {
+            return;
+        }
+        if (dirtyCount == dirty.length) {
+            Connection[] larger = new Connection[dirty.length * 2];
+            System.arraycopy(dirty, 0, larger, 0, dirtyCount);
+            dirty = larger;
+        }
+        connection.dirty = true;
+        dirty[dirtyCount++] = connection;
+    }
+
+    /**
+     * Helper method to read what a client sent and hand the connection to a worker to run it.
+     *
+     * @param connection the connection to read.
+     * @return true if the connection was handed to a worker, false if there was nothing new to run.
+     */
+    private boolean read(Connection connection) {
+        int bytes;
+        try {
+            bytes = connection.channel().read(connection.input);
+        } catch (IOException e) {
+            bytes = -1;  // Reset by the client
+        }
+        if (bytes < 0) {
+            connection.endOfInput = true;
+        } else if (bytes == 0) {
+            return false;
+        }
+        handOff(connection);
+        return true;
+    }
+
+    /**
+     * Helper method to hand a connection to a worker, which runs the lines in its input buffer, syncs the
+     * journal unless the pipeline already has, and hands it back. Until then the selector neither reads nor writes it.
+     *
+     * @param connection the connection to run.
+     */
+    private void handOff(Connection connection) {
+        connection.key.interestOps(0);
+        workers.execute(() -> {
+            try {
+                if (runLines(connection) && pipeline == null) {
+                    scheduler.syncJournal();  // One sync covers every command of the run
+                }
+            } catch (UncheckedIOException e) {
+                failure = e;  // Reported by run(), which stops the server
+            } catch (RuntimeException e) {
+                connection.out.println("Command failed: " + e);
+                connection.quit = true;  // Its input is no longer in step with what was run; close it once drained
+            } finally {
+                finished.add(connection);
+                selector.wakeup();
+            }
+        });
+    }
+
+    /**
+     * Helper method to run the complete command lines in a connection's input buffer, in order, and keep any
+     * partial line for the next read. A line that fills the whole buffer is rejected without being run.
+     * Stops early at a Q command, or once the output passes OUTPUT_HIGH_WATER,
+     * in which case the connection is stalled until its output drains.
+     *
+     * @param connection the connection whose input to run.
+     * @return true if any command was run, false otherwise.
+     */
+    private boolean runLines(Connection connection) {
+        ByteBuffer input = connection.input;
+        int end = input.position();
+        int lineStart = 0;
+        boolean ran = false;
+        connection.stalled = false;
+        for (int i = 0; i < end && !connection.quit; i++) {
+            if (connection.output.position() >= OUTPUT_HIGH_WATER) {
+                connection.stalled = true;  // Resume once the client has read what is waiting
+                break;
+            }
+            if (input.get(i) == '\n') {
+                if (connection.discarding) {
+                    connection.discarding = false;  // The end of a line too long to run, already answered
+                } else {
+                    ran |= runLine(connection, lineStart, i);
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (!connection.stalled && !connection.quit && lineStart < end) {
+            if (connection.discarding || (lineStart == 0 && end == input.capacity())) {
+                // A line longer than the buffer: answer it once, then drop it up to its newline as it arrives
+                if (!connection.discarding) {
+                    Command command = this.command.get();
+                    parser.get().tooLong(command);
+                    execute(command, connection.out);
+                    connection.discarding = true;
+                }
+                lineStart = end;
+            } else if (connection.endOfInput) {
+                ran |= runLine(connection, lineStart, end);  // A final line without a newline
+                lineStart = end;
+            }
+        }
+        if (connection.quit) {
+            lineStart = end;  // Nothing after a Q command is run
+        }
+        input.flip().position(lineStart);
+        input.compact();
+        return ran;
+    }
+
+    /**
+     * Helper method to parse and run one command line of a connection's input buffer. A command that throws
+     * is answered with an error line instead of its results, unless a journal or store write failed.
+     *
+     * @param connection the connection the line came from.
+     * @param from the index of the first byte of the line.
+     * @param to the index just past the last byte of the line.
+     * @return true if a command was run, false if the line was empty or a Q command.
+     * @throws UncheckedIOException if a journal or store write failed.
+     */
+    private boolean runLine(Connection connection, int from, int to) {
+        Command command = this.command.get();
+        parser.get().parse(connection.input, from, to, command);
+        if (command.getType() == Command.Type.EMPTY) {
+            return false;
+        }
+        if (command.getType() == Command.Type.QUIT) {
+            connection.out.println("Scheduler has been terminated.");
+            connection.quit = true;
+            return false;
+        }
+        try {
+            execute(command, connection.out);
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            connection.out.println("Command failed: " + e);
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to run a parsed command through the pipeline, if there is one, or on the calling worker.
+     *
+     * @param command the parsed command.
+     * @param out the stream to write the results to.
+     */
+    private void execute(Command command, PrintStream out) {
+        if (pipeline != null) {
+            pipeline.execute(command, out);
+        } else {
+            scheduler.execute(command, out);
+        }
+    }
+
+    /**
+     * Helper method to send a connection's waiting output, hand any lines stalled behind it to a worker once
+     * it has drained, then pick what to wait for next: room to write, more input, or nothing once a finished
+     * connection has sent everything.
+     *
+     * @param connection the connection to write.
+     */
+    private void write(Connection connection) {
+        ByteBuffer output = connection.output;
+        output.flip();
+        try {
+            connection.channel().write(output);
+        } catch (IOException e) {
+            output.clear();  // The client is gone; drop what it will never read
+            connection.close();
+            return;
+        }
+        output.compact();
+        boolean waiting = output.position() > 0;
+        if (!waiting && connection.stalled) {
+            handOff(connection);
+            return;
+        }
+        if (!waiting && (connection.quit || connection.endOfInput)) {
+            connection.close();
+            return;
+        }
+        int interest = waiting ? SelectionKey.OP_WRITE : 0;
+        if (!connection.quit && !connection.endOfInput && !connection.stalled) {
+            interest |= SelectionKey.OP_READ;
+        }
+        connection.key.interestOps(interest);
+    }
+
+    /**
+     * The buffers and state of one client connection.
+     */
+    private static class Connection {
+
+        private final SelectionKey key;      // Selection key of the connection's channel
+        private final ByteBuffer input;      // Bytes read but not yet run, from position 0
+        private ByteBuffer output;           // Results not yet sent, from position 0
+        private final PrintStream out;       // Stream the commands' results are printed to
+        private boolean dirty;               // True while the connection is listed to be written this round
+        private boolean stalled;             // True if input lines wait for the output to drain
+        private boolean discarding;          // True while dropping the rest of a line longer than the input buffer
+        private boolean endOfInput;          // True once the client has closed its side
+        private boolean quit;                // True once a Q command was read
+
+        /**
+         * Constructor to create the state of a new connection.
+         *
+         * @param key the selection key of the connection's channel.
+         */
+        Connection(SelectionKey key) {
+            this.key = key;
+            this.input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+            this.output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+            this.out = new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    reserve(1);
+                    output.put((byte) b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    reserve(length);
+                    output.put(bytes, offset, length);
+                }
+            }, false);
+        }
+
+        /**
+         * Helper method to grow the output buffer until it has room for more bytes.
+         *
+         * @param length the number of bytes to be added.
+         */
+        private void reserve(int length) {
+            if (output.remaining() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + length));
+                output.flip();
+                output = larger.put(output);
+            }
+        }
+
+        /**
+         * Gets the connection's channel.
+         *
+         * @return the socket channel.
+         */
+        SocketChannel channel() {
+            return (SocketChannel) key.channel();
+        }
+
+        /**
+         * Closes the connection's channel, which also cancels its key.
+         */
+        void close() {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // Nothing more can be sent on it either way
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * ShardedAppointmentStore class - An appointment store split into one shard per Location.
+ * Every Provider works at one location, so an appointment lives in the shard of its provider's location and
+ * commands for providers at different locations change different shards, each with its own monitor, hash
+ * index, and sorted indexes. Only a patient's duplicate check crosses shards, since a patient may book at any
+ * location: adding an appointment checks the other shards under a monitor striped by patient and day, which is
+ * also what mutex() hands the Scheduler to keep its journal records in order. Lookups that carry no provider
+ * probe every shard.
+ * Each shard has its own worker thread. Reports ask every shard's worker for the shard's first matches in the
+ * report's order, and a bulk load rebuilds every shard's print orders on its worker, so the shards never wait
+ * for a slot in a pool shared with the rest of the process. The ordered runs are merged through a heap of run
+ * heads and the result paged; each order is a total order, so the report is byte-for-byte what one store would
+ * print.
+ *
+ * @ Rithi and Shaili
+ */
+public class ShardedAppointmentStore implements AppointmentStore {
+
+    private final AppointmentStore[] shards;  // Shard of each location, by Location ordinal
+    private final Object[] mutexes;           // Monitors striped by patient and day
+    private final ExecutorService[] workers;  // Worker thread of each shard
+
+    private static final int MUTEXES = 256;   // A power of two
+
+    /**
+     * Constructor to create a store with one empty shard per location.
+     *
+     * @param newShard the factory of each shard's store.
+     */
+    public ShardedAppointmentStore(Supplier<AppointmentStore> newShard) {
+        shards = new AppointmentStore[Location.values().length];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = newShard.get();
+        }
+        mutexes = new Object[MUTEXES];
+        for (int i = 0; i < MUTEXES; i++) {
+            mutexes[i] = new Object();
+        }
+        workers = new ExecutorService[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            String name = "shard-" + Location.values()[i].getCity();
+            workers[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Helper method to find the shard an appointment belongs in.
+     *
+     * @param appointment the appointment; its provider must be set.
+     * @return the shard of its provider's location.
+     */
+    private AppointmentStore shardOf(Appointment appointment) {
+        return shards[appointment.getProvider().getLocation().ordinal()];
+    }
+
+    /**
+     * Helper method to find the shard holding an appointment equal to the given one. The shard of the
+     * given provider, if any, is probed first.
+     *
+     * @param appointment the appointment to look for; its provider may be null or differ from the stored one.
+     * @return the shard holding it, or null if no shard does.
+     */
+    private AppointmentStore holder(Appointment appointment) {
+        AppointmentStore home = appointment.getProvider() == null ? null : shardOf(appointment);
+        if (home != null && home.contains(appointment)) {
+            return home;
+        }
+        for (AppointmentStore shard : shards) {
+            if (shard != home && shard.contains(appointment)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the monitor striped by the appointment's patient and day. A reschedule keeps both, so the old
+     * and the new appointment of a move share one monitor.
+     *
+     * @param appointment the appointment.
+     * @return the object to synchronize on.
+     */
+    @Override
+    public Object mutex(Appointment appointment) {
+        int hash = (appointment.getDate().hashCode() * 31 + appointment.getPatient().hashCode()) * 0x9E3779B9;
+        return mutexes[(hash ^ (hash >>> 16)) & (MUTEXES - 1)];
+    }
+
+    @Override
+    public Appointment get(Appointment appointment) {
+        AppointmentStore home = appointment.getProvider() == null ? null : shardOf(appointment);
+        Appointment stored = home == null ? null : home.get(appointment);
+        for (int i = 0; stored == null && i < shards.length; i++) {
+            if (shards[i] != home) {
+                stored = shards[i].get(appointment);
+            }
+        }
+        return stored;
+    }
+
+    @Override
+    public void add(Appointment appointment) {
+        shardOf(appointment).add(appointment);
+    }
+
+    /**
+     * Adds an appointment to its location's shard unless any shard already holds an equal one. The check of
+     * the other shards and the add are one atomic step under the appointment's mutex.
+     *
+     * @param appointment the appointment to be added.
+     * @return true if the appointment was added, false if an equal one was already stored.
+     */
+    @Override
+    public boolean addIfAbsent(Appointment appointment) {
+        AppointmentStore home = shardOf(appointment);
+        synchronized (mutex(appointment)) {
+            for (AppointmentStore shard : shards) {
+                if (shard != home && shard.contains(appointment)) {
+                    return false;
+                }
+            }
+            return home.addIfAbsent(appointment);
+        }
+    }
+
+    @Override
+    public void remove(Appointment appointment) {
+        synchronized (mutex(appointment)) {
+            AppointmentStore shard = holder(appointment);
+            if (shard != null) {
+                shard.remove(appointment);
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(Appointment appointment) {
+        return holder(appointment) != null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (AppointmentStore shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Makes room in each shard for an even share of the appointments; a shard given more grows as usual.
+     *
+     * @param capacity the number of appointments the store should hold.
+     */
+    @Override
+    public void ensureCapacity(int capacity) {
+        for (AppointmentStore shard : shards) {
+            shard.ensureCapacity(capacity / shards.length + 1);
+        }
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        for (AppointmentStore shard : shards) {
+            shard.beginBulkLoad();
+        }
+    }
+
+    /**
+     * Ends a bulk load, with the shards rebuilding their print orders in parallel on their workers.
+     */
+    @Override
+    public void endBulkLoad() {
+        inParallel(shard -> shards[shard].endBulkLoad());
+    }
+
+    @Override
+    public void writeRows(ByteBuffer rows) {
+        for (AppointmentStore shard : shards) {
+            shard.writeRows(rows);
+        }
+    }
+
+    /**
+     * Collects the first appointments matching a query's filters in an order, by merging the first matches
+     * of each shard.
+     *
+     * @param order the order to collect in; one of the orders of AppointmentIndex.
+     * @param query the filters to match.
+     * @param max the most appointments to collect.
+     * @return a new array of the matching appointments, in order, no longer than max.
+     */
+    @Override
+    public Appointment[] select(Comparator<Appointment> order, AppointmentQuery query, int max) {
+        Appointment[][] runs = new Appointment[shards.length][];
+        inParallel(shard -> runs[shard] = shards[shard].select(order, query, max));
+        return merge(order, runs, 0, max);
+    }
+
+    @Override
+    public void printByPatient(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by patient/date/time **");
+        print(AppointmentIndex.BY_PATIENT, query, out);
+    }
+
+    @Override
+    public void printByLocation(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by county/date/time **");
+        print(AppointmentIndex.BY_LOCATION, query, out);
+    }
+
+    @Override
+    public void printByAppointment(PrintStream out, AppointmentQuery query) {
+        out.println("** Appointments ordered by date/time/provider **");
+        print(AppointmentIndex.BY_APPOINTMENT, query, out);
+    }
+
+    /**
+     * Helper method to print a page of the appointments matching a query in an order. Each shard only
+     * selects as many matches as could reach the end of the page, and the merge drops the rows before it.
+     *
+     * @param order the order to print in.
+     * @param query the filters and page to print.
+     * @param out the stream to print to.
+     */
+    private void print(Comparator<Appointment> order, AppointmentQuery query, PrintStream out) {
+        int max = (int) Math.min((long) query.getOffset() + query.getLimit(), Integer.MAX_VALUE);
+        Appointment[][] runs = new Appointment[shards.length][];
+        inParallel(shard -> runs[shard] = shards[shard].select(order, query, max));
+        Appointment[] page = merge(order, runs, query.getOffset(), query.getLimit());
+        ReportRenderer.print(page.length, (row, line) -> line.appendAppointment(page[row]), out);
+        out.println("** end of list **");
+    }
+
+    /**
+     * Helper method to merge runs of appointments, each already in an order, and keep a page of the result.
+     * The runs are merged through a binary heap of their heads, so each appointment taken costs O(log runs)
+     * comparisons. Only the rows of the page are copied, so its array is no larger than the rows it returns.
+     *
+     * @param order the order of every run.
+     * @param runs the runs to merge.
+     * @param skip the number of merged appointments to drop first.
+     * @param max the most appointments to keep.
+     * @return a new array of the page's appointments, in order.
+     */
+    private static Appointment[] merge(Comparator<Appointment> order, Appointment[][] runs, int skip, int max) {
+        long total = 0;
+        for (Appointment[] run : runs) {
+            total += run.length;
+        }
+        Appointment[] merged = new Appointment[(int) Math.max(0, Math.min(total - skip, max))];
+        int[] next = new int[runs.length];  // Position of the head of each run
+        int[] heap = new int[runs.length];  // Runs with appointments left, least head first
+        int size = 0;
+        for (int run = 0; run < runs.length; run++) {
+            if (runs[run].length > 0) {
+                heap[size] = run;
+                siftUp(order, runs, next, heap, size++);
+            }
+        }
+        long end = merged.length == 0 ? 0 : skip + (long) merged.length;  // Nothing to merge past the page
+        for (long taken = 0; taken < end; taken++) {
+            int least = heap[0];
+            Appointment appointment = runs[least][next[least]++];
+            if (taken >= skip) {
+                merged[(int) (taken - skip)] = appointment;
+            }
+            if (next[least] == runs[least].length) {
+                heap[0] = heap[--size];  // The run is used up
+            }
+            siftDown(order, runs, next, heap, size);
+        }
+        return merged;
+    }
+
+    /**
+     * Helper method to move the run at a heap position up until its head is not less than its parent's.
+     *
+     * @param order the order of every run.
+     * @param runs the runs.
+     * @param next the position of the head of each run.
+     * @param heap the heap of runs.
+     * @param position the heap position of the run to move.
+     */
+    private static void siftUp(Comparator<Appointment> order, Appointment[][] runs, int[] next, int[] heap,
+                               int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (order.compare(head(runs, next, heap[position]), head(runs, next, heap[parent])) >= 0) {
+                return;
+            }
+            int swap = heap[position];
+            heap[position] = heap[parent];
+            heap[parent] = swap;
+            position = parent;
+        }
+    }
+
+    /**
+     * Helper method to move the run at the top of the heap down until its head is not greater than its
+     * children's.
+     *
+     * @param order the order of every run.
+     * @param runs the runs.
+     * @param next the position of the head of each run.
+     * @param heap the heap of runs.
+     * @param size the number of runs in the heap.
+     */
+    private static void siftDown(Comparator<Appointment> order, Appointment[][] runs, int[] next, int[] heap,
+                                 int size) {
+        int position = 0;
+        while (true) {
+            int least = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (order.compare(head(runs, next, heap[child]), head(runs, next, heap[least])) < 0) {
+                    least = child;
+                }
+            }
+            if (least == position) {
+                return;
+            }
+            int swap = heap[position];
+            heap[position] = heap[least];
+            heap[least] = swap;
+            position = least;
+        }
+    }
+
+    /**
+     * Helper method to get the head of a run.
+     *
+     * @param runs the runs.
+     * @param next the position of the head of each run.
+     * @param run the run.
+     * @return the least appointment left in the run.
+     */
+    private static Appointment head(Appointment[][] runs, int[] next, int run) {
+        return runs[run][next[run]];
+    }
+
+    /**
+     * Helper method to run a task for every shard on the shard's worker and wait for all of them. A task that
+     * fails has its exception thrown here once every task is done.
+     *
+     * @param task the task, given each shard's position.
+     */
+    private void inParallel(IntConsumer task) {
+        Future<?>[] tasks = new Future<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            tasks[i] = workers[i].submit(() -> task.accept(shard));
+        }
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<?> running : tasks) {
+            while (true) {
+                try {
+                    running.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;  // Wait anyway; the shards must not be left changing under the caller
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * Snapshot class - The appointment calendar and patient registry as of one moment, with the journal position
+ * they match, stored in a compact binary file so startup does not replay the whole journal.
+ * The appointment rows are never held as Appointment objects: the scheduler's store writes them into one
+ * off-heap buffer, which is written to the file as is, and on load they are read straight from the
+ * memory-mapped file into the scheduler's store within one bulk restore.
+ *
+ * File layout: a header of MAGIC, VERSION, the journal position, and the string, patient, and appointment
+ * counts; a string table of names (unsigned short length then UTF-8 bytes each); fixed-width patient rows
+ * of date of birth (int epoch day) and first and last name (int string ids); and fixed-width appointment
+ * rows of date (int epoch day), timeslot and provider (byte ordinals), and patient (int id). The provider
+ * fixes the location, so it is not stored separately.
+ *
+ * @ Rithi and Shaili
+ */
+public class Snapshot {
+
+    private final Profile[] patients;    // Every enrolled patient
+    private final ByteBuffer rows;       // Row of every booked appointment, from position 0
+    private final int size;              // Number of appointment rows
+    private final long journalPosition;  // Journal position the snapshot includes every record up to
+
+    private static final int MAGIC = 0x5255534E;  // "RUSN"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 26;
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    static final int ROW_SIZE = 10;  // Bytes of an appointment row
+
+    // Layout of an appointment row
+    private static final int DAY = 0;
+    private static final int TIMESLOT = 4;
+    private static final int PROVIDER = 5;
+    private static final int PATIENT = 6;
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+
+    /**
+     * Constructor to create a snapshot of a calendar.
+     *
+     * @param patients the profiles of every enrolled patient.
+     * @param rows the row of every booked appointment, as AppointmentStore.writeRows() writes them, between
+     *             the buffer's position and limit; each patient id must be a position in the patients array.
+     * @param journalPosition the journal position the snapshot includes every record up to, or 0 if none.
+     */
+    public Snapshot(Profile[] patients, ByteBuffer rows, long journalPosition) {
+        this.patients = patients;
+        this.rows = rows.slice();
+        this.size = rows.remaining() / ROW_SIZE;
+        this.journalPosition = journalPosition;
+    }
+
+    /**
+     * Gets the profiles of every patient in the snapshot.
+     *
+     * @return the patient profiles.
+     */
+    public Profile[] getPatients() {
+        return patients;
+    }
+
+    /**
+     * Gets the number of appointments in the snapshot.
+     *
+     * @return the number of appointment rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the journal position the snapshot includes every record up to.
+     *
+     * @return the journal position, or 0 if the snapshot was taken without a journal.
+     */
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    /**
+     * Takes a snapshot of a scheduler and writes it to a file. The journal is synced up to the snapshot's
+     * position first, so the journal never ends before a snapshot that refers to it.
+     * The file is written beside the old snapshot and moved over it, so a crash never leaves half a snapshot.
+     * The journal is then compacted to the records after the snapshot's position.
+     *
+     * @param scheduler the scheduler to snapshot.
+     * @param journal the scheduler's journal, or null if it has none.
+     * @param path the path of the snapshot file.
+     * @throws IOException if the journal or the snapshot cannot be written.
+     */
+    public static void save(Scheduler scheduler, Journal journal, Path path) throws IOException {
+        Snapshot snapshot = scheduler.snapshot();
+        if (journal != null) {
+            journal.awaitDurable(snapshot.getJournalPosition());
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        snapshot.write(temporary);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (journal != null) {
+            journal.compact(snapshot.getJournalPosition());
+        }
+    }
+
+    /**
+     * Writes the snapshot to a file and forces it to disk.
+     *
+     * @param path the path of the file; it is created or truncated.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        // Give every distinct name a string id; patients keep their medical record ids
+        HashMap<String, Integer> stringIds = new HashMap<>();
+        String[] strings = new String[patients.length * 2];
+        int stringCount = 0;
+        int[] nameIds = new int[patients.length * 2];
+        for (int i = 0; i < patients.length; i++) {
+            for (int j = 0; j < 2; j++) {
+                String name = j == 0 ? patients[i].getFirstName() : patients[i].getLastName();
+                Integer id = stringIds.get(name);
+                if (id == null) {
+                    id = stringCount;
+                    stringIds.put(name, id);
+                    strings[stringCount++] = name;
+                }
+                nameIds[2 * i + j] = id;
+            }
+        }
+
+        try (FileOutputStream file = new FileOutputStream(path.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, OUTPUT_BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(journalPosition);
+            out.writeInt(stringCount);
+            out.writeInt(patients.length);
+            out.writeInt(size);
+            for (int i = 0; i < stringCount; i++) {
+                byte[] bytes = strings[i].getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            for (int i = 0; i < patients.length; i++) {
+                out.writeInt(patients[i].getDateOfBirth().toEpochDay());
+                out.writeInt(nameIds[2 * i]);
+                out.writeInt(nameIds[2 * i + 1]);
+            }
+            out.flush();
+            FileChannel channel = file.getChannel();
+            ByteBuffer remaining = rows.duplicate();
+            remaining.limit(size * ROW_SIZE);
+            while (remaining.hasRemaining()) {
+                channel.write(remaining);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads a snapshot file by memory-mapping it. The patients are decoded; the appointment rows are left in
+     * the mapped file and only checked.
+     *
+     * @param path the path of the snapshot file.
+     * @return the snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static Snapshot load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException(path + " is not a version " + VERSION + " scheduler snapshot");
+            }
+            long journalPosition = buffer.getLong();
+            String[] strings = new String[buffer.getInt()];
+            Profile[] patients = new Profile[buffer.getInt()];
+            int size = buffer.getInt();
+
+            byte[] bytes = new byte[Short.MAX_VALUE * 2 + 1];  // Reused for every name
+            for (int i = 0; i < strings.length; i++) {
+                int length = buffer.getShort() & 0xFFFF;
+                buffer.get(bytes, 0, length);
+                strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            }
+            for (int i = 0; i < patients.length; i++) {
+                Date dob = new Date(buffer.getInt());
+                patients[i] = new Profile(strings[buffer.getInt()], strings[buffer.getInt()], dob);
+            }
+            if (size < 0 || buffer.remaining() < (long) size * ROW_SIZE) {
+                throw new BufferUnderflowException();
+            }
+            ByteBuffer rows = buffer.slice();
+            rows.limit(size * ROW_SIZE);
+            for (int offset = 0; offset < rows.limit(); offset += ROW_SIZE) {
+                if (rows.get(offset + TIMESLOT) < 0 || rows.get(offset + TIMESLOT) >= TIMESLOTS.length
+                        || rows.get(offset + PROVIDER) < 0 || rows.get(offset + PROVIDER) >= PROVIDERS.length
+                        || rows.getInt(offset + PATIENT) < 0 || rows.getInt(offset + PATIENT) >= patients.length) {
+                    throw new IndexOutOfBoundsException("Appointment row at " + offset);
+                }
+            }
+            return new Snapshot(patients, rows, journalPosition);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException(path + " is a truncated or corrupt scheduler snapshot", e);
+        }
+    }
+
+    /**
+     * Loads the snapshot into an empty scheduler, enrolling every patient and restoring every appointment
+     * with one bulk restore.
+     *
+     * @param scheduler the scheduler to load.
+     * @return the number of appointments restored.
+     */
+    public int restore(Scheduler scheduler) {
+        scheduler.beginRestore(size);
+        try {
+            return restoreRows(scheduler);
+        } finally {
+            scheduler.endRestore();
+        }
+    }
+
+    /**
+     * Enrolls every patient and restores every appointment row into a scheduler, building each appointment
+     * only to hand it to the scheduler's store. The caller has begun a restore.
+     *
+     * @param scheduler the scheduler to load.
+     * @return the number of appointments restored.
+     */
+    int restoreRows(Scheduler scheduler) {
+        MedicalRecord medicalRecord = scheduler.getMedicalRecord();
+        Profile[] interned = new Profile[patients.length];  // Profile the scheduler keeps, by snapshot id
+        for (int i = 0; i < patients.length; i++) {
+            interned[i] = medicalRecord.getOrCreate(patients[i]).getProfile();
+        }
+        int restored = 0;
+        for (int i = 0; i < size; i++) {
+            int offset = i * ROW_SIZE;
+            Appointment appointment = new Appointment(new Date(rows.getInt(offset + DAY)),
+                    TIMESLOTS[rows.get(offset + TIMESLOT)], interned[rows.getInt(offset + PATIENT)],
+                    PROVIDERS[rows.get(offset + PROVIDER)]);
+            if (scheduler.restore(appointment)) {
+                restored++;
+            }
+        }
+        return restored;
+    }
+}
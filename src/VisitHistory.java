@@ -0,0 +1,210 @@
+/**
+ * VisitHistory class - The completed visits of one patient, stored column by column in primitive arrays.
+ * Visits are kept in date order. Each date is stored as its number of days after the first visit's date in a
+ * char, and the timeslot and provider as byte ordinals, so a visit costs 4 bytes instead of a list node, an
+ * Appointment, and its Date. The dates are offsets from one base day rather than deltas from the visit before,
+ * so any visit's date is read, and binary searched, without summing the deltas before it; a char offset already
+ * costs what a char delta would. The total charge is kept up to date as visits are added, and visits in a date
+ * range are found with a binary search over the day offsets.
+ *
+ * @ Rithi and Shaili
+ */
+public class VisitHistory {
+
+    private int baseDay;        // Epoch day of the earliest visit
+    private char[] dayOffsets;  // Days after baseDay of each visit, in ascending order
+    private byte[] timeslots;   // Timeslot ordinal of each visit
+    private byte[] providers;   // Provider ordinal of each visit
+    private int size;           // Number of visits
+    private int totalCharge;    // Sum of the charges of every visit
+
+    private static final char[] NO_DAYS = new char[0];
+    private static final byte[] NO_ORDINALS = new byte[0];
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int MAX_SPAN = Character.MAX_VALUE;  // Most days a history can span, about 179 years
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+
+    /**
+     * Constructor to create an empty visit history. No arrays are allocated until the first visit.
+     */
+    public VisitHistory() {
+        dayOffsets = NO_DAYS;
+        timeslots = NO_ORDINALS;
+        providers = NO_ORDINALS;
+    }
+
+    /**
+     * Records a completed visit, keeping the visits in date order.
+     *
+     * @param date the date of the visit.
+     * @param timeslot the timeslot of the visit.
+     * @param provider the provider seen at the visit.
+     * @throws IllegalArgumentException if the history would span more than MAX_SPAN days.
+     */
+    public void add(Date date, Timeslot timeslot, Provider provider) {
+        int day = date.toEpochDay();
+        if (size == 0) {
+            baseDay = day;
+        } else if (day < baseDay) {
+            rebase(day);
+        }
+        if (day - baseDay > MAX_SPAN) {
+            throw new IllegalArgumentException("A visit history cannot span more than " + MAX_SPAN + " days");
+        }
+        if (size == dayOffsets.length) {
+            grow();
+        }
+        int position = upperBound(day - baseDay);  // After any visits on the same day
+        System.arraycopy(dayOffsets, position, dayOffsets, position + 1, size - position);
+        System.arraycopy(timeslots, position, timeslots, position + 1, size - position);
+        System.arraycopy(providers, position, providers, position + 1, size - position);
+        dayOffsets[position] = (char) (day - baseDay);
+        timeslots[position] = (byte) timeslot.ordinal();
+        providers[position] = (byte) provider.ordinal();
+        size++;
+        totalCharge += provider.getSpecialty().getCharge();
+    }
+
+    /**
+     * Helper method to move the base day earlier, shifting every stored offset to match.
+     *
+     * @param day the new base day.
+     * @throws IllegalArgumentException if the history would span more than MAX_SPAN days.
+     */
+    private void rebase(int day) {
+        int shift = baseDay - day;
+        if (dayOffsets[size - 1] + shift > MAX_SPAN) {
+            throw new IllegalArgumentException("A visit history cannot span more than " + MAX_SPAN + " days");
+        }
+        for (int i = 0; i < size; i++) {
+            dayOffsets[i] += shift;
+        }
+        baseDay = day;
+    }
+
+    /**
+     * Helper method to double the capacity of the columns.
+     */
+    private void grow() {
+        int capacity = Math.max(INITIAL_CAPACITY, dayOffsets.length * 2);
+        char[] newDayOffsets = new char[capacity];
+        byte[] newTimeslots = new byte[capacity];
+        byte[] newProviders = new byte[capacity];
+        System.arraycopy(dayOffsets, 0, newDayOffsets, 0, size);
+        System.arraycopy(timeslots, 0, newTimeslots, 0, size);
+        System.arraycopy(providers, 0, newProviders, 0, size);
+        dayOffsets = newDayOffsets;
+        timeslots = newTimeslots;
+        providers = newProviders;
+    }
+
+    /**
+     * Helper method to binary search for the first visit more than a number of days after the base day.
+     *
+     * @param offset the day offset.
+     * @return the position of the first visit with a greater offset, or size if there is none.
+     */
+    private int upperBound(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dayOffsets[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the position of the first visit on or after a date.
+     *
+     * @param date the date.
+     * @return the position of the first visit on or after the date, or size() if there is none.
+     */
+    public int indexOf(Date date) {
+        int offset = date.toEpochDay() - baseDay;
+        if (size == 0 || offset <= 0) {
+            return 0;
+        }
+        return offset > MAX_SPAN ? size : upperBound(offset - 1);
+    }
+
+    /**
+     * Counts the visits between two dates, inclusive.
+     *
+     * @param from the first date of the range.
+     * @param to the last date of the range.
+     * @return the number of visits in the range.
+     */
+    public int countBetween(Date from, Date to) {
+        return Math.max(0, indexOf(new Date(to.toEpochDay() + 1)) - indexOf(from));
+    }
+
+    /**
+     * Sums the charges of the visits between two dates, inclusive.
+     *
+     * @param from the first date of the range.
+     * @param to the last date of the range.
+     * @return the total charge of the visits in the range.
+     */
+    public int chargeBetween(Date from, Date to) {
+        int end = indexOf(new Date(to.toEpochDay() + 1));
+        int charge = 0;
+        for (int i = indexOf(from); i < end; i++) {
+            charge += PROVIDERS[providers[i]].getSpecialty().getCharge();
+        }
+        return charge;
+    }
+
+    /**
+     * Gets the number of visits in the history.
+     *
+     * @return the number of visits.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the total charge of every visit, kept up to date as visits are added.
+     *
+     * @return the total charge.
+     */
+    public int getTotalCharge() {
+        return totalCharge;
+    }
+
+    /**
+     * Gets the date of a visit.
+     *
+     * @param i the position of the visit in date order.
+     * @return the date of the visit.
+     */
+    public Date getDate(int i) {
+        return new Date(baseDay + dayOffsets[i]);
+    }
+
+    /**
+     * Gets the timeslot of a visit.
+     *
+     * @param i the position of the visit in date order.
+     * @return the timeslot of the visit.
+     */
+    public Timeslot getTimeslot(int i) {
+        return TIMESLOTS[timeslots[i]];
+    }
+
+    /**
+     * Gets the provider seen at a visit.
+     *
+     * @param i the position of the visit in date order.
+     * @return the provider of the visit.
+     */
+    public Provider getProvider(int i) {
+        return PROVIDERS[providers[i]];
+    }
+}
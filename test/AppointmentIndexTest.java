@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * AppointmentIndexTest class - Checks the sorted indexes, and the List queries served from them, against
+ * sorting and filtering every appointment by brute force.
+ *
+ * @ Rithi and Shaili
+ */
+public class AppointmentIndexTest {
+
+    /**
+     * Each index walks its appointments in its order after adds, removals, and a bulk rebuild.
+     */
+    @Test
+    public void indexWalksInOrder() {
+        for (Comparator<Appointment> order : StoreFixture.ORDERS) {
+            StoreFixture fixture = new StoreFixture(3, 150, 30);
+            AppointmentIndex index = new AppointmentIndex(order);
+            List list = new List();
+            fixture.fill(list, 3000);
+            for (Appointment appointment : fixture.booked) {
+                index.add(appointment);
+            }
+            for (int i = 0; i < 500; i++) {
+                Appointment removed = fixture.randomBooked();
+                index.remove(removed);
+                fixture.booked.remove(removed);
+            }
+            assertWalk(fixture.select(order, AppointmentQuery.ALL, Integer.MAX_VALUE), index.iterator());
+
+            Appointment[] shuffled = fixture.booked.toArray(new Appointment[0]);
+            index.rebuild(shuffled, shuffled.length);
+            assertWalk(fixture.select(order, AppointmentQuery.ALL, Integer.MAX_VALUE), index.iterator());
+        }
+    }
+
+    /**
+     * A List answers random filtered queries in each order with the appointments a brute-force filter and sort
+     * finds, while appointments come and go.
+     */
+    @Test
+    public void queriesMatchBruteForce() {
+        StoreFixture fixture = new StoreFixture(4, 120, 60);
+        List list = new List();
+        fixture.fill(list, 4000);
+        for (int round = 0; round < 1000; round++) {
+            if (round % 10 == 0) {
+                Appointment removed = fixture.randomBooked();
+                list.remove(removed);
+                fixture.booked.remove(removed);
+                fixture.fill(list, 1);
+            }
+            Comparator<Appointment> order = StoreFixture.ORDERS[round % StoreFixture.ORDERS.length];
+            AppointmentQuery query = fixture.randomQuery();
+            int max = round % 3 == 0 ? 7 : Integer.MAX_VALUE;
+            StoreFixture.assertSameAppointments(fixture.select(order, query, max), list.select(order, query, max));
+        }
+    }
+
+    /**
+     * Queries still match after the indexes are built in bulk.
+     */
+    @Test
+    public void bulkLoadedQueriesMatchBruteForce() {
+        StoreFixture fixture = new StoreFixture(5, 120, 60);
+        List list = new List();
+        list.beginBulkLoad();
+        fixture.fill(list, 4000);
+        list.endBulkLoad();
+        for (int round = 0; round < 500; round++) {
+            Comparator<Appointment> order = StoreFixture.ORDERS[round % StoreFixture.ORDERS.length];
+            AppointmentQuery query = fixture.randomQuery();
+            StoreFixture.assertSameAppointments(fixture.select(order, query, Integer.MAX_VALUE),
+                    list.select(order, query, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Helper method to check that an index walk yields exactly the expected appointments in order.
+     *
+     * @param expected the appointments in the expected order.
+     * @param walk the index walk.
+     */
+    private static void assertWalk(Appointment[] expected, Iterator<Appointment> walk) {
+        ArrayList<Appointment> walked = new ArrayList<>();
+        walk.forEachRemaining(walked::add);
+        StoreFixture.assertSameAppointments(expected, walked.toArray(new Appointment[0]));
+    }
+}
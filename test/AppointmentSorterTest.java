@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * AppointmentSorterTest class - Checks the counting-pass sort against Arrays.sort(), the stable comparison
+ * sort it replaces, in every order of AppointmentIndex.
+ *
+ * @ Rithi and Shaili
+ */
+public class AppointmentSorterTest {
+
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+
+    /**
+     * Random appointments, with ties on every key but the patient and repeated equal appointments, sort into
+     * exactly the arrangement Arrays.sort() gives, so ties keep their relative order too.
+     */
+    @Test
+    public void matchesArraysSort() {
+        Random random = new Random(11);
+        int[] sizes = {0, 1, 2, 100, 255, 256, 257, 1000, 20000};
+        int[] spans = {1, 5, 200, 3650, 2_000_000};  // The widest span is too wide to pack
+        for (int size : sizes) {
+            for (int span : spans) {
+                Appointment[] appointments = randomAppointments(random, size, span);
+                for (Comparator<Appointment> order : StoreFixture.ORDERS) {
+                    assertSorted(appointments, order);
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders the sorter does not know are sorted by comparison.
+     */
+    @Test
+    public void otherOrdersFallBackToComparison() {
+        Appointment[] appointments = randomAppointments(new Random(12), 5000, 300);
+        assertSorted(appointments, AppointmentIndex.BY_APPOINTMENT.reversed());
+    }
+
+    /**
+     * Helper method to sort a copy of the appointments both ways and check that they agree element by element.
+     *
+     * @param appointments the appointments to sort; left unchanged.
+     * @param order the order to sort in.
+     */
+    private static void assertSorted(Appointment[] appointments, Comparator<Appointment> order) {
+        Appointment[] expected = appointments.clone();
+        Arrays.sort(expected, order);
+        Appointment[] actual = appointments.clone();
+        AppointmentSorter.sort(actual, actual.length, order);
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], actual[i], "position " + i + " of " + expected.length);
+        }
+    }
+
+    /**
+     * Helper method to make random appointments over a span of days. A tenth repeat an earlier appointment's
+     * fields in a new object.
+     *
+     * @param random the random choices.
+     * @param size the number of appointments.
+     * @param span the number of days the dates are spread over.
+     * @return the appointments.
+     */
+    private static Appointment[] randomAppointments(Random random, int size, int span) {
+        MedicalRecord medicalRecord = new MedicalRecord();
+        Profile[] patients = new Profile[Math.max(1, size / 10)];
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = medicalRecord.getOrCreate(new Profile("F" + random.nextInt(50), "L" + random.nextInt(50),
+                    new Date(1960 + random.nextInt(40), 1 + random.nextInt(12), 1 + random.nextInt(28)))).getProfile();
+        }
+        int firstDay = new Date(2000, 1, 1).toEpochDay();
+        Appointment[] appointments = new Appointment[size];
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && random.nextInt(10) == 0) {
+                Appointment earlier = appointments[random.nextInt(i)];
+                appointments[i] = new Appointment(earlier.getDate(), earlier.getTimeslot(), earlier.getPatient(),
+                        earlier.getProvider());
+            } else {
+                appointments[i] = new Appointment(new Date(firstDay + random.nextInt(span)),
+                        TIMESLOTS[random.nextInt(TIMESLOTS.length)], patients[random.nextInt(patients.length)],
+                        PROVIDERS[random.nextInt(PROVIDERS.length)]);
+            }
+        }
+        return appointments;
+    }
+}
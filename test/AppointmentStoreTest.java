@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Comparator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * AppointmentStoreTest class - The checks every AppointmentStore must pass: lookups, queries in each order, and
+ * paged reports that match a List holding the same appointments, whose own queries are checked against brute
+ * force in AppointmentIndexTest. A subclass supplies the store under test.
+ *
+ * @ Rithi and Shaili
+ */
+public abstract class AppointmentStoreTest {
+
+    /**
+     * Creates an empty store of the kind under test.
+     *
+     * @param medicalRecord the medical record the appointments' patients are enrolled in.
+     * @return the store.
+     * @throws Exception if the store cannot be created.
+     */
+    abstract AppointmentStore newStore(MedicalRecord medicalRecord) throws Exception;
+
+    /**
+     * Lookups, duplicate checks, removals, and queries agree with brute force while appointments come and go.
+     */
+    @Test
+    public void queriesMatchBruteForce() throws Exception {
+        StoreFixture fixture = new StoreFixture(51, 150, 90);
+        AppointmentStore store = newStore(fixture.getMedicalRecord());
+        fixture.fill(store, 3000);
+        for (int round = 0; round < 1000; round++) {
+            Appointment probe = fixture.randomAppointment();
+            assertEquals(StoreFixture.describe(fixture.find(probe)), StoreFixture.describe(store.get(probe)));
+            assertEquals(fixture.find(probe) != null, store.contains(probe));
+            if (round % 5 == 0) {
+                Appointment removed = fixture.randomBooked();
+                store.remove(removed);
+                fixture.booked.remove(removed);
+                Appointment added = fixture.randomAppointment();
+                if (fixture.canBook(added)) {
+                    assertEquals(true, store.addIfAbsent(added));
+                    fixture.booked.add(added);
+                }
+            }
+            Comparator<Appointment> order = StoreFixture.ORDERS[round % StoreFixture.ORDERS.length];
+            AppointmentQuery query = fixture.randomQuery();
+            int max = round % 3 == 0 ? 5 : Integer.MAX_VALUE;
+            StoreFixture.assertSameAppointments(fixture.select(order, query, max), store.select(order, query, max));
+            assertEquals(fixture.booked.size(), store.size());
+        }
+    }
+
+    /**
+     * Paged, filtered PA, PP, and PL reports print what a List prints for the same appointments.
+     */
+    @Test
+    public void pagedReportsMatchList() throws Exception {
+        StoreFixture fixture = new StoreFixture(52, 150, 90);
+        AppointmentStore store = newStore(fixture.getMedicalRecord());
+        fixture.fill(store, 3000);
+        List list = new List();
+        for (Appointment appointment : fixture.booked) {
+            list.add(appointment);
+        }
+        for (int round = 0; round < 300; round++) {
+            AppointmentQuery query = round % 4 == 0 ? fixture.randomQuery()
+                    : fixture.randomQuery(round % 40, 1 + round % 25);
+            assertEquals(print(list, round, query), print(store, round, query), "report " + round);
+        }
+    }
+
+    /**
+     * Helper method to print one of the three calendar reports of a store.
+     *
+     * @param store the store.
+     * @param report 0 for PA, 1 for PP, or 2 for PL, modulo 3.
+     * @param query the filters and page of the report.
+     * @return what the store printed.
+     */
+    private static String print(AppointmentStore store, int report, AppointmentQuery query) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        switch (report % 3) {
+            case 0:
+                store.printByAppointment(out, query);
+                break;
+            case 1:
+                store.printByPatient(out, query);
+                break;
+            default:
+                store.printByLocation(out, query);
+                break;
+        }
+        out.flush();
+        return bytes.toString();
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * BatchTest class - Checks that running commands in batches with Scheduler.executeBatch() prints and leaves
+ * exactly what running them one at a time with execute() does, and that a batch stops at a command that throws.
+ *
+ * @ Rithi and Shaili
+ */
+public class BatchTest {
+
+    /**
+     * Batches of every size give each command the results execute() gives it, and leave the same calendar.
+     */
+    @Test
+    public void batchesMatchOneAtATime() {
+        String[] lines = CommandFixture.lines(21, 4000, "P", CommandFixture.PROVIDERS, true);
+        Scheduler serial = new Scheduler();
+        String[] expected = new String[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            serial.execute(lines[i], new PrintStream(bytes, true));
+            expected[i] = bytes.toString();
+        }
+        for (int batchSize : new int[] {1, 7, 256, 4096}) {
+            Scheduler batched = new Scheduler();
+            CommandParser parser = new CommandParser();
+            Command[] commands = new Command[batchSize];
+            PrintStream[] outs = new PrintStream[batchSize];
+            ByteArrayOutputStream[] results = new ByteArrayOutputStream[batchSize];
+            RuntimeException[] failures = new RuntimeException[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                commands[i] = new Command();
+                results[i] = new ByteArrayOutputStream();
+                outs[i] = new PrintStream(results[i], true);
+            }
+            for (int start = 0; start < lines.length; start += batchSize) {
+                int count = Math.min(batchSize, lines.length - start);
+                for (int i = 0; i < count; i++) {
+                    parser.parse(lines[start + i], commands[i]);
+                }
+                assertEquals(count, batched.executeBatch(commands, outs, failures, 0, count));
+                for (int i = 0; i < count; i++) {
+                    assertNull(failures[i]);
+                    assertEquals(expected[start + i], results[i].toString(), lines[start + i]);
+                    results[i].reset();
+                }
+            }
+            assertEquals(JournalTest.reports(serial), JournalTest.reports(batched), "batch size " + batchSize);
+        }
+    }
+
+    /**
+     * A command that throws ends the batch: the commands before it have run, the ones after it have not, and
+     * the rest run with another call.
+     */
+    @Test
+    public void batchStopsAtTheFirstFailure() {
+        String[] days = JournalTest.weekdays(1);
+        Scheduler scheduler = new Scheduler();
+        CommandParser parser = new CommandParser();
+        Command[] commands = new Command[6];
+        PrintStream[] outs = new PrintStream[6];
+        RuntimeException[] failures = new RuntimeException[6];
+        PrintStream ignored = new PrintStream(OutputStream.nullOutputStream());
+        IllegalStateException thrown = new IllegalStateException("stream closed");
+        PrintStream throwing = new PrintStream(OutputStream.nullOutputStream()) {
+            @Override
+            public void println(String line) {
+                throw thrown;
+            }
+        };
+        for (int i = 0; i < 6; i++) {
+            commands[i] = new Command();
+            parser.parse("S," + days[0] + "," + (i + 1) + ",P" + i + ",Doe,1/1/1990,PATEL", commands[i]);
+            outs[i] = i == 2 ? throwing : ignored;
+        }
+        assertEquals(3, scheduler.executeBatch(commands, outs, failures, 0, 6));
+        assertSame(thrown, failures[2]);
+        assertNull(failures[3]);
+        assertEquals(3, scheduler.size(), "the failing command booked before it printed; none after it ran");
+        assertEquals(6, scheduler.executeBatch(commands, outs, failures, 3, 6));
+        assertEquals(6, scheduler.size());
+    }
+}
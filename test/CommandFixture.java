@@ -0,0 +1,62 @@
+import java.util.Random;
+
+/**
+ * CommandFixture class - Random command lines for the tests that run the same commands two ways: every
+ * command type, including rejected ones, over the next weekdays.
+ *
+ * @ Rithi and Shaili
+ */
+public class CommandFixture {
+
+    static final String[] PROVIDERS = {"PATEL", "LIM", "ZIMNES", "HARPER", "KAUR", "TAYLOR", "RAMESH", "CERAVOLO"};
+
+    /**
+     * Makes random command lines for a group of patients and providers.
+     *
+     * @param seed the seed of the random choices.
+     * @param count the number of lines.
+     * @param patientPrefix the start of every first name, so groups of lines can name disjoint patients.
+     * @param providers the providers S commands book with.
+     * @param reports true to mix in PA, PP, PL, PS, and N commands, false for S, C, and R only.
+     * @return the lines.
+     */
+    static String[] lines(long seed, int count, String patientPrefix, String[] providers, boolean reports) {
+        String[] days = JournalTest.weekdays(10);
+        Random random = new Random(seed);
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            String day = days[random.nextInt(days.length)];
+            int slot = random.nextInt(8);  // 0 and 7 are not timeslots
+            String patient = patientPrefix + random.nextInt(30) + ",Doe," + (1 + random.nextInt(2)) + "/1/1990";
+            int kind = random.nextInt(reports ? 12 : 7);
+            switch (kind) {
+                case 0:
+                case 1:
+                    lines[i] = "C," + day + "," + slot + "," + patient;
+                    break;
+                case 2:
+                    lines[i] = "R," + day + "," + slot + "," + patient + "," + random.nextInt(8);
+                    break;
+                case 7:
+                    lines[i] = "PA";
+                    break;
+                case 8:
+                    lines[i] = "PP";
+                    break;
+                case 9:
+                    lines[i] = "PL";
+                    break;
+                case 10:
+                    lines[i] = "PS";
+                    break;
+                case 11:
+                    lines[i] = random.nextBoolean() ? "N," + providers[random.nextInt(providers.length)] : "X,bad";
+                    break;
+                default:
+                    lines[i] = "S," + day + "," + slot + "," + patient + "," + providers[random.nextInt(providers.length)];
+                    break;
+            }
+        }
+        return lines;
+    }
+}
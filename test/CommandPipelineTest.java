@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * CommandPipelineTest class - Checks that commands run through the single-writer pipeline print and leave what
+ * running them directly on the scheduler does, from one producer and from many at once.
+ *
+ * @ Rithi and Shaili
+ */
+public class CommandPipelineTest {
+
+    /**
+     * One producer's commands, reports included, give the results of running them directly.
+     */
+    @Test
+    public void oneProducerMatchesDirectRun() {
+        String[] lines = CommandFixture.lines(31, 3000, "P", CommandFixture.PROVIDERS, true);
+        Scheduler direct = new Scheduler();
+        Scheduler piped = new Scheduler();
+        try (CommandPipeline pipeline = new CommandPipeline(piped, 64, 16, 0)) {
+            for (String line : lines) {
+                assertEquals(run(direct, null, line), run(piped, pipeline, line), line);
+            }
+        }
+        assertEquals(JournalTest.reports(direct), JournalTest.reports(piped));
+    }
+
+    /**
+     * Producers with their own patients and providers each get the results their commands get when run
+     * alone, and together leave the calendar running all of them in turn leaves.
+     */
+    @Test
+    public void concurrentProducersMatchSerialRun() throws InterruptedException {
+        int producers = 4;
+        String[][] lines = new String[producers][];
+        String[][] expected = new String[producers][];
+        Scheduler serial = new Scheduler();
+        for (int p = 0; p < producers; p++) {
+            String[] providers = Arrays.copyOfRange(CommandFixture.PROVIDERS, 2 * p, 2 * p + 2);
+            lines[p] = CommandFixture.lines(40 + p, 2000, "T" + p + "P", providers, false);
+            Scheduler alone = new Scheduler();
+            expected[p] = new String[lines[p].length];
+            for (int i = 0; i < lines[p].length; i++) {
+                expected[p][i] = run(alone, null, lines[p][i]);
+                serial.execute(lines[p][i], new PrintStream(new ByteArrayOutputStream()));
+            }
+        }
+
+        Scheduler piped = new Scheduler();
+        String[][] actual = new String[producers][];
+        try (CommandPipeline pipeline = new CommandPipeline(piped, 16, 8, 0)) {
+            Thread[] threads = new Thread[producers];
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                actual[p] = new String[lines[p].length];
+                threads[p] = new Thread(() -> {
+                    for (int i = 0; i < lines[producer].length; i++) {
+                        actual[producer][i] = run(piped, pipeline, lines[producer][i]);
+                    }
+                });
+                threads[p].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        for (int p = 0; p < producers; p++) {
+            for (int i = 0; i < lines[p].length; i++) {
+                assertEquals(expected[p][i], actual[p][i], lines[p][i]);
+            }
+        }
+        assertEquals(JournalTest.reports(serial), JournalTest.reports(piped));
+    }
+
+    /**
+     * Helper method to run one command line directly or through a pipeline and capture what it printed.
+     *
+     * @param scheduler the scheduler to run it on directly.
+     * @param pipeline the pipeline to run it through, or null to run it directly.
+     * @param line the command line.
+     * @return what the command printed.
+     */
+    private static String run(Scheduler scheduler, CommandPipeline pipeline, String line) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        if (pipeline == null) {
+            scheduler.execute(line, out);
+        } else {
+            pipeline.execute(line, out);
+        }
+        out.flush();
+        return bytes.toString();
+    }
+}
@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+/**
+ * DateTest class - Checks the packed epoch-day Date against java.time.LocalDate, which computes the same
+ * calendar rules without any of the arithmetic Date does by hand.
+ *
+ * @ Rithi and Shaili
+ */
+public class DateTest {
+
+    /**
+     * Every date from year 1 to 9999 has the epoch day, fields, and weekday LocalDate gives it.
+     */
+    @Test
+    public void epochDayAndFieldsMatchLocalDate() {
+        LocalDate day = LocalDate.of(1, 1, 1);
+        LocalDate end = LocalDate.of(9999, 12, 31);
+        while (!day.isAfter(end)) {
+            Date date = new Date(day.getYear(), day.getMonthValue(), day.getDayOfMonth());
+            assertTrue(date.isValid(), day.toString());
+            assertEquals(day.toEpochDay(), date.toEpochDay(), day.toString());
+            Date fromEpochDay = new Date((int) day.toEpochDay());
+            assertEquals(day.getYear(), fromEpochDay.getYear(), day.toString());
+            assertEquals(day.getMonthValue(), fromEpochDay.getMonth(), day.toString());
+            assertEquals(day.getDayOfMonth(), fromEpochDay.getDay(), day.toString());
+            boolean weekend = day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+            assertEquals(weekend, date.isWeekend(date), day.toString());
+            day = day.plusDays(1);
+        }
+    }
+
+    /**
+     * A year, month, and day make a valid date exactly when LocalDate accepts them, including leap days.
+     */
+    @Test
+    public void validityMatchesLocalDate() {
+        int[] years = {1, 4, 100, 400, 1900, 1999, 2000, 2023, 2024, 2100, 9999};
+        for (int year : years) {
+            for (int month = 0; month <= 13; month++) {
+                for (int day = 0; day <= 32; day++) {
+                    boolean valid = month >= 1 && month <= 12 && day >= 1
+                            && day <= LocalDate.of(year, month, 1).lengthOfMonth();
+                    assertEquals(valid, new Date(year, month, day).isValid(), year + "-" + month + "-" + day);
+                }
+            }
+        }
+        assertFalse(new Date(0, 1, 1).isValid());
+        assertFalse(new Date(10000, 1, 1).isValid());
+    }
+
+    /**
+     * Dates order, compare equal, and hash by the day they name.
+     */
+    @Test
+    public void orderAndEqualityFollowTheDay() {
+        Date leapDay = new Date(2024, 2, 29);
+        Date nextDay = new Date(2024, 3, 1);
+        assertTrue(leapDay.compareTo(nextDay) < 0);
+        assertTrue(nextDay.compareTo(leapDay) > 0);
+        assertEquals(new Date(2024, 2, 29), leapDay);
+        assertEquals(new Date(2024, 2, 29).hashCode(), leapDay.hashCode());
+        assertEquals("2/29/2024", leapDay.toString());
+    }
+
+    /**
+     * Today and the six-month window match the system clock read through LocalDate.
+     */
+    @Test
+    public void todayAndSixMonthWindowMatchTheClock() {
+        Date.refreshToday();
+        LocalDate today = LocalDate.now();
+        if (!today.equals(LocalDate.now())) {
+            return;  // Midnight passed while the window was being computed
+        }
+        assertEquals(today.toEpochDay(), Date.today().toEpochDay());
+        assertEquals(today.plusMonths(6).toEpochDay(), Date.sixMonthsFromNow().toEpochDay());
+        Date tomorrow = new Date((int) today.toEpochDay() + 1);
+        assertTrue(Date.today().isBeforeToday());
+        assertFalse(Date.today().isAfterToday());
+        assertTrue(tomorrow.isAfterToday());
+        assertTrue(Date.sixMonthsFromNow().isWithinSixMonths(null));
+        assertFalse(new Date((int) today.plusMonths(6).toEpochDay() + 1).isWithinSixMonths(null));
+    }
+}
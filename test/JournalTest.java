@@ -0,0 +1,197 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * JournalTest class - Checks that replaying the journal rebuilds the calendar the commands built, that only a
+ * record cut off at the end of the file is dropped, and that a compacted journal replays from its snapshot.
+ *
+ * @ Rithi and Shaili
+ */
+public class JournalTest {
+
+    private static final String[] PROVIDERS = {"PATEL", "LIM", "ZIMNES", "HARPER", "KAUR", "TAYLOR", "RAMESH", "CERAVOLO"};
+    private static final int HEADER_SIZE = 14;
+    private static final int APPOINTMENT_SIZE = 11;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A replayed journal gives the calendar and billing the commands left.
+     */
+    @Test
+    public void replayRebuildsTheCalendar() throws IOException {
+        Path path = directory.resolve("journal");
+        Scheduler scheduler = run(path, 3000, null);
+        Scheduler replayed = new Scheduler();
+        try (Journal journal = new Journal(path)) {
+            journal.replay(replayed);
+        }
+        assertEquals(reports(scheduler), reports(replayed));
+    }
+
+    /**
+     * A record cut off at the true end of the file is dropped and truncated away.
+     */
+    @Test
+    public void cutOffLastRecordIsTruncated() throws IOException {
+        Path path = directory.resolve("journal");
+        Scheduler scheduler = run(path, 500, null);
+        long size = Files.size(path);
+        try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.APPEND)) {
+            out.write(new byte[] {1, 0, 0, 0});  // The start of a schedule record
+        }
+        Scheduler replayed = new Scheduler();
+        try (Journal journal = new Journal(path)) {
+            journal.replay(replayed);
+        }
+        assertEquals(size, Files.size(path));
+        assertEquals(reports(scheduler), reports(replayed));
+    }
+
+    /**
+     * A malformed record followed by more records is corruption: replay fails and the file is left alone.
+     */
+    @Test
+    public void malformedRecordInTheMiddleFails() throws IOException {
+        Path path = directory.resolve("journal");
+        run(path, 500, null);
+        byte[] bytes = Files.readAllBytes(path);
+        int record = firstAppointmentRecord(bytes);
+        bytes[record] = 9;  // No such record type
+        Files.write(path, bytes);
+        try (Journal journal = new Journal(path)) {
+            assertThrows(IOException.class, () -> journal.replay(new Scheduler()));
+        }
+        assertEquals(bytes.length, Files.size(path));
+    }
+
+    /**
+     * A snapshot compacts the journal to the records after it, and the two replay to the full calendar; the
+     * compacted journal is refused without its snapshot.
+     */
+    @Test
+    public void compactedJournalReplaysFromItsSnapshot() throws IOException {
+        Path path = directory.resolve("journal");
+        Path snapshotPath = directory.resolve("snapshot");
+        Scheduler scheduler = run(path, 3000, snapshotPath);
+        Snapshot snapshot = Snapshot.load(snapshotPath);
+        long firstPosition = ByteBuffer.wrap(Files.readAllBytes(path)).getLong(HEADER_SIZE - Long.BYTES);
+        assertTrue(snapshot.getJournalPosition() > HEADER_SIZE);
+        assertEquals(snapshot.getJournalPosition(), firstPosition, "the journal starts at the snapshot");
+
+        Scheduler replayed = new Scheduler();
+        try (Journal journal = new Journal(path)) {
+            journal.replay(replayed, snapshot);
+        }
+        assertEquals(reports(scheduler), reports(replayed));
+        try (Journal journal = new Journal(path)) {
+            assertThrows(IOException.class, () -> journal.replay(new Scheduler()));
+        }
+    }
+
+    /**
+     * Helper method to run random S, C, and R commands on a journaled scheduler, saving a snapshot halfway if
+     * asked, and close the journal.
+     *
+     * @param path the journal file.
+     * @param commands the number of commands to run.
+     * @param snapshotPath the snapshot file to save halfway, or null for none.
+     * @return the scheduler the commands ran on.
+     * @throws IOException if the journal or the snapshot cannot be written.
+     */
+    static Scheduler run(Path path, int commands, Path snapshotPath) throws IOException {
+        String[] days = weekdays(10);
+        Random random = new Random(7);
+        PrintStream ignored = new PrintStream(OutputStream.nullOutputStream());
+        Scheduler scheduler = new Scheduler();
+        try (Journal journal = new Journal(path)) {
+            scheduler.setJournal(journal, false);
+            for (int i = 0; i < commands; i++) {
+                String day = days[random.nextInt(days.length)];
+                int slot = 1 + random.nextInt(6);
+                String patient = "P" + random.nextInt(40) + ",Q,1/1/1990";
+                switch (random.nextInt(3)) {
+                    case 0:
+                        scheduler.execute("C," + day + "," + slot + "," + patient, ignored);
+                        break;
+                    case 1:
+                        scheduler.execute("R," + day + "," + slot + "," + patient + "," + (1 + random.nextInt(6)), ignored);
+                        break;
+                    default:
+                        scheduler.execute("S," + day + "," + slot + "," + patient + ","
+                                + PROVIDERS[random.nextInt(PROVIDERS.length)], ignored);
+                        break;
+                }
+                if (snapshotPath != null && i == commands / 2) {
+                    Snapshot.save(scheduler, journal, snapshotPath);
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Helper method to print a scheduler's calendar and billing.
+     *
+     * @param scheduler the scheduler.
+     * @return the PA, PP, PL, and PS reports.
+     */
+    static String reports(Scheduler scheduler) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        scheduler.execute("PA", out);
+        scheduler.execute("PP", out);
+        scheduler.execute("PL", out);
+        scheduler.execute("PS", out);
+        return bytes.toString();
+    }
+
+    /**
+     * Helper method to list the next weekdays after today, which S commands accept.
+     *
+     * @param count the number of weekdays.
+     * @return the weekdays as MM/DD/YYYY.
+     */
+    static String[] weekdays(int count) {
+        String[] days = new String[count];
+        int found = 0;
+        for (int day = Date.today().toEpochDay() + 1; found < count; day++) {
+            Date date = new Date(day);
+            if (!date.isWeekend(date)) {
+                days[found++] = date.getMonth() + "/" + date.getDay() + "/" + date.getYear();
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Helper method to find the first appointment record of a journal file that has more records after it.
+     *
+     * @param bytes the journal file.
+     * @return the offset of the record's type byte.
+     */
+    private static int firstAppointmentRecord(byte[] bytes) {
+        int offset = HEADER_SIZE;
+        while (bytes[offset] == 4) {  // Skip the enroll records: fixed part, then two names
+            int first = ((bytes[offset + 5] & 0xFF) << 8) | (bytes[offset + 6] & 0xFF);
+            int last = ((bytes[offset + 7 + first] & 0xFF) << 8) | (bytes[offset + 8 + first] & 0xFF);
+            offset += 9 + first + last;
+        }
+        assertTrue(offset + APPOINTMENT_SIZE < bytes.length, "records follow the malformed one");
+        return offset;
+    }
+}
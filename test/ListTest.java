@@ -0,0 +1,70 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ListTest class - Checks the hash-indexed List against the linear scans it replaced, over random adds,
+ * duplicate adds, lookups, and removals.
+ *
+ * @ Rithi and Shaili
+ */
+public class ListTest {
+
+    /**
+     * Every lookup, duplicate check, and removal agrees with a linear scan of the same appointments.
+     */
+    @Test
+    public void lookupsMatchLinearScan() {
+        StoreFixture fixture = new StoreFixture(1, 200, 40);
+        List list = new List();
+        for (int i = 0; i < 20000; i++) {
+            Appointment probe = fixture.randomAppointment();
+            switch (i % 4) {
+                case 0:
+                    boolean added = list.addIfAbsent(probe);
+                    assertEquals(fixture.find(probe) == null, added);
+                    if (added) {
+                        fixture.booked.add(probe);
+                    }
+                    break;
+                case 1:
+                    Appointment booked = fixture.randomBooked();
+                    if (booked != null) {
+                        assertFalse(list.addIfAbsent(booked), "a booked appointment is a duplicate");
+                        list.remove(booked);
+                        fixture.booked.remove(booked);
+                        assertFalse(list.contains(booked));
+                    }
+                    break;
+                default:
+                    Appointment expected = fixture.find(probe);
+                    assertEquals(StoreFixture.describe(expected), StoreFixture.describe(list.get(probe)));
+                    assertEquals(expected != null, list.contains(probe));
+                    break;
+            }
+            assertEquals(fixture.booked.size(), list.size());
+        }
+        for (Appointment appointment : fixture.booked) {
+            assertTrue(list.contains(appointment));
+        }
+    }
+
+    /**
+     * A bulk load finds the same appointments as adding them one at a time.
+     */
+    @Test
+    public void bulkLoadMatchesAdds() {
+        StoreFixture fixture = new StoreFixture(2, 100, 20);
+        List list = new List();
+        list.beginBulkLoad();
+        fixture.fill(list, 2000);
+        list.endBulkLoad();
+        assertEquals(fixture.booked.size(), list.size());
+        for (int i = 0; i < 2000; i++) {
+            Appointment probe = fixture.randomAppointment();
+            assertEquals(StoreFixture.describe(fixture.find(probe)), StoreFixture.describe(list.get(probe)));
+        }
+    }
+}
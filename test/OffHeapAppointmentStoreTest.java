@@ -0,0 +1,48 @@
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * OffHeapAppointmentStoreTest class - Runs the store checks on the off-heap calendar grid, and checks that it
+ * refuses appointments it has no cell for.
+ *
+ * @ Rithi and Shaili
+ */
+public class OffHeapAppointmentStoreTest extends AppointmentStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    AppointmentStore newStore(MedicalRecord medicalRecord) {
+        return new OffHeapAppointmentStore(medicalRecord);
+    }
+
+    /**
+     * The store kept in a memory-mapped file passes the same checks.
+     */
+    @Test
+    public void mappedStoreMatchesBruteForce() throws Exception {
+        AppointmentStoreTest mapped = new AppointmentStoreTest() {
+            @Override
+            AppointmentStore newStore(MedicalRecord medicalRecord) throws Exception {
+                return new OffHeapAppointmentStore(medicalRecord, directory.resolve("store"));
+            }
+        };
+        mapped.queriesMatchBruteForce();
+    }
+
+    /**
+     * A patient the medical record never enrolled has no id to store, so the appointment is refused.
+     */
+    @Test
+    public void unknownPatientIsRefused() {
+        StoreFixture fixture = new StoreFixture(53, 10, 10);
+        AppointmentStore store = newStore(fixture.getMedicalRecord());
+        Appointment stranger = new Appointment(new Date(2026, 3, 2), Timeslot.values()[0],
+                new Profile("No", "One", new Date(1990, 1, 1)), Provider.values()[0]);
+        assertThrows(IllegalArgumentException.class, () -> store.addIfAbsent(stranger));
+    }
+}
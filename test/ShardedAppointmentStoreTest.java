@@ -0,0 +1,52 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ShardedAppointmentStoreTest class - Runs the store checks on a store sharded by location, with List shards and
+ * with off-heap shards, and checks that a bulk load ends with the same reports as adding one at a time.
+ *
+ * @ Rithi and Shaili
+ */
+public class ShardedAppointmentStoreTest extends AppointmentStoreTest {
+
+    @Override
+    AppointmentStore newStore(MedicalRecord medicalRecord) {
+        return new ShardedAppointmentStore(List::new);
+    }
+
+    /**
+     * Off-heap shards pass the same checks.
+     */
+    @Test
+    public void offHeapShardsMatchBruteForce() throws Exception {
+        AppointmentStoreTest offHeap = new AppointmentStoreTest() {
+            @Override
+            AppointmentStore newStore(MedicalRecord medicalRecord) {
+                return new ShardedAppointmentStore(() -> new OffHeapAppointmentStore(medicalRecord));
+            }
+        };
+        offHeap.queriesMatchBruteForce();
+        offHeap.pagedReportsMatchList();
+    }
+
+    /**
+     * Appointments added during a bulk load are found and printed once the load ends.
+     */
+    @Test
+    public void bulkLoadMatchesBruteForce() {
+        StoreFixture fixture = new StoreFixture(54, 150, 90);
+        AppointmentStore store = newStore(fixture.getMedicalRecord());
+        store.beginBulkLoad();
+        fixture.fill(store, 3000);
+        store.endBulkLoad();
+        assertEquals(fixture.booked.size(), store.size());
+        for (int round = 0; round < 200; round++) {
+            AppointmentQuery query = fixture.randomQuery();
+            for (int i = 0; i < StoreFixture.ORDERS.length; i++) {
+                StoreFixture.assertSameAppointments(fixture.select(StoreFixture.ORDERS[i], query, Integer.MAX_VALUE),
+                        store.select(StoreFixture.ORDERS[i], query, Integer.MAX_VALUE));
+            }
+        }
+    }
+}
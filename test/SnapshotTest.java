@@ -0,0 +1,55 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * SnapshotTest class - Checks that a snapshot written to a file and loaded back restores the same calendar,
+ * billing, and patient ids into every kind of store, and that a cut-off snapshot is refused.
+ *
+ * @ Rithi and Shaili
+ */
+public class SnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Saving and loading a snapshot round-trips the calendar into the List, off-heap, and sharded stores.
+     */
+    @Test
+    public void roundTripRestoresTheCalendar() throws IOException {
+        Scheduler scheduler = JournalTest.run(directory.resolve("journal"), 3000, null);
+        Path path = directory.resolve("snapshot");
+        Snapshot.save(scheduler, null, path);
+        Snapshot snapshot = Snapshot.load(path);
+        assertEquals(scheduler.size(), snapshot.size());
+
+        Scheduler[] restored = {new Scheduler(), Scheduler.offHeap(null), Scheduler.sharded(false), Scheduler.sharded(true)};
+        String expected = JournalTest.reports(scheduler);
+        for (Scheduler target : restored) {
+            assertEquals(scheduler.size(), snapshot.restore(target));
+            assertEquals(expected, JournalTest.reports(target));
+            assertEquals(Arrays.toString(scheduler.getMedicalRecord().getProfiles()),
+                    Arrays.toString(target.getMedicalRecord().getProfiles()), "patients keep their ids");
+        }
+    }
+
+    /**
+     * A snapshot file cut short is refused rather than restored in part.
+     */
+    @Test
+    public void truncatedSnapshotIsRefused() throws IOException {
+        Scheduler scheduler = JournalTest.run(directory.resolve("journal"), 1000, null);
+        Path path = directory.resolve("snapshot");
+        Snapshot.save(scheduler, null, path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> Snapshot.load(path));
+    }
+}
@@ -0,0 +1,199 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * StoreFixture class - Random calendars and queries for the store tests, with a plain list of the same
+ * appointments that the tests scan and sort by brute force as the baseline every store must match.
+ * Appointments keep the scheduler's rule that a provider sees at most one patient per timeslot of a day.
+ *
+ * @ Rithi and Shaili
+ */
+public class StoreFixture {
+
+    static final Comparator<Appointment>[] ORDERS = orders();
+
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Timeslot[] TIMESLOTS = Timeslot.values();
+    private static final int FIRST_DAY = new Date(2026, 1, 5).toEpochDay();
+
+    private final Random random;
+    private final MedicalRecord medicalRecord = new MedicalRecord();
+    private final Profile[] patients;  // Interned profiles of every enrolled patient
+    private final int days;            // Number of days appointments are spread over
+    final ArrayList<Appointment> booked = new ArrayList<>();  // Every appointment in the calendar
+
+    /**
+     * Constructor to create a fixture with enrolled patients.
+     *
+     * @param seed the seed of the random choices.
+     * @param patientCount the number of patients to enroll.
+     * @param days the number of days appointments are spread over.
+     */
+    StoreFixture(long seed, int patientCount, int days) {
+        this.random = new Random(seed);
+        this.days = days;
+        this.patients = new Profile[patientCount];
+        for (int i = 0; i < patientCount; i++) {
+            Profile profile = new Profile("First" + random.nextInt(patientCount), "Last" + i,
+                    new Date(1950 + random.nextInt(60), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+            patients[i] = medicalRecord.getOrCreate(profile).getProfile();
+        }
+    }
+
+    /**
+     * Gets the medical record the fixture's patients are enrolled in.
+     *
+     * @return the medical record.
+     */
+    MedicalRecord getMedicalRecord() {
+        return medicalRecord;
+    }
+
+    /**
+     * Makes a random appointment, which may or may not already be booked.
+     *
+     * @return the appointment.
+     */
+    Appointment randomAppointment() {
+        return new Appointment(new Date(FIRST_DAY + random.nextInt(days)), TIMESLOTS[random.nextInt(TIMESLOTS.length)],
+                patients[random.nextInt(patients.length)], PROVIDERS[random.nextInt(PROVIDERS.length)]);
+    }
+
+    /**
+     * Picks one of the booked appointments at random.
+     *
+     * @return the appointment, or null if none is booked.
+     */
+    Appointment randomBooked() {
+        return booked.isEmpty() ? null : booked.get(random.nextInt(booked.size()));
+    }
+
+    /**
+     * Finds the booked appointment equal to a probe by a linear scan, as the original List did.
+     *
+     * @param probe the appointment to look for; its provider is ignored.
+     * @return the booked appointment, or null if there is none.
+     */
+    Appointment find(Appointment probe) {
+        for (Appointment appointment : booked) {
+            if (appointment.equals(probe)) {
+                return appointment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if an appointment can be booked: no equal appointment is booked and its provider is free then.
+     *
+     * @param appointment the appointment to check.
+     * @return true if the scheduler would book it, false otherwise.
+     */
+    boolean canBook(Appointment appointment) {
+        for (Appointment other : booked) {
+            if (other.equals(appointment) || (other.getProvider() == appointment.getProvider()
+                    && other.getDate().equals(appointment.getDate()) && other.getTimeslot() == appointment.getTimeslot())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Books random appointments into a store and the baseline list, skipping any the scheduler would refuse.
+     *
+     * @param store the store to fill.
+     * @param count the number of appointments to try.
+     */
+    void fill(AppointmentStore store, int count) {
+        for (int i = 0; i < count; i++) {
+            Appointment appointment = randomAppointment();
+            if (canBook(appointment)) {
+                store.add(appointment);
+                booked.add(appointment);
+            }
+        }
+    }
+
+    /**
+     * Makes a random query: an optional date range, county, provider, and patient.
+     *
+     * @return the query, with no page.
+     */
+    AppointmentQuery randomQuery() {
+        return randomQuery(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Makes a random query with a page: an optional date range, county, provider, and patient.
+     *
+     * @param offset the number of matching appointments to skip.
+     * @param limit the most matching appointments to print.
+     * @return the query.
+     */
+    AppointmentQuery randomQuery(int offset, int limit) {
+        Date from = random.nextBoolean() ? null : new Date(FIRST_DAY + random.nextInt(days));
+        Date to = random.nextBoolean() ? null : new Date(FIRST_DAY + random.nextInt(days));
+        String county = random.nextInt(3) > 0 ? null : PROVIDERS[random.nextInt(PROVIDERS.length)].getLocation().getCounty();
+        Provider provider = random.nextInt(3) > 0 ? null : PROVIDERS[random.nextInt(PROVIDERS.length)];
+        Profile patient = random.nextInt(3) > 0 ? null : patients[random.nextInt(patients.length)];
+        return new AppointmentQuery(from, to, county, provider, patient, offset, limit);
+    }
+
+    /**
+     * Collects the booked appointments matching a query in an order by filtering and sorting the baseline list.
+     *
+     * @param order the order to collect in.
+     * @param query the filters to match.
+     * @param max the most appointments to collect.
+     * @return the matching appointments, in order, no more than max.
+     */
+    Appointment[] select(Comparator<Appointment> order, AppointmentQuery query, int max) {
+        ArrayList<Appointment> matches = new ArrayList<>();
+        for (Appointment appointment : booked) {
+            if (query.matches(appointment)) {
+                matches.add(appointment);
+            }
+        }
+        matches.sort(order);
+        return matches.subList(0, Math.min(max, matches.size())).toArray(new Appointment[0]);
+    }
+
+    /**
+     * Asserts that two runs of appointments hold the same appointments, providers included, in the same order.
+     *
+     * @param expected the baseline appointments.
+     * @param actual the appointments a store returned.
+     */
+    static void assertSameAppointments(Appointment[] expected, Appointment[] actual) {
+        assertEquals(expected.length, actual.length, "number of appointments");
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(describe(expected[i]), describe(actual[i]), "appointment " + i);
+        }
+    }
+
+    /**
+     * Helper method to describe every field of an appointment, the provider included.
+     *
+     * @param appointment the appointment.
+     * @return the description.
+     */
+    static String describe(Appointment appointment) {
+        return appointment == null ? "none" : appointment.getDate() + " " + appointment.getTimeslot() + " "
+                + appointment.getPatient() + " " + appointment.getProvider();
+    }
+
+    /**
+     * Helper method to list the four orders of AppointmentIndex.
+     *
+     * @return the orders.
+     */
+    @SuppressWarnings("unchecked")
+    private static Comparator<Appointment>[] orders() {
+        return new Comparator[] {AppointmentIndex.BY_APPOINTMENT, AppointmentIndex.BY_PATIENT,
+                AppointmentIndex.BY_LOCATION, AppointmentIndex.BY_PROVIDER};
+    }
+}